@@ -15,6 +15,9 @@
  */
 package org.fedoraproject.xmvn.metadata;
 
+import java.util.Collections;
+import java.util.List;
+
 import org.fedoraproject.xmvn.artifact.Artifact;
 
 /**
@@ -32,4 +35,54 @@ public interface MetadataResult
      *         artifact
      */
     ArtifactMetadata getMetadataFor( Artifact artifact );
+
+    /**
+     * Find installed artifacts which depend on artifact with specified groupId and artifactId. Dependencies declared on
+     * aliases of installed artifacts are taken into account too.
+     * <p>
+     * The default implementation returns an empty list, for results which don't keep track of dependencies.
+     * 
+     * @param groupId groupId of artifact to find dependents of
+     * @param artifactId artifactId of artifact to find dependents of
+     * @param transitive whether artifacts depending on specified artifact only indirectly should be included too
+     * @return metadata of dependent artifacts, nearest first (never {@code null})
+     */
+    default List<ArtifactMetadata> getDependents( String groupId, String artifactId, boolean transitive )
+    {
+        return Collections.emptyList();
+    }
+
+    /**
+     * Get compat versions of specified artifact. Version of specified artifact is ignored.
+     * <p>
+     * The default implementation returns an empty list.
+     * 
+     * @param artifact artifact to get compat versions of
+     * @return compat versions of specified artifact, sorted in ascending Maven version order (never {@code null})
+     */
+    default List<String> getCompatVersions( Artifact artifact )
+    {
+        return Collections.emptyList();
+    }
+
+    /**
+     * Find compat version of specified artifact which best matches given version specification. Version of specified
+     * artifact is ignored.
+     * <p>
+     * Version specification can be either a Maven version range, such as {@code [1.0,2.0)} or {@code (,1.5],[2.0,)},
+     * in which case the highest compat version within the range is returned, or a plain version, in which case the
+     * nearest compat version is returned: the version itself if it exists, otherwise the highest lower version, or the
+     * lowest higher version if there are no lower versions.
+     * <p>
+     * The default implementation returns {@code null}.
+     * 
+     * @param artifact artifact to find compat version of
+     * @param versionSpec version range or plain version
+     * @return matching compat version, or {@code null} if there is no matching compat version or version range is not
+     *         valid
+     */
+    default String findCompatVersion( Artifact artifact, String versionSpec )
+    {
+        return null;
+    }
 }
@@ -30,6 +30,8 @@ public class ResolutionRequest
 
     private boolean isPersistentFileNeeded;
 
+    private boolean isAvailableVersionsNeeded;
+
     public ResolutionRequest()
     {
     }
@@ -109,6 +111,27 @@ public class ResolutionRequest
         this.isPersistentFileNeeded = isPersistentFileNeeded;
     }
 
+    /**
+     * Determine whether list of available versions of requested artifact should be included in resolution result.
+     * 
+     * @return whether list of available versions of requested artifact should be included in resolution result
+     */
+    public boolean isAvailableVersionsNeeded()
+    {
+        return isAvailableVersionsNeeded;
+    }
+
+    /**
+     * Set whether list of available versions of requested artifact should be included in resolution result.
+     * 
+     * @param isAvailableVersionsNeeded whether list of available versions of requested artifact should be included in
+     *            resolution result
+     */
+    public void setAvailableVersionsNeeded( boolean isAvailableVersionsNeeded )
+    {
+        this.isAvailableVersionsNeeded = isAvailableVersionsNeeded;
+    }
+
     @Override
     public int hashCode()
     {
@@ -117,6 +140,7 @@ public class ResolutionRequest
         result = prime * result + ( ( artifact == null ) ? 0 : artifact.hashCode() );
         result = prime * result + ( isProviderNeeded ? 1231 : 1237 );
         result = prime * result + ( isPersistentFileNeeded ? 1231 : 1237 );
+        result = prime * result + ( isAvailableVersionsNeeded ? 1231 : 1237 );
         return result;
     }
 
@@ -141,6 +165,8 @@ public class ResolutionRequest
             return false;
         if ( isPersistentFileNeeded != other.isPersistentFileNeeded )
             return false;
+        if ( isAvailableVersionsNeeded != other.isAvailableVersionsNeeded )
+            return false;
         return true;
     }
 
@@ -148,6 +174,7 @@ public class ResolutionRequest
     public String toString()
     {
         return ResolutionRequest.class + "{artifact=" + artifact + ",isProviderNeeded=" + isProviderNeeded
-            + ",isPersistentFileNeeded=" + isPersistentFileNeeded + "}";
+            + ",isPersistentFileNeeded=" + isPersistentFileNeeded + ",isAvailableVersionsNeeded="
+            + isAvailableVersionsNeeded + "}";
     }
 }
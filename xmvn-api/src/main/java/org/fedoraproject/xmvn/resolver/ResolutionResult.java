@@ -16,6 +16,8 @@
 package org.fedoraproject.xmvn.resolver;
 
 import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * Provides access to results of artifact resolution.
@@ -56,4 +58,22 @@ public interface ResolutionResult
      *         from any repository or the repository does not have associated namespace.
      */
     String getNamespace();
+
+    /**
+     * Get versions of requested artifact which are available in the system.
+     * <p>
+     * Available versions are included in resolution result only if they were requested with
+     * {@link ResolutionRequest#setAvailableVersionsNeeded(boolean)}. They are reported even if requested version of the
+     * artifact could not be resolved.
+     * <p>
+     * The default implementation returns an empty list.
+     * 
+     * @return compat versions of requested artifact, sorted in ascending Maven version order, followed by default
+     *         artifact version if it is available; empty list if no version is available or available versions were not
+     *         requested (never {@code null})
+     */
+    default List<String> getAvailableVersions()
+    {
+        return Collections.emptyList();
+    }
 }
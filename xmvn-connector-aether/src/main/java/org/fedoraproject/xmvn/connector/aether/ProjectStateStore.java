@@ -0,0 +1,147 @@
+/*-
+ * Copyright (c) 2018 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fedoraproject.xmvn.connector.aether;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.codehaus.plexus.component.annotations.Component;
+
+/**
+ * In-memory store of XMvn project state, which is persisted in {@code .xmvn} directory.
+ * <p>
+ * Project properties are loaded from disk once, modified in memory during the build and written back once, atomically,
+ * at the end of Maven session. Properties are shared with XMvn MOJOs through repository session data, under key
+ * {@link #PROJECT_PROPERTIES_KEY}, as a concurrent map of strings, so that they can be accessed from plugin class
+ * realms too.
+ * 
+ * @author Mikolaj Izdebski
+ */
+@Component( role = ProjectStateStore.class )
+public class ProjectStateStore
+{
+    /**
+     * Key under which project properties are stored in repository session data.
+     */
+    public static final String PROJECT_PROPERTIES_KEY = "org.fedoraproject.xmvn.projectProperties";
+
+    private Path xmvnStateDir = Paths.get( ".xmvn" );
+
+    private ConcurrentMap<String, String> properties;
+
+    private volatile boolean modified;
+
+    void setXmvnStateDir( Path xmvnStateDir )
+    {
+        this.xmvnStateDir = xmvnStateDir;
+    }
+
+    private Path getPropertiesFile()
+    {
+        return xmvnStateDir.resolve( "properties" );
+    }
+
+    /**
+     * Get project properties, loading them from disk first if needed. Returned map is live view of the store and it is
+     * safe for concurrent use.
+     * 
+     * @return project properties
+     */
+    public synchronized ConcurrentMap<String, String> getProjectProperties()
+    {
+        if ( properties == null )
+        {
+            properties = new ConcurrentHashMap<>();
+            Path propertiesFile = getPropertiesFile();
+
+            if ( Files.exists( propertiesFile ) )
+            {
+                Properties fileProperties = new Properties();
+
+                try ( InputStream stream = Files.newInputStream( propertiesFile ) )
+                {
+                    fileProperties.load( stream );
+                }
+                catch ( IOException e )
+                {
+                    throw new RuntimeException( "Failed to load project properties", e );
+                }
+
+                for ( String key : fileProperties.stringPropertyNames() )
+                    properties.put( key, fileProperties.getProperty( key ) );
+            }
+        }
+
+        return properties;
+    }
+
+    public void setProjectProperty( String groupId, String artifactId, String version, String key, String value )
+    {
+        getProjectProperties().put( groupId + "/" + artifactId + "/" + version + "/" + key, value );
+        modified = true;
+    }
+
+    /**
+     * Write modified project state to disk. State is first written to a temporary file, which then atomically replaces
+     * the old state, so that concurrent readers never see partially written state.
+     */
+    public synchronized void flush()
+    {
+        if ( !modified )
+            return;
+
+        try
+        {
+            if ( !Files.exists( xmvnStateDir ) )
+                Files.createDirectory( xmvnStateDir );
+
+            Properties fileProperties = new Properties();
+            for ( Map.Entry<String, String> entry : properties.entrySet() )
+                fileProperties.setProperty( entry.getKey(), entry.getValue() );
+
+            Path tempFile = Files.createTempFile( xmvnStateDir, "properties", ".tmp" );
+            try
+            {
+                try ( OutputStream stream = Files.newOutputStream( tempFile ) )
+                {
+                    fileProperties.store( stream, "XMvn project properties" );
+                }
+
+                Files.move( tempFile, getPropertiesFile(), StandardCopyOption.REPLACE_EXISTING,
+                            StandardCopyOption.ATOMIC_MOVE );
+            }
+            finally
+            {
+                Files.deleteIfExists( tempFile );
+            }
+
+            modified = false;
+        }
+        catch ( IOException e )
+        {
+            throw new RuntimeException( "Failed to write project properties", e );
+        }
+    }
+}
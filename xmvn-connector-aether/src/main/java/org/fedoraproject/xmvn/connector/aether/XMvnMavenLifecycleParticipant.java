@@ -42,6 +42,9 @@ public class XMvnMavenLifecycleParticipant
     @Requirement( role = XMvnMojoExecutionListener.class )
     private XMvnMojoExecutionListener mojoExecutionListener;
 
+    @Requirement
+    private ProjectStateStore projectStateStore;
+
     @Override
     public void afterSessionStart( MavenSession session )
         throws MavenExecutionException
@@ -60,5 +63,15 @@ public class XMvnMavenLifecycleParticipant
         chainedListener.addExecutionListener( request.getExecutionListener() );
         chainedListener.addExecutionListener( reportGenerator );
         request.setExecutionListener( chainedListener );
+
+        session.getRepositorySession().getData().set( ProjectStateStore.PROJECT_PROPERTIES_KEY,
+                                                      projectStateStore.getProjectProperties() );
+    }
+
+    @Override
+    public void afterSessionEnd( MavenSession session )
+        throws MavenExecutionException
+    {
+        projectStateStore.flush();
     }
 }
@@ -16,8 +16,6 @@
 package org.fedoraproject.xmvn.connector.aether;
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
@@ -27,7 +25,6 @@ import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.Properties;
 
 import org.apache.maven.plugin.BuildPluginManager;
 import org.apache.maven.plugin.LegacySupport;
@@ -101,11 +98,20 @@ public class XMvnMojoExecutionListener
     @Requirement
     private LegacySupport legacySupport;
 
+    @Requirement
+    private ProjectStateStore projectStateStore;
+
     private Path xmvnStateDir = Paths.get( ".xmvn" );
 
+    void setProjectStateStore( ProjectStateStore projectStateStore )
+    {
+        this.projectStateStore = projectStateStore;
+    }
+
     void setXmvnStateDir( Path xmvnStateDir )
     {
         this.xmvnStateDir = xmvnStateDir;
+        projectStateStore.setXmvnStateDir( xmvnStateDir );
     }
 
     private Object dispatchBuildPluginManagerMethodCall( Object proxy, Method method, Object[] args )
@@ -207,35 +213,8 @@ public class XMvnMojoExecutionListener
 
     private void setProjectProperty( MavenProject project, String key, String value )
     {
-        Properties properties = new Properties();
-
-        try
-        {
-            Path propertiesFile = xmvnStateDir.resolve( "properties" );
-
-            if ( !Files.exists( xmvnStateDir ) )
-                Files.createDirectory( xmvnStateDir );
-
-            if ( Files.exists( propertiesFile ) )
-            {
-                try ( InputStream stream = Files.newInputStream( propertiesFile ) )
-                {
-                    properties.load( stream );
-                }
-            }
-
-            String projectKey = project.getGroupId() + "/" + project.getArtifactId() + "/" + project.getVersion();
-            properties.setProperty( projectKey + "/" + key, value );
-
-            try ( OutputStream stream = Files.newOutputStream( propertiesFile ) )
-            {
-                properties.store( stream, "XMvn project properties" );
-            }
-        }
-        catch ( IOException e )
-        {
-            throw new RuntimeException( "Failed to set project property", e );
-        }
+        projectStateStore.setProjectProperty( project.getGroupId(), project.getArtifactId(), project.getVersion(), key,
+                                              value );
     }
 
     void afterMojoExecution( Object mojo, MojoExecution execution, MavenProject project )
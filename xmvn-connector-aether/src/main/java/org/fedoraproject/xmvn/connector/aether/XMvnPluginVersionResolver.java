@@ -43,7 +43,9 @@ public class XMvnPluginVersionResolver
         List<String> versions =
             reader.findVersions( new DefaultArtifact( request.getGroupId(), request.getArtifactId(),
                                                       Artifact.DEFAULT_EXTENSION, Artifact.DEFAULT_VERSION ) );
-        final String version = versions.isEmpty() ? Artifact.DEFAULT_VERSION : versions.iterator().next();
+        // Default version is preferred, otherwise the highest compat version is used
+        final String version = versions.isEmpty() || versions.contains( Artifact.DEFAULT_VERSION )
+                        ? Artifact.DEFAULT_VERSION : versions.get( versions.size() - 1 );
         final ArtifactRepository repository = reader.getRepository();
 
         return new PluginVersionResult()
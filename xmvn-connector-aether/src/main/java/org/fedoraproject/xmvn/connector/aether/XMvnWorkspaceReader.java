@@ -18,7 +18,6 @@ package org.fedoraproject.xmvn.connector.aether;
 import java.io.File;
 import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 
 import org.codehaus.plexus.component.annotations.Component;
@@ -50,12 +49,13 @@ public class XMvnWorkspaceReader
         listeners.add( listener );
     }
 
-    private ResolutionResult resolve( Artifact artifact )
+    private ResolutionResult resolve( Artifact artifact, boolean versionsNeeded )
     {
         org.fedoraproject.xmvn.artifact.Artifact xmvnArtifact =
             new org.fedoraproject.xmvn.artifact.DefaultArtifact( artifact.getGroupId(), artifact.getArtifactId(),
                                                                  artifact.getExtension(), artifact.getClassifier(), artifact.getVersion() );
         ResolutionRequest request = new ResolutionRequest( xmvnArtifact );
+        request.setAvailableVersionsNeeded( versionsNeeded );
 
         for ( ResolutionListener listener : listeners )
             listener.resolutionRequested( request );
@@ -71,7 +71,7 @@ public class XMvnWorkspaceReader
     @Override
     public File findArtifact( Artifact artifact )
     {
-        ResolutionResult result = resolve( artifact );
+        ResolutionResult result = resolve( artifact, false );
 
         Path artifactPath = result.getArtifactPath();
         return artifactPath != null ? artifactPath.toFile() : null;
@@ -80,16 +80,9 @@ public class XMvnWorkspaceReader
     @Override
     public List<String> findVersions( Artifact artifact )
     {
-        ResolutionResult result = resolve( artifact );
+        ResolutionResult result = resolve( artifact, true );
 
-        if ( result.getArtifactPath() == null )
-            return Collections.emptyList();
-
-        String version = result.getCompatVersion();
-        if ( version == null )
-            version = org.fedoraproject.xmvn.artifact.Artifact.DEFAULT_VERSION;
-
-        return Collections.singletonList( version );
+        return result.getAvailableVersions();
     }
 
     @Override
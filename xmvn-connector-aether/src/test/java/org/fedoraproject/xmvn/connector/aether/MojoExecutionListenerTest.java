@@ -70,6 +70,7 @@ public class MojoExecutionListenerTest
         throws Exception
     {
         listener = new XMvnMojoExecutionListener();
+        listener.setProjectStateStore( new ProjectStateStore() );
 
         listener.setXmvnStateDir( tempDir.getRoot().toPath() );
 
@@ -16,6 +16,7 @@
 package org.fedoraproject.xmvn.connector.aether;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 
 import org.apache.maven.plugin.version.PluginVersionRequest;
@@ -117,6 +118,44 @@ public class PluginVersionResolverTest
         Assert.assertTrue( result.getVersion().equals( "1.2.3" ) );
 
         EasyMock.verify( rq, session, reader );
+
+        // test of highest compat version resolution (version list contains only compat versions)
+        EasyMock.reset( rq, session, reader );
+        EasyMock.expect( rq.getRepositorySession() ).andReturn( session );
+        EasyMock.expect( rq.getGroupId() ).andReturn( "test.example" );
+        EasyMock.expect( rq.getArtifactId() ).andReturn( "nonexistent" );
+
+        EasyMock.expect( session.getWorkspaceReader() ).andReturn( reader );
+
+        EasyMock.expect( reader.findVersions( EasyMock.anyObject( DefaultArtifact.class ) ) ).andReturn( Arrays.asList( "1.2.3",
+                                                                                                                      "1.10" ) );
+        EasyMock.expect( reader.getRepository() ).andReturn( repo );
+
+        EasyMock.replay( rq, session, reader );
+
+        result = resolver.resolve( rq );
+        Assert.assertEquals( "1.10", result.getVersion() );
+
+        EasyMock.verify( rq, session, reader );
+
+        // test of default version resolution (version list contains both compat and default version)
+        EasyMock.reset( rq, session, reader );
+        EasyMock.expect( rq.getRepositorySession() ).andReturn( session );
+        EasyMock.expect( rq.getGroupId() ).andReturn( "test.example" );
+        EasyMock.expect( rq.getArtifactId() ).andReturn( "nonexistent" );
+
+        EasyMock.expect( session.getWorkspaceReader() ).andReturn( reader );
+
+        EasyMock.expect( reader.findVersions( EasyMock.anyObject( DefaultArtifact.class ) ) ).andReturn( Arrays.asList( "1.2.3",
+                                                                                                                      Artifact.DEFAULT_VERSION ) );
+        EasyMock.expect( reader.getRepository() ).andReturn( repo );
+
+        EasyMock.replay( rq, session, reader );
+
+        result = resolver.resolve( rq );
+        Assert.assertEquals( Artifact.DEFAULT_VERSION, result.getVersion() );
+
+        EasyMock.verify( rq, session, reader );
     }
 
 }
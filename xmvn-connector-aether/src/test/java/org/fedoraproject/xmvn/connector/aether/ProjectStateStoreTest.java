@@ -0,0 +1,131 @@
+/*-
+ * Copyright (c) 2018 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fedoraproject.xmvn.connector.aether;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.stream.Stream;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * @author Mikolaj Izdebski
+ */
+public class ProjectStateStoreTest
+{
+    @Rule
+    public TemporaryFolder tempDir = new TemporaryFolder();
+
+    private Path stateDir;
+
+    private ProjectStateStore store;
+
+    @Before
+    public void setUp()
+    {
+        stateDir = tempDir.getRoot().toPath().resolve( ".xmvn" );
+        store = new ProjectStateStore();
+        store.setXmvnStateDir( stateDir );
+    }
+
+    private Properties readProperties()
+        throws Exception
+    {
+        Properties properties = new Properties();
+        try ( InputStream stream = Files.newInputStream( stateDir.resolve( "properties" ) ) )
+        {
+            properties.load( stream );
+        }
+        return properties;
+    }
+
+    @Test
+    public void testNoFlushWithoutModification()
+        throws Exception
+    {
+        store.getProjectProperties();
+        store.flush();
+        assertFalse( Files.exists( stateDir ) );
+    }
+
+    @Test
+    public void testPropertiesWrittenOnFlush()
+        throws Exception
+    {
+        Files.createDirectory( stateDir );
+        Properties old = new Properties();
+        old.setProperty( "g/old/1.0/compilerTarget", "1.6" );
+        old.setProperty( "g/a/1.0/compilerTarget", "1.5" );
+        try ( OutputStream stream = Files.newOutputStream( stateDir.resolve( "properties" ) ) )
+        {
+            old.store( stream, null );
+        }
+
+        store.setProjectProperty( "g", "a", "1.0", "compilerSource", "1.7" );
+        store.setProjectProperty( "g", "a", "1.0", "compilerTarget", "1.8" );
+
+        // Nothing is written until the store is flushed
+        assertEquals( "1.5", readProperties().getProperty( "g/a/1.0/compilerTarget" ) );
+        assertEquals( "1.8", store.getProjectProperties().get( "g/a/1.0/compilerTarget" ) );
+
+        store.flush();
+
+        Properties properties = readProperties();
+        assertEquals( 3, properties.size() );
+        assertEquals( "1.6", properties.getProperty( "g/old/1.0/compilerTarget" ) );
+        assertEquals( "1.7", properties.getProperty( "g/a/1.0/compilerSource" ) );
+        assertEquals( "1.8", properties.getProperty( "g/a/1.0/compilerTarget" ) );
+
+        try ( Stream<Path> files = Files.list( stateDir ) )
+        {
+            assertEquals( 1, files.count() );
+        }
+    }
+
+    @Test
+    public void testConcurrentModification()
+        throws Exception
+    {
+        List<Thread> threads = new ArrayList<>();
+        for ( int i = 0; i < 8; i++ )
+        {
+            String artifactId = "a" + i;
+            threads.add( new Thread( () -> {
+                for ( int j = 0; j < 100; j++ )
+                    store.setProjectProperty( "g", artifactId, "1." + j, "compilerTarget", "1.8" );
+            } ) );
+        }
+        for ( Thread thread : threads )
+            thread.start();
+        for ( Thread thread : threads )
+            thread.join();
+
+        store.flush();
+
+        assertEquals( 800, readProperties().size() );
+    }
+}
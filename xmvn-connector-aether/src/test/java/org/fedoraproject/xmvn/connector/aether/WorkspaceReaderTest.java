@@ -21,6 +21,8 @@ import static org.junit.Assert.assertTrue;
 
 import java.io.File;
 import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import org.easymock.EasyMock;
@@ -126,11 +128,11 @@ public class WorkspaceReaderTest
         throws Exception
     {
         ResolutionRequest request = new ResolutionRequest( new DefaultArtifact( "foo:bar:1.2.3" ) );
+        request.setAvailableVersionsNeeded( true );
         ResolutionResult result = EasyMock.createMock( ResolutionResult.class );
 
         EasyMock.expect( resolver.resolve( request ) ).andReturn( result );
-        EasyMock.expect( result.getArtifactPath() ).andReturn( Paths.get( "/foo/bar" ) );
-        EasyMock.expect( result.getCompatVersion() ).andReturn( null );
+        EasyMock.expect( result.getAvailableVersions() ).andReturn( Collections.singletonList( "SYSTEM" ) );
         EasyMock.replay( resolver, result );
 
         List<String> versions =
@@ -146,19 +148,18 @@ public class WorkspaceReaderTest
         throws Exception
     {
         ResolutionRequest request = new ResolutionRequest( new DefaultArtifact( "foo:bar:1.2.3" ) );
+        request.setAvailableVersionsNeeded( true );
         ResolutionResult result = EasyMock.createMock( ResolutionResult.class );
 
         EasyMock.expect( resolver.resolve( request ) ).andReturn( result );
-        EasyMock.expect( result.getArtifactPath() ).andReturn( Paths.get( "/foo/bar" ) );
-        EasyMock.expect( result.getCompatVersion() ).andReturn( "4.5.6" );
+        EasyMock.expect( result.getAvailableVersions() ).andReturn( Arrays.asList( "1.2", "4.5.6", "SYSTEM" ) );
         EasyMock.replay( resolver, result );
 
         List<String> versions =
             workspace.findVersions( new org.eclipse.aether.artifact.DefaultArtifact( "foo:bar:1.2.3" ) );
         EasyMock.verify( resolver, result );
 
-        assertEquals( 1, versions.size() );
-        assertEquals( "4.5.6", versions.get( 0 ) );
+        assertEquals( Arrays.asList( "1.2", "4.5.6", "SYSTEM" ), versions );
     }
 
     @Test
@@ -166,10 +167,11 @@ public class WorkspaceReaderTest
         throws Exception
     {
         ResolutionRequest request = new ResolutionRequest( new DefaultArtifact( "foo:bar:1.2.3" ) );
+        request.setAvailableVersionsNeeded( true );
         ResolutionResult result = EasyMock.createMock( ResolutionResult.class );
 
         EasyMock.expect( resolver.resolve( request ) ).andReturn( result );
-        EasyMock.expect( result.getArtifactPath() ).andReturn( null );
+        EasyMock.expect( result.getAvailableVersions() ).andReturn( Collections.emptyList() );
         EasyMock.replay( resolver, result );
 
         List<String> versions =
@@ -145,13 +145,7 @@ class XMvnInstallTask
             }
         }
 
-        DeploymentResult result;
-
-        // prevent parallel access to installation plan
-        synchronized ( XMvnInstallTask.class )
-        {
-            result = getDeployer().deploy( request );
-        }
+        DeploymentResult result = getDeployer().deploy( request );
 
         if ( result.getException() != null )
         {
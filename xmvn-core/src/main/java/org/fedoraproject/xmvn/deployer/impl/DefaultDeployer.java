@@ -15,12 +15,25 @@
  */
 package org.fedoraproject.xmvn.deployer.impl;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.Reader;
-import java.io.Writer;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystemException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import javax.xml.stream.XMLStreamException;
 
@@ -44,6 +57,15 @@ import org.fedoraproject.xmvn.metadata.io.stax.MetadataStaxWriter;
  * <strong>WARNING</strong>: This class is part of internal implementation of XMvn and it is marked as public only for
  * technical reasons. This class is not part of XMvn API. Client code using XMvn should <strong>not</strong> reference
  * it directly.
+ * <p>
+ * Reactor installation plan is treated as append-only journal of artifact records. Each deployment appends a single
+ * {@code <artifact>} record in place of closing tags of the plan and then writes the closing tags again, so that the
+ * plan is always a well-formed metadata document and deploying artifacts of the whole reactor doesn't require parsing
+ * and serializing the plan over and over again. Plans which don't end with artifact list (for example plans written
+ * by hand) are read and rewritten as a whole.
+ * <p>
+ * Deployment is safe to perform concurrently from multiple threads and multiple processes. Access to the plan is
+ * serialized with an exclusive lock on the plan file, which is held only for the time needed to append single record.
  * 
  * @author Mikolaj Izdebski
  */
@@ -51,6 +73,20 @@ import org.fedoraproject.xmvn.metadata.io.stax.MetadataStaxWriter;
 public class DefaultDeployer
     implements Deployer
 {
+    /**
+     * Number of bytes at the end of installation plan that are examined when looking for closing tags.
+     */
+    private static final int TRAILER_SIZE = 256;
+
+    private static final Pattern TRAILER_PATTERN = Pattern.compile( "[ \\t]*</artifacts>\\s*</metadata>\\s*$" );
+
+    /**
+     * Delay between attempts to lock installation plan which is already locked within the same JVM, in milliseconds.
+     */
+    private static final long LOCK_RETRY_DELAY = 10;
+
+    private static final ConcurrentMap<Path, Object> PLAN_MONITORS = new ConcurrentHashMap<>();
+
     @Override
     public DeploymentResult deploy( DeploymentRequest request )
     {
@@ -58,10 +94,7 @@ public class DefaultDeployer
 
         try
         {
-            PackageMetadata plan = readInstallationPlan( request.getPlanPath() );
-
             ArtifactMetadata am = new ArtifactMetadata();
-            plan.addArtifact( am );
 
             Artifact artifact = request.getArtifact();
             am.setGroupId( artifact.getGroupId() );
@@ -96,7 +129,7 @@ public class DefaultDeployer
                 }
             }
 
-            writeInstallationPlan( plan, request.getPlanPath() );
+            updateInstallationPlan( am, request.getPlanPath() );
         }
         catch ( Exception e )
         {
@@ -106,17 +139,95 @@ public class DefaultDeployer
         return result;
     }
 
-    private PackageMetadata readInstallationPlan( Path planPath )
+    private void updateInstallationPlan( ArtifactMetadata am, Path planPath )
+        throws IOException
+    {
+        if ( Files.exists( planPath ) && !Files.isRegularFile( planPath ) )
+            throw new IOException( "Failed to parse reactor installation plan",
+                                   new FileSystemException( planPath.toString(), null, "Not a regular file" ) );
+
+        // File locks are held on behalf of the whole JVM, so threads need to be serialized separately.
+        Object monitor = PLAN_MONITORS.computeIfAbsent( planPath.toAbsolutePath().normalize(), path -> new Object() );
+        synchronized ( monitor )
+        {
+            try ( FileChannel channel = FileChannel.open( planPath, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                                                          StandardOpenOption.CREATE );
+                            FileLock lock = lockInstallationPlan( channel ) )
+            {
+                if ( !appendToInstallationPlan( am, channel ) )
+                {
+                    PackageMetadata plan = readInstallationPlan( channel );
+                    plan.addArtifact( am );
+                    writeInstallationPlan( plan, channel );
+                }
+            }
+        }
+    }
+
+    private static FileLock lockInstallationPlan( FileChannel channel )
+        throws IOException
+    {
+        while ( true )
+        {
+            try
+            {
+                return channel.lock();
+            }
+            catch ( OverlappingFileLockException e )
+            {
+                // Plan is locked by another copy of XMvn running in the same JVM, loaded by different class loader.
+                try
+                {
+                    Thread.sleep( LOCK_RETRY_DELAY );
+                }
+                catch ( InterruptedException e1 )
+                {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException( "Interrupted while waiting for reactor installation plan lock" );
+                }
+            }
+        }
+    }
+
+    private static ByteBuffer read( FileChannel channel, long position, int length )
+        throws IOException
+    {
+        ByteBuffer buffer = ByteBuffer.allocate( length );
+        while ( buffer.hasRemaining() )
+        {
+            if ( channel.read( buffer, position + buffer.position() ) < 0 )
+                break;
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static void write( FileChannel channel, long position, byte[] data )
         throws IOException
     {
-        if ( !Files.exists( planPath ) )
+        ByteBuffer buffer = ByteBuffer.wrap( data );
+        while ( buffer.hasRemaining() )
+            channel.write( buffer, position + buffer.position() );
+        channel.truncate( position + data.length );
+    }
+
+    private PackageMetadata readInstallationPlan( FileChannel channel )
+        throws IOException
+    {
+        if ( channel.size() == 0 )
         {
             return new PackageMetadata();
         }
 
-        try ( Reader reader = Files.newBufferedReader( planPath, StandardCharsets.UTF_8 ) )
+        if ( channel.size() > Integer.MAX_VALUE )
         {
-            return new MetadataStaxReader().read( reader );
+            throw new IOException( "Reactor installation plan is too large" );
+        }
+
+        ByteBuffer plan = read( channel, 0, (int) channel.size() );
+        try ( InputStream stream = new ByteArrayInputStream( plan.array(), 0, plan.limit() ) )
+        {
+            return new MetadataStaxReader().read( stream );
         }
         catch ( XMLStreamException e )
         {
@@ -124,16 +235,74 @@ public class DefaultDeployer
         }
     }
 
-    private void writeInstallationPlan( PackageMetadata plan, Path planPath )
+    private void writeInstallationPlan( PackageMetadata plan, FileChannel channel )
+        throws IOException
+    {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        try
+        {
+            new MetadataStaxWriter().write( stream, plan );
+        }
+        catch ( XMLStreamException e )
+        {
+            throw new IOException( "Unable to write reactor installation plan", e );
+        }
+
+        write( channel, 0, stream.toByteArray() );
+    }
+
+    /**
+     * Serialize artifact metadata as a record that can be appended to installation plan, followed by closing tags of
+     * the plan.
+     */
+    private static String[] formatRecord( ArtifactMetadata am )
         throws IOException
     {
-        try ( Writer writer = Files.newBufferedWriter( planPath, StandardCharsets.UTF_8 ) )
+        PackageMetadata metadata = new PackageMetadata();
+        metadata.addArtifact( am );
+
+        StringWriter writer = new StringWriter();
+        try
         {
-            new MetadataStaxWriter().write( writer, plan );
+            new MetadataStaxWriter().write( writer, metadata );
         }
         catch ( XMLStreamException e )
         {
             throw new IOException( "Unable to write reactor installation plan", e );
         }
+
+        String document = writer.toString();
+        int start = document.indexOf( '\n', document.indexOf( "<artifacts>" ) ) + 1;
+        Matcher matcher = TRAILER_PATTERN.matcher( document );
+        if ( start == 0 || !matcher.find( start ) )
+            throw new IOException( "Unable to write reactor installation plan" );
+
+        return new String[] { document.substring( start, matcher.start() ), document.substring( matcher.start() ) };
+    }
+
+    /**
+     * Append artifact record to existing installation plan, without reading the whole plan.
+     * 
+     * @return {@code true} if artifact was appended, {@code false} if plan is empty or it doesn't end with artifact
+     *         list and it needs to be rewritten as a whole
+     */
+    private boolean appendToInstallationPlan( ArtifactMetadata am, FileChannel channel )
+        throws IOException
+    {
+        long size = channel.size();
+        long trailerOffset = Math.max( 0, size - TRAILER_SIZE );
+        ByteBuffer trailer = read( channel, trailerOffset, (int) ( size - trailerOffset ) );
+
+        // Only ASCII characters are matched, so decoding as ISO-8859-1 keeps character offsets equal to byte
+        // offsets, even if the trailer starts in the middle of multi-byte UTF-8 sequence.
+        String trailerText = new String( trailer.array(), 0, trailer.limit(), StandardCharsets.ISO_8859_1 );
+        Matcher matcher = TRAILER_PATTERN.matcher( trailerText );
+        if ( !matcher.find() || !trailerText.substring( 0, matcher.start() ).contains( "</artifact>" ) )
+            return false;
+
+        String[] record = formatRecord( am );
+        write( channel, trailerOffset + matcher.start(), ( record[0] + record[1] ).getBytes( StandardCharsets.UTF_8 ) );
+
+        return true;
     }
 }
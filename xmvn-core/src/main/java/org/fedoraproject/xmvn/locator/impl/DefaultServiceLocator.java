@@ -17,12 +17,15 @@ package org.fedoraproject.xmvn.locator.impl;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.fedoraproject.xmvn.config.Configurator;
 import org.fedoraproject.xmvn.config.impl.DefaultConfigurator;
 import org.fedoraproject.xmvn.deployer.Deployer;
 import org.fedoraproject.xmvn.deployer.impl.DefaultDeployer;
 import org.fedoraproject.xmvn.locator.ServiceLocator;
+import org.fedoraproject.xmvn.logging.impl.ConsoleLogger;
+import org.fedoraproject.xmvn.logging.impl.Logger;
 import org.fedoraproject.xmvn.metadata.MetadataResolver;
 import org.fedoraproject.xmvn.metadata.impl.DefaultMetadataResolver;
 import org.fedoraproject.xmvn.resolver.Resolver;
@@ -34,13 +37,20 @@ import org.fedoraproject.xmvn.resolver.impl.DefaultResolver;
  * <strong>WARNING</strong>: This class is part of internal implementation of XMvn and it is marked as public only for
  * technical reasons. This class is not part of XMvn API. Client code using XMvn should <strong>not</strong> reference
  * it directly.
+ * <p>
+ * Services are instantiated lazily, on first request, and this class can be safely used from multiple threads. If
+ * system property {@code xmvn.locator.warmup} is set to {@code true} then configuration and artifact metadata start
+ * being loaded on background threads as soon as the locator is created, so that they are ready by the time first
+ * artifact is resolved.
  * 
  * @author Mikolaj Izdebski
  */
 public class DefaultServiceLocator
     implements ServiceLocator
 {
-    private final Map<Class<?>, Class<?>> knownServices = new HashMap<>();
+    private final Logger logger = new ConsoleLogger();
+
+    private final Map<Class<?>, Class<?>> knownServices = new ConcurrentHashMap<>();
 
     private final Map<Class<?>, Object> runningServices = new HashMap<>();
 
@@ -55,6 +65,48 @@ public class DefaultServiceLocator
         addService( Deployer.class, DefaultDeployer.class );
         addService( Configurator.class, DefaultConfigurator.class );
         addService( MetadataResolver.class, DefaultMetadataResolver.class );
+
+        if ( Boolean.getBoolean( "xmvn.locator.warmup" ) )
+            warmUp();
+    }
+
+    private void startWarmUpThread( String name, Runnable task )
+    {
+        Thread thread = new Thread( () -> {
+            try
+            {
+                task.run();
+            }
+            catch ( RuntimeException e )
+            {
+                // Ignore. The same operation will be retried, and the error reported, when the service is used.
+                logger.debug( "Background {} warm-up failed: {}", name, e );
+            }
+        } );
+        thread.setName( DefaultServiceLocator.class.getCanonicalName() + "." + name + "-warmup" );
+        thread.setDaemon( true );
+        thread.start();
+    }
+
+    /**
+     * Speculatively start loading XMvn configuration and artifact metadata on background threads.
+     * <p>
+     * This method returns immediately. Services requested before warm-up is finished block until data they need is
+     * loaded, without loading it again.
+     */
+    public void warmUp()
+    {
+        startWarmUpThread( "configuration", () -> {
+            Configurator configurator = getService( Configurator.class );
+            configurator.getDefaultConfiguration();
+            configurator.getConfiguration();
+        } );
+
+        startWarmUpThread( "metadata", () -> {
+            Resolver resolver = getService( Resolver.class );
+            if ( resolver instanceof DefaultResolver )
+                ( (DefaultResolver) resolver ).warmUp();
+        } );
     }
 
     private Object loadService( Class<?> role )
@@ -81,7 +133,7 @@ public class DefaultServiceLocator
     }
 
     @Override
-    public <T> T getService( Class<T> role )
+    public synchronized <T> T getService( Class<T> role )
     {
         if ( !runningServices.containsKey( role ) )
         {
@@ -15,7 +15,15 @@
  */
 package org.fedoraproject.xmvn.metadata.impl;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -27,6 +35,7 @@ import org.fedoraproject.xmvn.artifact.DefaultArtifact;
 import org.fedoraproject.xmvn.logging.impl.Logger;
 import org.fedoraproject.xmvn.metadata.ArtifactAlias;
 import org.fedoraproject.xmvn.metadata.ArtifactMetadata;
+import org.fedoraproject.xmvn.metadata.Dependency;
 import org.fedoraproject.xmvn.metadata.MetadataResult;
 import org.fedoraproject.xmvn.metadata.PackageMetadata;
 
@@ -40,6 +49,16 @@ class DefaultMetadataResult
 
     private final Map<Artifact, ArtifactMetadata> artifactMap = new LinkedHashMap<>();
 
+    /**
+     * Index of reverse dependencies, built when it's needed for the first time.
+     */
+    private volatile ReverseDependencyIndex reverseDependencyIndex;
+
+    /**
+     * Index of compat versions, built when it's needed for the first time.
+     */
+    private volatile CompatVersionIndex compatVersionIndex;
+
     public DefaultMetadataResult( Logger logger, List<PackageMetadata> metadataList, boolean ignoreDuplicates )
     {
         this.logger = logger;
@@ -119,4 +138,264 @@ class DefaultMetadataResult
     {
         return artifactMap.get( artifact );
     }
+
+    @Override
+    public List<ArtifactMetadata> getDependents( String groupId, String artifactId, boolean transitive )
+    {
+        return getReverseDependencyIndex().getDependents( groupId, artifactId, transitive );
+    }
+
+    private ReverseDependencyIndex getReverseDependencyIndex()
+    {
+        ReverseDependencyIndex index = reverseDependencyIndex;
+        if ( index == null )
+        {
+            synchronized ( this )
+            {
+                index = reverseDependencyIndex;
+                if ( index == null )
+                {
+                    index = new ReverseDependencyIndex( artifactMap.values() );
+                    reverseDependencyIndex = index;
+                }
+            }
+        }
+
+        return index;
+    }
+
+    @Override
+    public List<String> getCompatVersions( Artifact artifact )
+    {
+        return getCompatVersionIndex().getVersions( artifact );
+    }
+
+    @Override
+    public String findCompatVersion( Artifact artifact, String versionSpec )
+    {
+        return getCompatVersionIndex().findVersion( artifact, versionSpec );
+    }
+
+    private CompatVersionIndex getCompatVersionIndex()
+    {
+        CompatVersionIndex index = compatVersionIndex;
+        if ( index == null )
+        {
+            synchronized ( this )
+            {
+                index = compatVersionIndex;
+                if ( index == null )
+                {
+                    index = new CompatVersionIndex( artifactMap.keySet() );
+                    compatVersionIndex = index;
+                }
+            }
+        }
+
+        return index;
+    }
+
+    /**
+     * Maps groupId and artifactId of each artifact to installed artifacts declaring dependencies on it.
+     */
+    private static class ReverseDependencyIndex
+    {
+        private final Map<String, List<ArtifactMetadata>> dependents = new HashMap<>();
+
+        /**
+         * Maps groupId and artifactId of installed artifacts to groupIds and artifactIds of their aliases.
+         */
+        private final Map<String, Set<String>> aliases = new HashMap<>();
+
+        public ReverseDependencyIndex( Collection<ArtifactMetadata> installedArtifacts )
+        {
+            Set<ArtifactMetadata> indexed = Collections.newSetFromMap( new IdentityHashMap<>() );
+
+            for ( ArtifactMetadata metadata : installedArtifacts )
+            {
+                // The same metadata is mapped from all its compat versions and aliases
+                if ( !indexed.add( metadata ) )
+                    continue;
+
+                String key = getKey( metadata.getGroupId(), metadata.getArtifactId() );
+                for ( ArtifactAlias alias : metadata.getAliases() )
+                    aliases.computeIfAbsent( key, k -> new LinkedHashSet<>() ).add( getKey( alias.getGroupId(),
+                                                                                             alias.getArtifactId() ) );
+
+                Set<String> dependencyKeys = new LinkedHashSet<>();
+                for ( Dependency dependency : metadata.getDependencies() )
+                    dependencyKeys.add( getKey( dependency.getGroupId(), dependency.getArtifactId() ) );
+
+                for ( String dependencyKey : dependencyKeys )
+                    dependents.computeIfAbsent( dependencyKey, k -> new ArrayList<>() ).add( metadata );
+            }
+        }
+
+        private static String getKey( String groupId, String artifactId )
+        {
+            return groupId + ":" + artifactId;
+        }
+
+        private void enqueue( String key, Set<String> visitedKeys, Deque<String> queue )
+        {
+            if ( !visitedKeys.add( key ) )
+                return;
+
+            queue.add( key );
+            for ( String alias : aliases.getOrDefault( key, Collections.emptySet() ) )
+                enqueue( alias, visitedKeys, queue );
+        }
+
+        public List<ArtifactMetadata> getDependents( String groupId, String artifactId, boolean transitive )
+        {
+            List<ArtifactMetadata> result = new ArrayList<>();
+            Set<ArtifactMetadata> found = Collections.newSetFromMap( new IdentityHashMap<>() );
+            Set<String> visitedKeys = new HashSet<>();
+            Deque<String> queue = new ArrayDeque<>();
+            enqueue( getKey( groupId, artifactId ), visitedKeys, queue );
+
+            while ( !queue.isEmpty() )
+            {
+                for ( ArtifactMetadata dependent : dependents.getOrDefault( queue.remove(), Collections.emptyList() ) )
+                {
+                    if ( !found.add( dependent ) )
+                        continue;
+
+                    result.add( dependent );
+                    if ( transitive )
+                        enqueue( getKey( dependent.getGroupId(), dependent.getArtifactId() ), visitedKeys, queue );
+                }
+            }
+
+            return result;
+        }
+    }
+
+    /**
+     * Maps each artifact (with version set to default version) to array of its compat versions, sorted in ascending
+     * Maven version order, so that version queries can be answered using binary search.
+     */
+    private static class CompatVersionIndex
+    {
+        private static final String[] NO_VERSIONS = new String[0];
+
+        private final Map<Artifact, String[]> versions = new HashMap<>();
+
+        public CompatVersionIndex( Collection<Artifact> artifacts )
+        {
+            Map<Artifact, List<String>> versionLists = new HashMap<>();
+            for ( Artifact artifact : artifacts )
+            {
+                if ( !artifact.getVersion().equals( Artifact.DEFAULT_VERSION ) )
+                    versionLists.computeIfAbsent( artifact.setVersion( Artifact.DEFAULT_VERSION ),
+                                                  a -> new ArrayList<>() ).add( artifact.getVersion() );
+            }
+
+            for ( Map.Entry<Artifact, List<String>> entry : versionLists.entrySet() )
+            {
+                String[] sortedVersions = entry.getValue().toArray( new String[entry.getValue().size()] );
+                Arrays.sort( sortedVersions, MavenVersionComparator.INSTANCE );
+                versions.put( entry.getKey(), sortedVersions );
+            }
+        }
+
+        private String[] getSortedVersions( Artifact artifact )
+        {
+            return versions.getOrDefault( artifact.setVersion( Artifact.DEFAULT_VERSION ), NO_VERSIONS );
+        }
+
+        public List<String> getVersions( Artifact artifact )
+        {
+            return Collections.unmodifiableList( Arrays.asList( getSortedVersions( artifact ) ) );
+        }
+
+        /**
+         * Find index of the highest version lower than given version, or lower or equal if {@code inclusive} is set.
+         * 
+         * @return index of found version, or {@code -1} if there is no such version
+         */
+        private static int floor( String[] sortedVersions, String version, boolean inclusive )
+        {
+            int index = Arrays.binarySearch( sortedVersions, version, MavenVersionComparator.INSTANCE );
+            if ( index < 0 )
+                return -index - 2;
+
+            // Different version strings can be equal in Maven version order, for example 1 and 1.0
+            while ( inclusive && index + 1 < sortedVersions.length
+                && MavenVersionComparator.INSTANCE.compare( sortedVersions[index + 1], version ) == 0 )
+                index++;
+            while ( !inclusive && index >= 0
+                && MavenVersionComparator.INSTANCE.compare( sortedVersions[index], version ) == 0 )
+                index--;
+
+            return index;
+        }
+
+        public String findVersion( Artifact artifact, String versionSpec )
+        {
+            String[] sortedVersions = getSortedVersions( artifact );
+            if ( sortedVersions.length == 0 )
+                return null;
+
+            versionSpec = versionSpec.trim();
+            if ( !versionSpec.startsWith( "[" ) && !versionSpec.startsWith( "(" ) )
+            {
+                int index = floor( sortedVersions, versionSpec, true );
+                return sortedVersions[Math.max( index, 0 )];
+            }
+
+            String bestVersion = null;
+            while ( !versionSpec.isEmpty() )
+            {
+                if ( !versionSpec.startsWith( "[" ) && !versionSpec.startsWith( "(" ) )
+                    return null;
+
+                int end = 1;
+                while ( end < versionSpec.length() && versionSpec.charAt( end - 1 ) != ']'
+                    && versionSpec.charAt( end - 1 ) != ')' )
+                    end++;
+                if ( versionSpec.charAt( end - 1 ) != ']' && versionSpec.charAt( end - 1 ) != ')' )
+                    return null;
+
+                String version = findVersionInRestriction( sortedVersions, versionSpec.substring( 0, end ) );
+                if ( version != null
+                    && ( bestVersion == null || MavenVersionComparator.INSTANCE.compare( version, bestVersion ) > 0 ) )
+                    bestVersion = version;
+
+                versionSpec = versionSpec.substring( end ).trim();
+                if ( versionSpec.startsWith( "," ) )
+                    versionSpec = versionSpec.substring( 1 ).trim();
+            }
+
+            return bestVersion;
+        }
+
+        /**
+         * Find the highest version within single restriction, such as {@code [1.0,2.0)} or {@code [1.5]}.
+         */
+        private static String findVersionInRestriction( String[] sortedVersions, String restriction )
+        {
+            boolean lowerInclusive = restriction.startsWith( "[" );
+            boolean upperInclusive = restriction.endsWith( "]" );
+            String bounds = restriction.substring( 1, restriction.length() - 1 );
+
+            int comma = bounds.indexOf( ',' );
+            String lower = ( comma < 0 ? bounds : bounds.substring( 0, comma ) ).trim();
+            String upper = ( comma < 0 ? bounds : bounds.substring( comma + 1 ) ).trim();
+
+            int index = upper.isEmpty() ? sortedVersions.length - 1 : floor( sortedVersions, upper, upperInclusive );
+            if ( index < 0 )
+                return null;
+
+            String version = sortedVersions[index];
+            if ( !lower.isEmpty() )
+            {
+                int comparison = MavenVersionComparator.INSTANCE.compare( version, lower );
+                if ( comparison < 0 || comparison == 0 && !lowerInclusive )
+                    return null;
+            }
+
+            return version;
+        }
+    }
 }
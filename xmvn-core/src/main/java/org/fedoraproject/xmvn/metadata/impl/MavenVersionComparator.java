@@ -0,0 +1,237 @@
+/*-
+ * Copyright (c) 2018 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fedoraproject.xmvn.metadata.impl;
+
+import java.math.BigInteger;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Compares version strings using the same ordering as Maven uses.
+ * <p>
+ * Versions are split into numeric and qualifier items, separated by dots, hyphens and transitions between digits and
+ * letters. Items following a hyphen or a transition form nested lists. Numeric items are compared numerically, well
+ * known qualifiers are ordered as {@code alpha < beta < milestone < rc < snapshot < (release) < sp}, unknown qualifiers
+ * follow them in lexical order. Trailing zeros and release qualifiers are insignificant, so for example {@code 1},
+ * {@code 1.0} and {@code 1.0-final} are equal.
+ * 
+ * @author Mikolaj Izdebski
+ */
+final class MavenVersionComparator
+    implements Comparator<String>
+{
+    static final MavenVersionComparator INSTANCE = new MavenVersionComparator();
+
+    private static final List<String> QUALIFIERS =
+        Arrays.asList( "alpha", "beta", "milestone", "rc", "snapshot", "", "sp" );
+
+    private static final String RELEASE_QUALIFIER = String.valueOf( QUALIFIERS.indexOf( "" ) );
+
+    private MavenVersionComparator()
+    {
+    }
+
+    @Override
+    public int compare( String version1, String version2 )
+    {
+        return compareItems( parse( version1 ), parse( version2 ) );
+    }
+
+    /**
+     * Parse version into list of items. Each item is either a {@link BigInteger}, a comparable qualifier
+     * {@link String} or a nested {@link List} of items.
+     */
+    private static List<Object> parse( String version )
+    {
+        version = version.toLowerCase( Locale.ENGLISH );
+
+        List<Object> root = new ArrayList<>();
+        List<Object> list = root;
+        Deque<List<Object>> stack = new ArrayDeque<>();
+        stack.push( list );
+
+        boolean isDigit = false;
+        int start = 0;
+
+        for ( int i = 0; i < version.length(); i++ )
+        {
+            char c = version.charAt( i );
+
+            if ( c == '.' )
+            {
+                list.add( i == start ? BigInteger.ZERO : parseItem( isDigit, version.substring( start, i ), false ) );
+                start = i + 1;
+            }
+            else if ( c == '-' )
+            {
+                list.add( i == start ? BigInteger.ZERO : parseItem( isDigit, version.substring( start, i ), false ) );
+                start = i + 1;
+                list = newSublist( list, stack );
+            }
+            else if ( Character.isDigit( c ) )
+            {
+                if ( !isDigit && i > start )
+                {
+                    list.add( parseItem( false, version.substring( start, i ), true ) );
+                    start = i;
+                    list = newSublist( list, stack );
+                }
+                isDigit = true;
+            }
+            else
+            {
+                if ( isDigit && i > start )
+                {
+                    list.add( parseItem( true, version.substring( start, i ), false ) );
+                    start = i;
+                    list = newSublist( list, stack );
+                }
+                isDigit = false;
+            }
+        }
+
+        if ( version.length() > start )
+            list.add( parseItem( isDigit, version.substring( start ), false ) );
+
+        while ( !stack.isEmpty() )
+            normalize( stack.pop() );
+
+        return root;
+    }
+
+    private static List<Object> newSublist( List<Object> list, Deque<List<Object>> stack )
+    {
+        List<Object> sublist = new ArrayList<>();
+        list.add( sublist );
+        stack.push( sublist );
+        return sublist;
+    }
+
+    private static Object parseItem( boolean isDigit, String token, boolean followedByDigit )
+    {
+        if ( isDigit )
+            return new BigInteger( token );
+
+        if ( followedByDigit && token.length() == 1 )
+        {
+            switch ( token.charAt( 0 ) )
+            {
+                case 'a':
+                    token = "alpha";
+                    break;
+                case 'b':
+                    token = "beta";
+                    break;
+                case 'm':
+                    token = "milestone";
+                    break;
+                default:
+            }
+        }
+
+        switch ( token )
+        {
+            case "ga":
+            case "final":
+            case "release":
+                token = "";
+                break;
+            case "cr":
+                token = "rc";
+                break;
+            default:
+        }
+
+        int index = QUALIFIERS.indexOf( token );
+        return index >= 0 ? String.valueOf( index ) : QUALIFIERS.size() + "-" + token;
+    }
+
+    /**
+     * Remove insignificant trailing items from list.
+     */
+    private static void normalize( List<Object> list )
+    {
+        for ( int i = list.size() - 1; i >= 0; i-- )
+        {
+            Object item = list.get( i );
+            if ( isNull( item ) )
+                list.remove( i );
+            else if ( !( item instanceof List ) )
+                break;
+        }
+    }
+
+    private static boolean isNull( Object item )
+    {
+        if ( item instanceof BigInteger )
+            return ( (BigInteger) item ).signum() == 0;
+        if ( item instanceof String )
+            return item.equals( RELEASE_QUALIFIER );
+        return ( (List<?>) item ).isEmpty();
+    }
+
+    /**
+     * Compare two items. Missing items are represented by {@code null}.
+     */
+    private static int compareItems( Object item1, Object item2 )
+    {
+        if ( item1 == null )
+            return item2 == null ? 0 : -compareItems( item2, null );
+
+        if ( item1 instanceof BigInteger )
+        {
+            if ( item2 == null )
+                return ( (BigInteger) item1 ).signum() == 0 ? 0 : 1;
+            if ( item2 instanceof BigInteger )
+                return ( (BigInteger) item1 ).compareTo( (BigInteger) item2 );
+            return 1;
+        }
+
+        if ( item1 instanceof String )
+        {
+            if ( item2 == null )
+                return ( (String) item1 ).compareTo( RELEASE_QUALIFIER );
+            if ( item2 instanceof String )
+                return ( (String) item1 ).compareTo( (String) item2 );
+            return -1;
+        }
+
+        List<?> list1 = (List<?>) item1;
+        if ( item2 == null )
+            return list1.isEmpty() ? 0 : compareItems( list1.get( 0 ), null );
+        if ( item2 instanceof BigInteger )
+            return -1;
+        if ( item2 instanceof String )
+            return 1;
+
+        List<?> list2 = (List<?>) item2;
+        for ( int i = 0; i < Math.max( list1.size(), list2.size() ); i++ )
+        {
+            Object left = i < list1.size() ? list1.get( i ) : null;
+            Object right = i < list2.size() ? list2.get( i ) : null;
+            int result = compareItems( left, right );
+            if ( result != 0 )
+                return result;
+        }
+
+        return 0;
+    }
+}
@@ -15,23 +15,122 @@
  */
 package org.fedoraproject.xmvn.resolver.impl;
 
-import java.io.File;
+import java.io.Closeable;
 import java.io.IOException;
-import java.io.RandomAccessFile;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.nio.Buffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.channels.FileLock;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import org.fedoraproject.xmvn.logging.impl.ConsoleLogger;
+import org.fedoraproject.xmvn.logging.impl.Logger;
 
 /**
- * Atomic integer object, which stores its value in a text file.
+ * Atomic integer object, which stores its value in a file.
+ * <p>
+ * The file holds a single 32-bit integer in little-endian byte order. It is mapped into memory, which is shared by all
+ * processes mapping the same file, so that the counter can be updated by atomic compare-and-set operations, without
+ * any locking or system calls. Atomic access to mapped memory relies on JDK internals and is used on Java 8 only, on
+ * other JVMs the counter falls back to using file locks.
  * 
  * @author Mikolaj Izdebski
  */
 class AtomicFileCounter
+    implements Closeable
 {
-    private static final int BUFSIZ = 64;
+    /**
+     * Size of counter file, in bytes.
+     */
+    static final int SIZE = 4;
+
+    private static final boolean SWAP_BYTES = ByteOrder.nativeOrder() != ByteOrder.LITTLE_ENDIAN;
+
+    private static final MethodHandle COMPARE_AND_SWAP;
+
+    private static final MethodHandle GET_VOLATILE;
+
+    private static final MethodHandle PUT_VOLATILE;
+
+    private static final Field ADDRESS_FIELD;
+
+    private static final Logger LOGGER = new ConsoleLogger();
+
+    static
+    {
+        MethodHandle compareAndSwap = null;
+        MethodHandle getVolatile = null;
+        MethodHandle putVolatile = null;
+        Field addressField = null;
+
+        String javaVersion = System.getProperty( "java.specification.version" );
+        if ( !"1.8".equals( javaVersion ) )
+        {
+            // Newer JVMs print illegal reflective access warnings when JDK internals are accessed
+            LOGGER.debug( "Atomic access to mapped memory is not used on Java {}, file counters will use file locks",
+                          javaVersion );
+        }
+        else
+        {
+            try
+            {
+                // Unsafe is looked up reflectively, so that there is no compile-time dependency on JDK internals
+                Class<?> unsafeClass = Class.forName( "sun.misc.Unsafe" );
+                Field unsafeField = unsafeClass.getDeclaredField( "theUnsafe" );
+                unsafeField.setAccessible( true );
+                Object unsafe = unsafeField.get( null );
+
+                MethodHandles.Lookup lookup = MethodHandles.lookup();
+                compareAndSwap =
+                    lookup.findVirtual( unsafeClass, "compareAndSwapInt",
+                                        MethodType.methodType( boolean.class, Object.class, long.class, int.class,
+                                                               int.class ) ).bindTo( unsafe );
+                getVolatile =
+                    lookup.findVirtual( unsafeClass, "getIntVolatile",
+                                        MethodType.methodType( int.class, Object.class, long.class ) ).bindTo( unsafe );
+                putVolatile =
+                    lookup.findVirtual( unsafeClass, "putIntVolatile",
+                                        MethodType.methodType( void.class, Object.class, long.class,
+                                                               int.class ) ).bindTo( unsafe );
+
+                addressField = Buffer.class.getDeclaredField( "address" );
+                addressField.setAccessible( true );
+            }
+            catch ( ReflectiveOperationException | RuntimeException e )
+            {
+                LOGGER.debug( "Atomic access to mapped memory is not available, file counters will use file locks: {}",
+                              e );
+                compareAndSwap = null;
+            }
+        }
+
+        COMPARE_AND_SWAP = compareAndSwap;
+        GET_VOLATILE = getVolatile;
+        PUT_VOLATILE = putVolatile;
+        ADDRESS_FIELD = compareAndSwap != null ? addressField : null;
+    }
+
+    /**
+     * Channel used for locking the counter file, or {@code null} if atomic memory access is used.
+     */
+    private final FileChannel channel;
 
-    private final byte[] buffer = new byte[BUFSIZ];
+    /**
+     * Mapping of counter file. Reference to the buffer must be kept as long as the counter is used, as the file is
+     * unmapped when the buffer is garbage-collected.
+     */
+    private final MappedByteBuffer buffer;
 
-    private final RandomAccessFile file;
+    /**
+     * Memory address of counter value, or {@code 0} if atomic memory access is not available.
+     */
+    private final long address;
 
     /**
      * Create an instance of counter.
@@ -40,16 +139,50 @@ class AtomicFileCounter
      * @throws IOException
      */
     public AtomicFileCounter( String path )
+    {
+        this( path, true );
+    }
+
+    /**
+     * Create an instance of counter, optionally forcing use of file locks even if atomic access to mapped memory is
+     * available.
+     * 
+     * @param path path to the backing file
+     * @param atomic whether atomic access to mapped memory should be used if it is available
+     */
+    AtomicFileCounter( String path, boolean atomic )
     {
         try
         {
-            file = new RandomAccessFile( new File( path ), "rw" );
+            FileChannel fileChannel = FileChannel.open( Paths.get( path ), StandardOpenOption.CREATE,
+                                                        StandardOpenOption.READ, StandardOpenOption.WRITE );
+            try
+            {
+                buffer = fileChannel.map( FileChannel.MapMode.READ_WRITE, 0, SIZE );
+                buffer.order( ByteOrder.LITTLE_ENDIAN );
+                address = atomic && ADDRESS_FIELD != null ? ADDRESS_FIELD.getLong( buffer ) : 0;
+            }
+            catch ( IOException | IllegalAccessException e )
+            {
+                fileChannel.close();
+                throw e;
+            }
+
+            // Mapping stays valid after the channel is closed, which is only needed for locking
+            if ( address != 0 )
+            {
+                fileChannel.close();
+                channel = null;
+            }
+            else
+            {
+                channel = fileChannel;
+            }
         }
-        catch ( IOException e )
+        catch ( IOException | IllegalAccessException e )
         {
             throw new RuntimeException( e );
         }
-
     }
 
     /**
@@ -66,30 +199,62 @@ class AtomicFileCounter
         setValue( value );
     }
 
-    private FileLock lock()
-        throws IOException
+    /**
+     * Check whether counters use atomic access to mapped memory rather than file locks.
+     * 
+     * @return {@code true} if atomic access to mapped memory is available
+     */
+    static boolean isAtomicAccessAvailable()
     {
-        return file.getChannel().lock();
+        return ADDRESS_FIELD != null;
     }
 
-    private int readValue()
-        throws IOException
+    private static int toFileOrder( int value )
+    {
+        return SWAP_BYTES ? Integer.reverseBytes( value ) : value;
+    }
+
+    private int load()
+    {
+        try
+        {
+            return toFileOrder( (int) GET_VOLATILE.invokeExact( (Object) null, address ) );
+        }
+        catch ( Throwable e )
+        {
+            throw new RuntimeException( e );
+        }
+    }
+
+    private void store( int value )
+    {
+        try
+        {
+            PUT_VOLATILE.invokeExact( (Object) null, address, toFileOrder( value ) );
+        }
+        catch ( Throwable e )
+        {
+            throw new RuntimeException( e );
+        }
+    }
+
+    private boolean compareAndSet( int expected, int value )
     {
-        file.seek( 0 );
-        long length = file.length();
-        if ( length > BUFSIZ )
-            throw new IOException( "Semaphore file is too large" );
-        file.readFully( buffer, 0, (int) length );
-        String text = new String( buffer, 0, (int) length, "US-ASCII" );
-        return Integer.parseInt( text.trim().trim() );
+        try
+        {
+            return (boolean) COMPARE_AND_SWAP.invokeExact( (Object) null, address, toFileOrder( expected ),
+                                                           toFileOrder( value ) );
+        }
+        catch ( Throwable e )
+        {
+            throw new RuntimeException( e );
+        }
     }
 
-    private void writeValue( int value )
+    private FileLock lock()
         throws IOException
     {
-        file.seek( 0 );
-        file.setLength( 0 );
-        file.write( String.format( "%d%n", value ).getBytes( "US-ASCII" ) );
+        return channel.lock();
     }
 
     /**
@@ -99,11 +264,21 @@ class AtomicFileCounter
      */
     public int tryDecrement()
     {
+        if ( address != 0 )
+        {
+            while ( true )
+            {
+                int value = load();
+                if ( value <= 0 || compareAndSet( value, value - 1 ) )
+                    return value;
+            }
+        }
+
         try ( FileLock lock = lock() )
         {
-            int value = readValue();
+            int value = buffer.getInt( 0 );
             if ( value > 0 )
-                writeValue( value - 1 );
+                buffer.putInt( 0, value - 1 );
             return value;
         }
         catch ( IOException e )
@@ -119,9 +294,12 @@ class AtomicFileCounter
      */
     public int getValue()
     {
+        if ( address != 0 )
+            return load();
+
         try ( FileLock lock = lock() )
         {
-            return readValue();
+            return buffer.getInt( 0 );
         }
         catch ( IOException e )
         {
@@ -136,13 +314,30 @@ class AtomicFileCounter
      */
     public void setValue( int value )
     {
+        if ( address != 0 )
+        {
+            store( value );
+            return;
+        }
+
         try ( FileLock lock = lock() )
         {
-            writeValue( value );
+            buffer.putInt( 0, value );
         }
         catch ( IOException e )
         {
             throw new RuntimeException( e );
         }
     }
+
+    /**
+     * Release file channel used for locking the counter file, if any. The counter can't be used after it is closed.
+     */
+    @Override
+    public void close()
+        throws IOException
+    {
+        if ( channel != null )
+            channel.close();
+    }
 }
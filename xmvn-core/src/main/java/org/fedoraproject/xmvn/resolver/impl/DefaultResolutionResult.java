@@ -16,6 +16,8 @@
 package org.fedoraproject.xmvn.resolver.impl;
 
 import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
 
 import org.fedoraproject.xmvn.resolver.ResolutionResult;
 
@@ -33,6 +35,8 @@ class DefaultResolutionResult
 
     private String namespace;
 
+    private List<String> availableVersions = Collections.emptyList();
+
     public DefaultResolutionResult()
     {
         this( null );
@@ -87,4 +91,15 @@ class DefaultResolutionResult
     {
         this.namespace = namespace;
     }
+
+    @Override
+    public List<String> getAvailableVersions()
+    {
+        return availableVersions;
+    }
+
+    public void setAvailableVersions( List<String> availableVersions )
+    {
+        this.availableVersions = availableVersions;
+    }
 }
@@ -16,9 +16,19 @@
 package org.fedoraproject.xmvn.resolver.impl;
 
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.codehaus.plexus.component.annotations.Component;
 import org.codehaus.plexus.component.annotations.Requirement;
@@ -63,6 +73,16 @@ public class DefaultResolver
 
     private MetadataResult metadataResult;
 
+    /**
+     * Metadata shared by all resolver instances within the JVM, keyed by metadata repositories and duplicate handling.
+     * Metadata is shared only if system property {@code xmvn.resolver.shareMetadata} is set to {@code true}, which is
+     * useful when the same JVM runs many builds one after another. Shared metadata is kept until
+     * {@link #releaseSharedResources()} is called.
+     */
+    private static final Map<List<Object>, MetadataResult> SHARED_METADATA = new ConcurrentHashMap<>();
+
+    private final boolean shareMetadata = Boolean.getBoolean( "xmvn.resolver.shareMetadata" );
+
     private static final RpmDb RPMDB = new RpmDb();
 
     private final Resolver localRepoResolver;
@@ -73,8 +93,25 @@ public class DefaultResolver
 
     private MockAgent mockAgent;
 
+    /**
+     * Bisection counters shared by all resolver instances within the JVM, keyed by counter file path, so that builds
+     * ran one after another in the same JVM don't map the same counter file again.
+     */
+    private static final Map<String, AtomicFileCounter> BISECT_COUNTERS = new ConcurrentHashMap<>();
+
     private final AtomicFileCounter bisectCounter;
 
+    /**
+     * Coordinates of artifacts which are to be resolved from bisection repository, or {@code null} if artifacts are
+     * not selected explicitly.
+     */
+    private final Set<String> bisectArtifacts;
+
+    /**
+     * File to which coordinates of all requested artifacts are appended, or {@code null} if requests are not recorded.
+     */
+    private final Path bisectRecord;
+
     public DefaultResolver( ServiceLocator locator )
     {
         this();
@@ -93,15 +130,157 @@ public class DefaultResolver
 
         String bisectCounterPath = System.getProperty( "xmvn.bisect.counter" );
         bisectCounter = ( bisectCounterPath == null || bisectCounterPath.isEmpty() ) ? null
-                        : new AtomicFileCounter( bisectCounterPath );
+                        : BISECT_COUNTERS.computeIfAbsent( bisectCounterPath, AtomicFileCounter::new );
+
+        String bisectArtifactsPath = System.getProperty( "xmvn.bisect.artifacts" );
+        bisectArtifacts = ( bisectArtifactsPath == null || bisectArtifactsPath.isEmpty() ) ? null
+                        : readBisectArtifacts( Paths.get( bisectArtifactsPath ) );
+
+        String bisectRecordPath = System.getProperty( "xmvn.bisect.record" );
+        bisectRecord = ( bisectRecordPath == null || bisectRecordPath.isEmpty() ) ? null
+                        : Paths.get( bisectRecordPath );
+    }
+
+    private static Set<String> readBisectArtifacts( Path path )
+    {
+        try
+        {
+            return new HashSet<>( Files.readAllLines( path ) );
+        }
+        catch ( IOException e )
+        {
+            throw new RuntimeException( e );
+        }
+    }
+
+    /**
+     * Append artifact coordinates to bisection record. Each record is written with a single append, so that records
+     * of concurrent resolutions, possibly from different processes, don't interleave.
+     */
+    private void recordBisectArtifact( Artifact artifact )
+    {
+        try
+        {
+            Files.write( bisectRecord, Collections.singleton( artifact.toString() ), StandardOpenOption.CREATE,
+                         StandardOpenOption.APPEND );
+        }
+        catch ( IOException e )
+        {
+            throw new RuntimeException( e );
+        }
+    }
+
+    private synchronized MetadataResult getMetadataResult()
+    {
+        if ( metadataRequest == null )
+        {
+            ResolverSettings settings = configurator.getConfiguration().getResolverSettings();
+            metadataRequest = new MetadataRequest( settings.getMetadataRepositories() );
+            metadataRequest.setIgnoreDuplicates( settings.isIgnoreDuplicateMetadata() );
+        }
+        if ( metadataResult == null && shareMetadata )
+        {
+            metadataResult =
+                SHARED_METADATA.computeIfAbsent( getSharedMetadataKey(),
+                                                 key -> metadataResolver.resolveMetadata( metadataRequest ) );
+        }
+        if ( metadataResult == null )
+        {
+            metadataResult = metadataResolver.resolveMetadata( metadataRequest );
+        }
+
+        return metadataResult;
+    }
+
+    private List<Object> getSharedMetadataKey()
+    {
+        return Arrays.asList( metadataRequest.getMetadataRepositories(), metadataRequest.isIgnoreDuplicates() );
+    }
+
+    /**
+     * Release metadata and bisection counters shared by resolver instances within the JVM. Should be called when no
+     * more builds are going to be ran in the JVM.
+     * 
+     * @throws IOException if bisection counter could not be closed
+     */
+    public static void releaseSharedResources()
+        throws IOException
+    {
+        SHARED_METADATA.clear();
+
+        List<AtomicFileCounter> counters = new ArrayList<>( BISECT_COUNTERS.values() );
+        BISECT_COUNTERS.clear();
+        for ( AtomicFileCounter counter : counters )
+            counter.close();
+    }
+
+    private synchronized MetadataResult reloadMetadataResult()
+    {
+        if ( shareMetadata && metadataRequest != null )
+            SHARED_METADATA.remove( getSharedMetadataKey() );
+        metadataResult = null;
+        return getMetadataResult();
+    }
+
+    private synchronized MockAgent getMockAgent()
+    {
+        if ( mockAgent == null )
+        {
+            mockAgent = new MockAgent( logger );
+        }
+
+        return mockAgent;
+    }
+
+    /**
+     * Load artifact metadata in advance, so that it is already available when the first artifact is resolved. Calling
+     * this method is never required, but it allows metadata to be loaded in background, while the caller is still
+     * doing other work. Concurrent resolution requests wait until loading is finished.
+     */
+    public void warmUp()
+    {
+        getMetadataResult();
+    }
+
+    private static boolean isVersionRange( String version )
+    {
+        return version.startsWith( "[" ) || version.startsWith( "(" );
+    }
+
+    /**
+     * If requested artifact version is a version range then select the highest compat version within that range. If
+     * there is no such version, or if plain version was requested, then the artifact is returned unchanged.
+     */
+    private static Artifact selectVersion( MetadataResult metadataResult, Artifact artifact )
+    {
+        if ( !isVersionRange( artifact.getVersion() ) )
+            return artifact;
+
+        String compatVersion = metadataResult.findCompatVersion( artifact, artifact.getVersion() );
+        return compatVersion != null ? artifact.setVersion( compatVersion ) : artifact;
+    }
+
+    private static List<String> getAvailableVersions( MetadataResult metadataResult, Artifact artifact )
+    {
+        List<String> versions = new ArrayList<>( metadataResult.getCompatVersions( artifact ) );
+        if ( metadataResult.getMetadataFor( artifact.setVersion( Artifact.DEFAULT_VERSION ) ) != null )
+            versions.add( Artifact.DEFAULT_VERSION );
+
+        return versions;
     }
 
     @Override
     public ResolutionResult resolve( ResolutionRequest request )
     {
+        if ( bisectRecord != null )
+            recordBisectArtifact( request.getArtifact() );
+
         if ( bisectCounter != null && bisectCounter.tryDecrement() > 0 )
             return new DefaultResolutionResult();
 
+        if ( bisectArtifacts != null && bisectArtifacts.contains( request.getArtifact().toString() ) )
+            return new DefaultResolutionResult();
+
         Properties properties = new Properties();
         properties.putAll( System.getProperties() );
 
@@ -112,22 +291,14 @@ public class DefaultResolver
         Artifact artifact = request.getArtifact();
         logger.debug( "Trying to resolve artifact {}", artifact );
 
-        if ( metadataRequest == null )
-        {
-            ResolverSettings settings = configurator.getConfiguration().getResolverSettings();
-            metadataRequest = new MetadataRequest( settings.getMetadataRepositories() );
-            metadataRequest.setIgnoreDuplicates( settings.isIgnoreDuplicateMetadata() );
-        }
-        if ( metadataResult == null )
-        {
-            metadataResult = metadataResolver.resolveMetadata( metadataRequest );
-        }
-        ArtifactMetadata metadata = metadataResult.getMetadataFor( artifact );
+        MetadataResult currentMetadata = getMetadataResult();
+        artifact = selectVersion( currentMetadata, artifact );
+        ArtifactMetadata metadata = currentMetadata.getMetadataFor( artifact );
 
         String compatVersion;
         if ( metadata == null )
         {
-            metadata = metadataResult.getMetadataFor( artifact.setVersion( Artifact.DEFAULT_VERSION ) );
+            metadata = currentMetadata.getMetadataFor( artifact.setVersion( Artifact.DEFAULT_VERSION ) );
             compatVersion = null;
         }
         else
@@ -135,19 +306,15 @@ public class DefaultResolver
             compatVersion = artifact.getVersion();
         }
 
-        if ( mockAgent == null )
+        if ( metadata == null && getMockAgent().tryInstallArtifact( artifact ) )
         {
-            mockAgent = new MockAgent( logger );
-        }
-
-        if ( metadata == null && mockAgent.tryInstallArtifact( artifact ) )
-        {
-            metadataResult = metadataResolver.resolveMetadata( metadataRequest );
-            metadata = metadataResult.getMetadataFor( artifact );
+            currentMetadata = reloadMetadataResult();
+            artifact = selectVersion( currentMetadata, artifact );
+            metadata = currentMetadata.getMetadataFor( artifact );
 
             if ( metadata == null )
             {
-                metadata = metadataResult.getMetadataFor( artifact.setVersion( Artifact.DEFAULT_VERSION ) );
+                metadata = currentMetadata.getMetadataFor( artifact.setVersion( Artifact.DEFAULT_VERSION ) );
                 compatVersion = null;
             }
             else
@@ -159,7 +326,10 @@ public class DefaultResolver
         if ( metadata == null )
         {
             logger.debug( "Failed to resolve artifact: {}", artifact );
-            return new DefaultResolutionResult();
+            DefaultResolutionResult result = new DefaultResolutionResult();
+            if ( request.isAvailableVersionsNeeded() )
+                result.setAvailableVersions( getAvailableVersions( currentMetadata, artifact ) );
+            return result;
         }
 
         properties.putAll( metadata.getProperties() );
@@ -201,6 +371,8 @@ public class DefaultResolver
         result.setCompatVersion( compatVersion );
         if ( request.isProviderNeeded() )
             result.setProvider( RPMDB.lookupPath( artifactPath ) );
+        if ( request.isAvailableVersionsNeeded() )
+            result.setAvailableVersions( getAvailableVersions( currentMetadata, artifact ) );
 
         logger.debug( "Artifact {} was resolved to {}", artifact, artifactPath );
         return result;
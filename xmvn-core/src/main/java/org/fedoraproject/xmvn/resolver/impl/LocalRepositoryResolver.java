@@ -18,6 +18,7 @@ package org.fedoraproject.xmvn.resolver.impl;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Collections;
 
 import org.fedoraproject.xmvn.artifact.Artifact;
 import org.fedoraproject.xmvn.resolver.ResolutionRequest;
@@ -74,6 +75,8 @@ class LocalRepositoryResolver
         {
             DefaultResolutionResult result = new DefaultResolutionResult( artifactPath );
             result.setCompatVersion( artifact.getVersion() );
+            if ( request.isAvailableVersionsNeeded() )
+                result.setAvailableVersions( Collections.singletonList( artifact.getVersion() ) );
             return result;
         }
 
@@ -17,10 +17,12 @@ package org.fedoraproject.xmvn.deployer;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.Reader;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -33,6 +35,9 @@ import org.custommonkey.xmlunit.XMLUnit;
 import org.junit.Test;
 
 import org.fedoraproject.xmvn.artifact.DefaultArtifact;
+import org.fedoraproject.xmvn.metadata.ArtifactMetadata;
+import org.fedoraproject.xmvn.metadata.PackageMetadata;
+import org.fedoraproject.xmvn.metadata.io.stax.MetadataStaxReader;
 import org.fedoraproject.xmvn.test.AbstractTest;
 
 /**
@@ -126,6 +131,46 @@ public class BasicDeployerTest
             "</metadata>\n", new String( Files.readAllBytes( plan ) ) );
     }
 
+    @Test
+    public void testAppendToExistingPlan()
+        throws Exception
+    {
+        Deployer deployer = getService( Deployer.class );
+        Path plan = Files.createTempDirectory( "xmvn-test" ).resolve( "plan.xml" );
+        try ( BufferedWriter bw = Files.newBufferedWriter( plan ) )
+        {
+            bw.write( "<metadata xmlns=\"http://fedorahosted.org/xmvn/METADATA/3.0.0\"><artifacts><artifact>"
+                + "<groupId>g0</groupId><artifactId>a0</artifactId><version>v0</version><path>/dev/null</path>"
+                + "</artifact></artifacts></metadata>" );
+        }
+
+        for ( int i = 1; i <= 50; i++ )
+        {
+            DeploymentRequest req = new DeploymentRequest();
+            req.setPlanPath( plan );
+            req.setArtifact( new DefaultArtifact( "g" + i + ":a" + i + ":v" + i ).setPath( Paths.get( "/dev/null" ) ) );
+            req.addProperty( "description", "\u017C\u00F3\u0142\u0107 <&> " + i );
+            assertNull( deployer.deploy( req ).getException() );
+        }
+
+        PackageMetadata metadata;
+        try ( Reader reader = Files.newBufferedReader( plan ) )
+        {
+            metadata = new MetadataStaxReader().read( reader );
+        }
+
+        assertEquals( 51, metadata.getArtifacts().size() );
+        for ( int i = 0; i <= 50; i++ )
+        {
+            ArtifactMetadata am = metadata.getArtifacts().get( i );
+            assertEquals( "g" + i, am.getGroupId() );
+            assertEquals( "a" + i, am.getArtifactId() );
+            assertEquals( "v" + i, am.getVersion() );
+            if ( i > 0 )
+                assertEquals( "\u017C\u00F3\u0142\u0107 <&> " + i, am.getProperties().getProperty( "description" ) );
+        }
+    }
+
     @Test
     public void testReadError()
         throws Exception
@@ -0,0 +1,140 @@
+/*-
+ * Copyright (c) 2018 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fedoraproject.xmvn.deployer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import org.fedoraproject.xmvn.artifact.DefaultArtifact;
+import org.fedoraproject.xmvn.deployer.impl.DefaultDeployer;
+import org.fedoraproject.xmvn.metadata.ArtifactMetadata;
+import org.fedoraproject.xmvn.metadata.PackageMetadata;
+import org.fedoraproject.xmvn.metadata.io.stax.MetadataStaxReader;
+import org.fedoraproject.xmvn.test.AbstractTest;
+
+/**
+ * Stress test deploying artifacts to the same installation plan from multiple threads and processes at once.
+ * 
+ * @author Mikolaj Izdebski
+ */
+public class ConcurrentDeployerTest
+    extends AbstractTest
+{
+    private static final int THREADS = 8;
+
+    private static final int PROCESSES = 4;
+
+    private static final int ARTIFACTS = 50;
+
+    private static void deployArtifacts( Deployer deployer, Path plan, String writer )
+    {
+        for ( int i = 0; i < ARTIFACTS; i++ )
+        {
+            DeploymentRequest request = new DeploymentRequest();
+            request.setPlanPath( plan );
+            request.setArtifact( new DefaultArtifact( writer + ":artifact-" + i + ":1.0" ).setPath( Paths.get( "/dev/null" ) ) );
+            request.addProperty( "writer", writer );
+            request.addDependency( new DefaultArtifact( "dep:dep-" + i + ":1.0" ) );
+            DeploymentResult result = deployer.deploy( request );
+            if ( result.getException() != null )
+                throw new RuntimeException( result.getException() );
+        }
+    }
+
+    /**
+     * Entry point of child processes spawned by this test.
+     * 
+     * @param args path to installation plan and name of writer
+     */
+    public static void main( String[] args )
+    {
+        deployArtifacts( new DefaultDeployer(), Paths.get( args[0] ), args[1] );
+    }
+
+    @Test
+    public void testConcurrentDeployment()
+        throws Exception
+    {
+        Deployer deployer = getService( Deployer.class );
+        Path plan = Files.createTempDirectory( "xmvn-test" ).resolve( "plan.xml" );
+
+        String java = Paths.get( System.getProperty( "java.home" ), "bin", "java" ).toString();
+        List<Process> processes = new ArrayList<>();
+        for ( int i = 0; i < PROCESSES; i++ )
+        {
+            ProcessBuilder pb = new ProcessBuilder( java, "-cp", System.getProperty( "java.class.path" ),
+                                                    ConcurrentDeployerTest.class.getName(), plan.toString(),
+                                                    "process-" + i );
+            pb.redirectErrorStream( true );
+            pb.redirectOutput( new File( "/dev/null" ) );
+            pb.redirectInput( new File( "/dev/null" ) );
+            processes.add( pb.start() );
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool( THREADS );
+        CountDownLatch start = new CountDownLatch( 1 );
+        List<Future<?>> futures = new ArrayList<>();
+        for ( int i = 0; i < THREADS; i++ )
+        {
+            String writer = "thread-" + i;
+            futures.add( executor.submit( () -> {
+                start.await();
+                deployArtifacts( deployer, plan, writer );
+                return null;
+            } ) );
+        }
+        start.countDown();
+
+        for ( Future<?> future : futures )
+            assertNull( future.get() );
+        executor.shutdown();
+        for ( Process process : processes )
+            assertEquals( 0, process.waitFor() );
+
+        PackageMetadata metadata;
+        try ( InputStream stream = Files.newInputStream( plan ) )
+        {
+            metadata = new MetadataStaxReader().read( stream, true );
+        }
+
+        assertEquals( ( THREADS + PROCESSES ) * ARTIFACTS, metadata.getArtifacts().size() );
+
+        Set<String> seen = new HashSet<>();
+        for ( ArtifactMetadata am : metadata.getArtifacts() )
+        {
+            assertTrue( seen.add( am.getGroupId() + ":" + am.getArtifactId() ) );
+            assertEquals( am.getGroupId(), am.getProperties().getProperty( "writer" ) );
+            assertEquals( 1, am.getDependencies().size() );
+        }
+    }
+}
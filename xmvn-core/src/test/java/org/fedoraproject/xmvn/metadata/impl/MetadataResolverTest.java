@@ -23,6 +23,7 @@ import static org.junit.Assert.assertTrue;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.stream.Collectors;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -170,4 +171,95 @@ public class MetadataResolverTest
         assertNotNull( am );
         assertEquals( "/usr/share/java/plexus/ant-factory-1.0.jar", am.getPath() );
     }
+
+    private static List<String> getArtifactIds( List<ArtifactMetadata> metadataList )
+    {
+        return metadataList.stream().map( ArtifactMetadata::getArtifactId ).collect( Collectors.toList() );
+    }
+
+    /**
+     * Test if direct dependents are found, including ones depending on artifact alias.
+     * 
+     * @throws Exception
+     */
+    @Test
+    public void testDirectDependents()
+        throws Exception
+    {
+        List<String> pathList = Collections.singletonList( "src/test/resources/metadata-dependents.xml" );
+        MetadataResult result = metadataResolver.resolveMetadata( new MetadataRequest( pathList ) );
+
+        List<ArtifactMetadata> dependents = result.getDependents( "g", "lib", false );
+        assertEquals( Arrays.asList( "a", "d", "b" ), getArtifactIds( dependents ) );
+        assertEquals( "ns1", dependents.get( 2 ).getNamespace() );
+
+        assertEquals( Arrays.asList( "d" ), getArtifactIds( result.getDependents( "g", "c", false ) ) );
+        assertTrue( result.getDependents( "g", "d", false ).isEmpty() );
+        assertTrue( result.getDependents( "g", "nonexistent", true ).isEmpty() );
+    }
+
+    /**
+     * Test if transitive dependents are found, nearest first.
+     * 
+     * @throws Exception
+     */
+    @Test
+    public void testTransitiveDependents()
+        throws Exception
+    {
+        List<String> pathList = Collections.singletonList( "src/test/resources/metadata-dependents.xml" );
+        MetadataResult result = metadataResolver.resolveMetadata( new MetadataRequest( pathList ) );
+
+        assertEquals( Arrays.asList( "a", "d", "b", "c", "f" ),
+                      getArtifactIds( result.getDependents( "g", "lib", true ) ) );
+        assertEquals( Arrays.asList( "f" ), getArtifactIds( result.getDependents( "g", "b", true ) ) );
+    }
+
+    /**
+     * Test if compat versions are sorted in Maven version order.
+     * 
+     * @throws Exception
+     */
+    @Test
+    public void testCompatVersions()
+        throws Exception
+    {
+        List<String> pathList = Collections.singletonList( "src/test/resources/metadata-compat.xml" );
+        MetadataResult result = metadataResolver.resolveMetadata( new MetadataRequest( pathList ) );
+
+        assertEquals( Arrays.asList( "1", "1.2", "1.10", "2.0-beta-1" ),
+                      result.getCompatVersions( new DefaultArtifact( "g:lib:42" ) ) );
+        assertTrue( result.getCompatVersions( new DefaultArtifact( "g:other:SYSTEM" ) ).isEmpty() );
+        assertTrue( result.getCompatVersions( new DefaultArtifact( "g:nonexistent:1.0" ) ).isEmpty() );
+    }
+
+    /**
+     * Test if compat versions matching version ranges and nearest compat versions are found.
+     * 
+     * @throws Exception
+     */
+    @Test
+    public void testFindCompatVersion()
+        throws Exception
+    {
+        List<String> pathList = Collections.singletonList( "src/test/resources/metadata-compat.xml" );
+        MetadataResult result = metadataResolver.resolveMetadata( new MetadataRequest( pathList ) );
+        Artifact artifact = new DefaultArtifact( "g:lib:SYSTEM" );
+
+        assertEquals( "1.10", result.findCompatVersion( artifact, "[1.0,2.0-alpha-1)" ) );
+        assertEquals( "2.0-beta-1", result.findCompatVersion( artifact, "[1.0,2.0)" ) );
+        assertEquals( "1.2", result.findCompatVersion( artifact, "(,1.10)" ) );
+        assertEquals( "1.10", result.findCompatVersion( artifact, "[1.10]" ) );
+        assertEquals( "1.2", result.findCompatVersion( artifact, "[1.0.0,1.1),[1.2,1.3)" ) );
+        assertEquals( "1", result.findCompatVersion( artifact, "[0.1,1.0]" ) );
+        assertNull( result.findCompatVersion( artifact, "(1.0,1.2)" ) );
+        assertNull( result.findCompatVersion( artifact, "[3.0,)" ) );
+        assertNull( result.findCompatVersion( artifact, "[1.0,2.0" ) );
+
+        assertEquals( "1.2", result.findCompatVersion( artifact, "1.2" ) );
+        assertEquals( "1.2", result.findCompatVersion( artifact, "1.5" ) );
+        assertEquals( "2.0-beta-1", result.findCompatVersion( artifact, "3" ) );
+        assertEquals( "1", result.findCompatVersion( artifact, "0.9" ) );
+        assertNull( result.findCompatVersion( new DefaultArtifact( "g:other:SYSTEM" ), "3.0" ) );
+    }
 }
@@ -15,6 +15,7 @@
  */
 package org.fedoraproject.xmvn.resolver;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
@@ -23,11 +24,13 @@ import static org.junit.Assert.assertTrue;
 import java.io.StringReader;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.Properties;
 
 import org.custommonkey.xmlunit.XMLAssert;
 import org.custommonkey.xmlunit.XMLUnit;
 import org.easymock.EasyMock;
+import org.junit.After;
 import org.junit.Test;
 
 import org.fedoraproject.xmvn.artifact.Artifact;
@@ -51,6 +54,16 @@ import org.fedoraproject.xmvn.test.AbstractTest;
 public class BasicResolverTest
     extends AbstractTest
 {
+    @After
+    public void clearSharedMetadata()
+        throws Exception
+    {
+        System.clearProperty( "xmvn.resolver.shareMetadata" );
+        System.clearProperty( "xmvn.resolver.requestArtifactCmd" );
+
+        DefaultResolver.releaseSharedResources();
+    }
+
     /**
      * Test if Plexus can load resolver component.
      * 
@@ -126,6 +139,86 @@ public class BasicResolverTest
         EasyMock.verify( mockMdResult, mockMdResolver, mockServiceLocator );
     }
 
+    @Test
+    public void testResolveVersionRange()
+        throws Exception
+    {
+        Artifact artifact = new DefaultArtifact( "gid", "aid", "ext", "cla", "[1.0,2.0)" );
+        Artifact compatArtifact = artifact.setVersion( "1.5" );
+        ArtifactMetadata md = new ArtifactMetadata();
+        md.setPath( "/foo/bar" );
+
+        MetadataResult mockMdResult = EasyMock.createMock( MetadataResult.class );
+        MetadataResolver mockMdResolver = EasyMock.createMock( MetadataResolver.class );
+        ServiceLocator mockServiceLocator = EasyMock.createMock( ServiceLocator.class );
+        EasyMock.expect( mockServiceLocator.getService( Configurator.class ) ).andReturn( getService( Configurator.class ) );
+        EasyMock.expect( mockServiceLocator.getService( MetadataResolver.class ) ).andReturn( mockMdResolver );
+        EasyMock.expect( mockMdResolver.resolveMetadata( EasyMock.anyObject( MetadataRequest.class ) ) ).andReturn( mockMdResult );
+        EasyMock.expect( mockMdResult.findCompatVersion( artifact, "[1.0,2.0)" ) ).andReturn( "1.5" );
+        EasyMock.expect( mockMdResult.getMetadataFor( compatArtifact ) ).andReturn( md );
+        EasyMock.expect( mockMdResult.getCompatVersions( compatArtifact ) ).andReturn( Arrays.asList( "1.2", "1.5", "2.1" ) );
+        EasyMock.expect( mockMdResult.getMetadataFor( artifact.setVersion( Artifact.DEFAULT_VERSION ) ) ).andReturn( null );
+        EasyMock.replay( mockMdResult, mockMdResolver, mockServiceLocator );
+
+        Resolver resolver = new DefaultResolver( mockServiceLocator );
+        ResolutionRequest request = new ResolutionRequest( artifact );
+        request.setAvailableVersionsNeeded( true );
+        ResolutionResult result = resolver.resolve( request );
+        assertNotNull( result );
+        assertNotNull( result.getArtifactPath() );
+        assertEquals( "1.5", result.getCompatVersion() );
+        assertEquals( Arrays.asList( "1.2", "1.5", "2.1" ), result.getAvailableVersions() );
+
+        EasyMock.verify( mockMdResult, mockMdResolver, mockServiceLocator );
+    }
+
+    /**
+     * Test if metadata loaded during warm-up is reused by resolution requests, from multiple threads.
+     * 
+     * @throws Exception
+     */
+    @Test
+    public void testWarmUp()
+        throws Exception
+    {
+        Artifact artifact = new DefaultArtifact( "gid", "aid", "ext", "cla", "ver" );
+        ArtifactMetadata md = new ArtifactMetadata();
+        md.setPath( "/foo/bar" );
+
+        MetadataResult mockMdResult = EasyMock.createMock( MetadataResult.class );
+        MetadataResolver mockMdResolver = EasyMock.createMock( MetadataResolver.class );
+        ServiceLocator mockServiceLocator = EasyMock.createMock( ServiceLocator.class );
+        EasyMock.expect( mockServiceLocator.getService( Configurator.class ) ).andReturn( getService( Configurator.class ) );
+        EasyMock.expect( mockServiceLocator.getService( MetadataResolver.class ) ).andReturn( mockMdResolver );
+        EasyMock.expect( mockMdResolver.resolveMetadata( EasyMock.anyObject( MetadataRequest.class ) ) ).andReturn( mockMdResult );
+        EasyMock.expect( mockMdResult.getMetadataFor( artifact ) ).andReturn( md ).times( 4 );
+        EasyMock.makeThreadSafe( mockMdResult, true );
+        EasyMock.replay( mockMdResult, mockMdResolver, mockServiceLocator );
+
+        DefaultResolver resolver = new DefaultResolver( mockServiceLocator );
+        Thread warmUpThread = new Thread( resolver::warmUp );
+        warmUpThread.start();
+
+        Thread[] threads = new Thread[4];
+        ResolutionResult[] results = new ResolutionResult[threads.length];
+        for ( int i = 0; i < threads.length; i++ )
+        {
+            int index = i;
+            threads[i] = new Thread( () -> results[index] = resolver.resolve( new ResolutionRequest( artifact ) ) );
+            threads[i].start();
+        }
+
+        warmUpThread.join();
+        for ( int i = 0; i < threads.length; i++ )
+        {
+            threads[i].join();
+            assertNotNull( results[i] );
+            assertNotNull( results[i].getArtifactPath() );
+        }
+
+        EasyMock.verify( mockMdResult, mockMdResolver, mockServiceLocator );
+    }
+
     @Test
     public void testResolveEmptyPom()
         throws Exception
@@ -272,4 +365,145 @@ public class BasicResolverTest
             System.setProperties( origProps );
         }
     }
+
+    private ServiceLocator createServiceLocator( MetadataResolver metadataResolver, int resolverCount )
+    {
+        ServiceLocator mockServiceLocator = EasyMock.createMock( ServiceLocator.class );
+        EasyMock.expect( mockServiceLocator.getService( Configurator.class ) ).andReturn( getService( Configurator.class ) ).times( resolverCount );
+        EasyMock.expect( mockServiceLocator.getService( MetadataResolver.class ) ).andReturn( metadataResolver ).times( resolverCount );
+        return mockServiceLocator;
+    }
+
+    /**
+     * Test if metadata is resolved only once when it is shared by resolver instances.
+     * 
+     * @throws Exception
+     */
+    @Test
+    public void testSharedMetadata()
+        throws Exception
+    {
+        System.setProperty( "xmvn.resolver.shareMetadata", "true" );
+
+        Artifact artifact = new DefaultArtifact( "gid", "aid", "ext", "cla", "ver" );
+        ArtifactMetadata md = new ArtifactMetadata();
+        md.setPath( "/foo/bar" );
+
+        MetadataResult mockMdResult = EasyMock.createMock( MetadataResult.class );
+        MetadataResolver mockMdResolver = EasyMock.createMock( MetadataResolver.class );
+        ServiceLocator mockServiceLocator = createServiceLocator( mockMdResolver, 2 );
+        EasyMock.expect( mockMdResolver.resolveMetadata( EasyMock.anyObject( MetadataRequest.class ) ) ).andReturn( mockMdResult );
+        EasyMock.expect( mockMdResult.getMetadataFor( artifact ) ).andReturn( md ).times( 2 );
+        EasyMock.replay( mockMdResult, mockMdResolver, mockServiceLocator );
+
+        for ( int i = 0; i < 2; i++ )
+        {
+            Resolver resolver = new DefaultResolver( mockServiceLocator );
+            ResolutionResult result = resolver.resolve( new ResolutionRequest( artifact ) );
+            assertNotNull( result.getArtifactPath() );
+        }
+
+        EasyMock.verify( mockMdResult, mockMdResolver, mockServiceLocator );
+    }
+
+    /**
+     * Test if metadata is resolved again after shared metadata is cleared.
+     * 
+     * @throws Exception
+     */
+    @Test
+    public void testSharedMetadataCleared()
+        throws Exception
+    {
+        System.setProperty( "xmvn.resolver.shareMetadata", "true" );
+
+        Artifact artifact = new DefaultArtifact( "gid", "aid", "ext", "cla", "ver" );
+        ArtifactMetadata md = new ArtifactMetadata();
+        md.setPath( "/foo/bar" );
+
+        MetadataResult mockMdResult = EasyMock.createMock( MetadataResult.class );
+        MetadataResolver mockMdResolver = EasyMock.createMock( MetadataResolver.class );
+        ServiceLocator mockServiceLocator = createServiceLocator( mockMdResolver, 2 );
+        EasyMock.expect( mockMdResolver.resolveMetadata( EasyMock.anyObject( MetadataRequest.class ) ) ).andReturn( mockMdResult ).times( 2 );
+        EasyMock.expect( mockMdResult.getMetadataFor( artifact ) ).andReturn( md ).times( 2 );
+        EasyMock.replay( mockMdResult, mockMdResolver, mockServiceLocator );
+
+        for ( int i = 0; i < 2; i++ )
+        {
+            Resolver resolver = new DefaultResolver( mockServiceLocator );
+            ResolutionResult result = resolver.resolve( new ResolutionRequest( artifact ) );
+            assertNotNull( result.getArtifactPath() );
+            DefaultResolver.releaseSharedResources();
+        }
+
+        EasyMock.verify( mockMdResult, mockMdResolver, mockServiceLocator );
+    }
+
+    /**
+     * Test if shared metadata is replaced when it is reloaded after artifact is installed by external command.
+     * 
+     * @throws Exception
+     */
+    @Test
+    public void testSharedMetadataReload()
+        throws Exception
+    {
+        System.setProperty( "xmvn.resolver.shareMetadata", "true" );
+        System.setProperty( "xmvn.resolver.requestArtifactCmd", "true" );
+
+        Artifact artifact = new DefaultArtifact( "gid", "aid", "ext", "cla", "ver" );
+        ArtifactMetadata md = new ArtifactMetadata();
+        md.setPath( "/foo/bar" );
+
+        MetadataResult mockOldMdResult = EasyMock.createMock( MetadataResult.class );
+        MetadataResult mockNewMdResult = EasyMock.createMock( MetadataResult.class );
+        MetadataResolver mockMdResolver = EasyMock.createMock( MetadataResolver.class );
+        ServiceLocator mockServiceLocator = createServiceLocator( mockMdResolver, 2 );
+        EasyMock.expect( mockMdResolver.resolveMetadata( EasyMock.anyObject( MetadataRequest.class ) ) ).andReturn( mockOldMdResult );
+        EasyMock.expect( mockMdResolver.resolveMetadata( EasyMock.anyObject( MetadataRequest.class ) ) ).andReturn( mockNewMdResult );
+        EasyMock.expect( mockOldMdResult.getMetadataFor( artifact ) ).andReturn( null );
+        EasyMock.expect( mockOldMdResult.getMetadataFor( artifact.setVersion( Artifact.DEFAULT_VERSION ) ) ).andReturn( null );
+        EasyMock.expect( mockNewMdResult.getMetadataFor( artifact ) ).andReturn( md ).times( 2 );
+        EasyMock.replay( mockOldMdResult, mockNewMdResult, mockMdResolver, mockServiceLocator );
+
+        // Artifact is missing in metadata loaded by the first resolver, which makes it reload metadata
+        for ( int i = 0; i < 2; i++ )
+        {
+            Resolver resolver = new DefaultResolver( mockServiceLocator );
+            ResolutionResult result = resolver.resolve( new ResolutionRequest( artifact ) );
+            assertNotNull( result.getArtifactPath() );
+        }
+
+        EasyMock.verify( mockOldMdResult, mockNewMdResult, mockMdResolver, mockServiceLocator );
+    }
+
+    /**
+     * Test if each resolver instance resolves metadata on its own when metadata sharing is not enabled.
+     * 
+     * @throws Exception
+     */
+    @Test
+    public void testMetadataNotShared()
+        throws Exception
+    {
+        Artifact artifact = new DefaultArtifact( "gid", "aid", "ext", "cla", "ver" );
+        ArtifactMetadata md = new ArtifactMetadata();
+        md.setPath( "/foo/bar" );
+
+        MetadataResult mockMdResult = EasyMock.createMock( MetadataResult.class );
+        MetadataResolver mockMdResolver = EasyMock.createMock( MetadataResolver.class );
+        ServiceLocator mockServiceLocator = createServiceLocator( mockMdResolver, 2 );
+        EasyMock.expect( mockMdResolver.resolveMetadata( EasyMock.anyObject( MetadataRequest.class ) ) ).andReturn( mockMdResult ).times( 2 );
+        EasyMock.expect( mockMdResult.getMetadataFor( artifact ) ).andReturn( md ).times( 2 );
+        EasyMock.replay( mockMdResult, mockMdResolver, mockServiceLocator );
+
+        for ( int i = 0; i < 2; i++ )
+        {
+            Resolver resolver = new DefaultResolver( mockServiceLocator );
+            ResolutionResult result = resolver.resolve( new ResolutionRequest( artifact ) );
+            assertNotNull( result.getArtifactPath() );
+        }
+
+        EasyMock.verify( mockMdResult, mockMdResolver, mockServiceLocator );
+    }
 }
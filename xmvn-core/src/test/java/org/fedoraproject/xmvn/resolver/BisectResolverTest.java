@@ -18,11 +18,16 @@ package org.fedoraproject.xmvn.resolver;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assume.assumeTrue;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.stream.Stream;
 
 import org.junit.After;
 import org.junit.Before;
@@ -33,6 +38,7 @@ import org.fedoraproject.xmvn.artifact.DefaultArtifact;
 import org.fedoraproject.xmvn.config.Configuration;
 import org.fedoraproject.xmvn.config.Configurator;
 import org.fedoraproject.xmvn.config.Repository;
+import org.fedoraproject.xmvn.resolver.impl.DefaultResolver;
 import org.fedoraproject.xmvn.test.AbstractTest;
 
 /**
@@ -41,6 +47,8 @@ import org.fedoraproject.xmvn.test.AbstractTest;
 public class BisectResolverTest
     extends AbstractTest
 {
+    private static final int BUILD_COUNT = 200;
+
     private Path counterPath;
 
     @Before
@@ -50,7 +58,7 @@ public class BisectResolverTest
         counterPath = Paths.get( "target/test-work/bisect-counter" );
         Files.createDirectories( counterPath.getParent() );
         System.setProperty( "xmvn.bisect.counter", counterPath.toString() );
-        Files.write( counterPath, Collections.singleton( "1000" ) );
+        Files.write( counterPath, ByteBuffer.allocate( 4 ).order( ByteOrder.LITTLE_ENDIAN ).putInt( 1000 ).array() );
     }
 
     @After
@@ -58,6 +66,19 @@ public class BisectResolverTest
         throws Exception
     {
         System.clearProperty( "xmvn.bisect.counter" );
+        System.clearProperty( "xmvn.bisect.artifacts" );
+        System.clearProperty( "xmvn.bisect.record" );
+        System.clearProperty( "xmvn.resolver.shareMetadata" );
+        DefaultResolver.releaseSharedResources();
+    }
+
+    private static long countOpenFiles()
+        throws Exception
+    {
+        try ( Stream<Path> fds = Files.list( Paths.get( "/proc/self/fd" ) ) )
+        {
+            return fds.count();
+        }
     }
 
     /**
@@ -85,6 +106,70 @@ public class BisectResolverTest
 
         assertNotNull( result );
         assertNull( result.getArtifactPath() );
-        assertEquals( "999", Files.readAllLines( counterPath ).iterator().next() );
+        assertEquals( 999, ByteBuffer.wrap( Files.readAllBytes( counterPath ) ).order( ByteOrder.LITTLE_ENDIAN ).getInt() );
+    }
+
+    /**
+     * Test bisection resolution over explicit set of artifacts, with recording of requested artifacts.
+     * 
+     * @throws Exception
+     */
+    @Test
+    public void testBisectResolverArtifactSet()
+        throws Exception
+    {
+        Files.write( counterPath, ByteBuffer.allocate( 4 ).order( ByteOrder.LITTLE_ENDIAN ).putInt( 0 ).array() );
+
+        Path artifactsPath = Paths.get( "target/test-work/bisect-artifacts" );
+        Files.write( artifactsPath, Collections.singleton( "foo:bar:jar:1.2" ) );
+        System.setProperty( "xmvn.bisect.artifacts", artifactsPath.toString() );
+
+        Path recordPath = Paths.get( "target/test-work/bisect-record" );
+        Files.deleteIfExists( recordPath );
+        System.setProperty( "xmvn.bisect.record", recordPath.toString() );
+
+        Resolver resolver = getService( Resolver.class );
+        ResolutionResult result = resolver.resolve( new ResolutionRequest( new DefaultArtifact( "foo:bar:1.2" ) ) );
+        assertNotNull( result );
+        assertNull( result.getArtifactPath() );
+
+        resolver.resolve( new ResolutionRequest( new DefaultArtifact( "foo:baz:pom:3.4" ) ) );
+
+        assertEquals( Arrays.asList( "foo:bar:jar:1.2", "foo:baz:pom:3.4" ), Files.readAllLines( recordPath ) );
+        assertEquals( 0, ByteBuffer.wrap( Files.readAllBytes( counterPath ) ).order( ByteOrder.LITTLE_ENDIAN ).getInt() );
+    }
+
+    /**
+     * Test if resolvers of many builds ran in the same JVM don't leave open files behind once shared resources are
+     * released.
+     * 
+     * @throws Exception
+     */
+    @Test
+    public void testManyBuildsInProcess()
+        throws Exception
+    {
+        assumeTrue( Files.isDirectory( Paths.get( "/proc/self/fd" ) ) );
+        System.setProperty( "xmvn.resolver.shareMetadata", "true" );
+
+        Configurator configurator = getService( Configurator.class );
+        Repository repository = new Repository();
+        repository.setId( "bisect" );
+        repository.setType( "flat" );
+        configurator.getConfiguration().addRepository( repository );
+
+        long openFiles = countOpenFiles();
+
+        for ( int i = 0; i < BUILD_COUNT; i++ )
+        {
+            Resolver resolver = new DefaultResolver( this::getService );
+            ResolutionResult result = resolver.resolve( new ResolutionRequest( new DefaultArtifact( "foo:bar:1.2" ) ) );
+            assertNotNull( result );
+        }
+
+        DefaultResolver.releaseSharedResources();
+        assertEquals( openFiles, countOpenFiles() );
+        assertEquals( 1000 - BUILD_COUNT,
+                      ByteBuffer.wrap( Files.readAllBytes( counterPath ) ).order( ByteOrder.LITTLE_ENDIAN ).getInt() );
     }
 }
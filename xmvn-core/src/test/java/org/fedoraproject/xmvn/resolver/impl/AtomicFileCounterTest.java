@@ -0,0 +1,196 @@
+/*-
+ * Copyright (c) 2018 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fedoraproject.xmvn.resolver.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Mikolaj Izdebski
+ */
+public class AtomicFileCounterTest
+{
+    private static final int INITIAL_VALUE = 10000;
+
+    private static final int COUNTER_COUNT = 200;
+
+    private Path counterPath;
+
+    @Before
+    public void setUp()
+        throws Exception
+    {
+        counterPath = Paths.get( "target/test-work/atomic-counter" );
+        Files.createDirectories( counterPath.getParent() );
+        Files.deleteIfExists( counterPath );
+    }
+
+    @Test
+    public void testFileFormat()
+        throws Exception
+    {
+        try ( AtomicFileCounter counter = new AtomicFileCounter( counterPath.toString(), 1000 ) )
+        {
+            assertEquals( 1000, counter.tryDecrement() );
+
+            byte[] content = Files.readAllBytes( counterPath );
+            assertEquals( AtomicFileCounter.SIZE, content.length );
+            assertEquals( 999, ByteBuffer.wrap( content ).order( ByteOrder.LITTLE_ENDIAN ).getInt() );
+
+            Files.write( counterPath, ByteBuffer.allocate( 4 ).order( ByteOrder.LITTLE_ENDIAN ).putInt( 42 ).array() );
+            assertEquals( 42, counter.getValue() );
+        }
+    }
+
+    private void checkConcurrentDecrement( boolean atomic )
+        throws Exception
+    {
+        new AtomicFileCounter( counterPath.toString(), INITIAL_VALUE ).close();
+
+        AtomicInteger successes = new AtomicInteger();
+        Thread[] threads = new Thread[8];
+        AtomicFileCounter[] counters = new AtomicFileCounter[threads.length];
+        for ( int i = 0; i < threads.length; i++ )
+        {
+            AtomicFileCounter counter = new AtomicFileCounter( counterPath.toString(), atomic );
+            counters[i] = counter;
+            threads[i] = new Thread( () -> {
+                while ( counter.tryDecrement() > 0 )
+                    successes.incrementAndGet();
+            } );
+            threads[i].start();
+        }
+
+        for ( Thread thread : threads )
+            thread.join();
+        for ( AtomicFileCounter counter : counters )
+            counter.close();
+
+        assertEquals( INITIAL_VALUE, successes.get() );
+        try ( AtomicFileCounter counter = new AtomicFileCounter( counterPath.toString() ) )
+        {
+            assertEquals( 0, counter.getValue() );
+        }
+    }
+
+    /**
+     * Test if concurrent decrements through different mappings of the same file are not lost.
+     * 
+     * @throws Exception
+     */
+    @Test
+    public void testConcurrentDecrement()
+        throws Exception
+    {
+        checkConcurrentDecrement( true );
+    }
+
+    /**
+     * Test counter which uses file locks, as when atomic access to mapped memory is not available.
+     * 
+     * @throws Exception
+     */
+    @Test
+    public void testFileLockFallback()
+        throws Exception
+    {
+        try ( AtomicFileCounter counter = new AtomicFileCounter( counterPath.toString(), false ) )
+        {
+            counter.setValue( 1 );
+            assertEquals( 1, counter.tryDecrement() );
+            assertEquals( 0, counter.tryDecrement() );
+            assertEquals( 0, counter.getValue() );
+        }
+
+        byte[] content = Files.readAllBytes( counterPath );
+        assertEquals( AtomicFileCounter.SIZE, content.length );
+        assertEquals( 0, ByteBuffer.wrap( content ).order( ByteOrder.LITTLE_ENDIAN ).getInt() );
+
+        checkConcurrentDecrement( false );
+    }
+
+    private static long countOpenFiles()
+        throws Exception
+    {
+        try ( Stream<Path> fds = Files.list( Paths.get( "/proc/self/fd" ) ) )
+        {
+            return fds.count();
+        }
+    }
+
+    /**
+     * Test if counters which use atomic access to mapped memory don't keep file descriptors open.
+     * 
+     * @throws Exception
+     */
+    @Test
+    public void testAtomicCounterHoldsNoFileDescriptor()
+        throws Exception
+    {
+        assumeTrue( AtomicFileCounter.isAtomicAccessAvailable() );
+        assumeTrue( Files.isDirectory( Paths.get( "/proc/self/fd" ) ) );
+
+        new AtomicFileCounter( counterPath.toString(), COUNTER_COUNT ).close();
+        long openFiles = countOpenFiles();
+
+        List<AtomicFileCounter> counters = new ArrayList<>();
+        for ( int i = 0; i < COUNTER_COUNT; i++ )
+            counters.add( new AtomicFileCounter( counterPath.toString() ) );
+        for ( AtomicFileCounter counter : counters )
+            counter.tryDecrement();
+
+        assertEquals( openFiles, countOpenFiles() );
+        assertEquals( 0, counters.get( 0 ).getValue() );
+    }
+
+    /**
+     * Test if closing counters which use file locks releases their file descriptors.
+     * 
+     * @throws Exception
+     */
+    @Test
+    public void testCloseReleasesFileDescriptor()
+        throws Exception
+    {
+        assumeTrue( Files.isDirectory( Paths.get( "/proc/self/fd" ) ) );
+
+        new AtomicFileCounter( counterPath.toString(), COUNTER_COUNT ).close();
+        long openFiles = countOpenFiles();
+
+        for ( int i = 0; i < COUNTER_COUNT; i++ )
+        {
+            try ( AtomicFileCounter counter = new AtomicFileCounter( counterPath.toString(), false ) )
+            {
+                counter.tryDecrement();
+            }
+        }
+
+        assertEquals( openFiles, countOpenFiles() );
+    }
+}
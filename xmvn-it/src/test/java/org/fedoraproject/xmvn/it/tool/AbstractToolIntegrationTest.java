@@ -17,8 +17,10 @@ package org.fedoraproject.xmvn.it.tool;
 
 import static org.junit.Assert.assertTrue;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.InputStream;
 import java.io.PrintStream;
 import java.lang.reflect.InvocationTargetException;
@@ -107,6 +109,19 @@ public abstract class AbstractToolIntegrationTest
 
     public int invokeTool( String tool, String... args )
         throws Exception
+    {
+        try ( InputStream stdin = new FileInputStream( "/dev/null" ) )
+        {
+            return invokeTool( stdin, tool, args );
+        }
+    }
+
+    /**
+     * Invoke tool with given standard input. Standard output is buffered, so that it reaches {@link #STDOUT} file
+     * before the tool exits only if the tool flushes it.
+     */
+    public int invokeTool( InputStream stdin, String tool, String... args )
+        throws Exception
     {
         Path jar = findToolJar( tool );
         Attributes mf = readManifest( jar );
@@ -127,8 +142,7 @@ public abstract class AbstractToolIntegrationTest
         System.setProperty( "xmvn.config.sandbox", "true" );
 
         ClassLoader parentClassLoader = ClassLoader.getSystemClassLoader().getParent();
-        try ( InputStream stdin = new FileInputStream( "/dev/null" );
-                        PrintStream stdout = new PrintStream( new File( STDOUT ) );
+        try ( PrintStream stdout = new PrintStream( new BufferedOutputStream( new FileOutputStream( STDOUT ) ) );
                         PrintStream stderr = new PrintStream( new File( STDERR ) );
                         URLClassLoader toolClassLoader = new URLClassLoader( classPath, parentClassLoader ) )
         {
@@ -19,10 +19,21 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import java.io.ByteArrayInputStream;
+import java.io.OutputStreamWriter;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import org.junit.Test;
@@ -35,6 +46,8 @@ import org.junit.Test;
 public class ResolverIntegrationTest
     extends AbstractToolIntegrationTest
 {
+    private static final long STREAM_TIMEOUT = TimeUnit.SECONDS.toMillis( 30 );
+
     @Test
     public void testResolveNone()
         throws Exception
@@ -67,4 +80,161 @@ public class ResolverIntegrationTest
         assertTrue( getStderr().anyMatch( s -> s.endsWith( "Unable to resolve artifact foobar:xyzzy:jar:SYSTEM" ) ) );
         assertFalse( getStdout().findAny().isPresent() );
     }
+
+    private static void assertResolvedToEmptyJar( String line )
+    {
+        String[] fields = line.split( "\t", -1 );
+        assertEquals( 3, fields.length );
+        assertTrue( Paths.get( fields[0] ).endsWith( "src/test/resources/empty.jar" ) );
+        assertEquals( "SYSTEM", fields[1] );
+        assertEquals( "", fields[2] );
+    }
+
+    @Test
+    public void testResolveStream()
+        throws Exception
+    {
+        String input = "junit:junit\n\n   \nfoobar:xyzzy\nxpp3:xpp3\n";
+        ByteArrayInputStream stdin = new ByteArrayInputStream( input.getBytes( StandardCharsets.UTF_8 ) );
+
+        assertEquals( 1, invokeTool( stdin, "xmvn-resolve", "--stream" ) );
+        assertTrue( getStderr().anyMatch( s -> s.endsWith( "Unable to resolve artifact foobar:xyzzy:jar:SYSTEM" ) ) );
+
+        // Blank lines are skipped, failed request results in empty line
+        List<String> out = getStdout().collect( Collectors.toList() );
+        assertEquals( 3, out.size() );
+        assertResolvedToEmptyJar( out.get( 0 ) );
+        assertEquals( "", out.get( 1 ) );
+        assertResolvedToEmptyJar( out.get( 2 ) );
+    }
+
+    private void waitForStdoutLines( int count )
+        throws Exception
+    {
+        Path stdout = getBaseDir().resolve( STDOUT );
+        long deadline = System.currentTimeMillis() + STREAM_TIMEOUT;
+        while ( !Files.exists( stdout ) || Files.readAllLines( stdout ).size() < count )
+        {
+            if ( System.currentTimeMillis() > deadline )
+                throw new AssertionError( "Result of request " + count + " was not flushed" );
+            Thread.sleep( 10 );
+        }
+    }
+
+    /**
+     * Test if each result is flushed as soon as it is resolved, before next request is read.
+     */
+    @Test
+    public void testResolveStreamFlush()
+        throws Exception
+    {
+        String[] requests = { "junit:junit", "foobar:xyzzy", "xpp3:xpp3" };
+
+        PipedOutputStream feed = new PipedOutputStream();
+        PipedInputStream stdin = new PipedInputStream( feed );
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try
+        {
+            Future<?> feeder = executor.submit( () -> {
+                try ( Writer writer = new OutputStreamWriter( feed, StandardCharsets.UTF_8 ) )
+                {
+                    for ( int i = 0; i < requests.length; i++ )
+                    {
+                        writer.write( requests[i] + "\n" );
+                        writer.flush();
+                        waitForStdoutLines( i + 1 );
+                    }
+                }
+                return null;
+            } );
+
+            assertEquals( 1, invokeTool( stdin, "xmvn-resolve", "--stream" ) );
+            feeder.get();
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+
+        List<String> out = getStdout().collect( Collectors.toList() );
+        assertEquals( 3, out.size() );
+        assertResolvedToEmptyJar( out.get( 0 ) );
+        assertEquals( "", out.get( 1 ) );
+        assertResolvedToEmptyJar( out.get( 2 ) );
+    }
+
+    /**
+     * Expected closure of {@code closure:a}, in breadth-first order. Dependency on {@code closure:e} is excluded on the
+     * nearest path, {@code other:x} is excluded in the subtree of {@code closure:g} only, optional
+     * {@code closure:j} is skipped, {@code closure:k} is found with the default version instead of the resolved
+     * version and POM-only {@code closure:o} is reached twice, but included once.
+     */
+    private static final List<String> CLOSURE_PATHS =
+        Arrays.asList( "a", "b", "c", "g", "k", "m", "n", "x", "h", "i", "l-2" ).stream() //
+              .map( a -> "/usr/share/java/closure/" + a + ".jar" ) //
+              .collect( Collectors.toList() );
+
+    @Test
+    public void testResolveClosure()
+        throws Exception
+    {
+        assertEquals( 0, invokeTool( "xmvn-resolve", "--closure", "closure:a" ) );
+        assertFalse( getStderr().findAny().isPresent() );
+        assertEquals( CLOSURE_PATHS, getStdout().collect( Collectors.toList() ) );
+    }
+
+    @Test
+    public void testResolveClosureClasspath()
+        throws Exception
+    {
+        assertEquals( 0, invokeTool( "xmvn-resolve", "--closure", "-c", "closure:a" ) );
+        assertFalse( getStderr().findAny().isPresent() );
+        assertEquals( Arrays.asList( String.join( ":", CLOSURE_PATHS ) ), getStdout().collect( Collectors.toList() ) );
+    }
+
+    @Test
+    public void testResolveClosureGraph()
+        throws Exception
+    {
+        assertEquals( 0, invokeTool( "xmvn-resolve", "--graph", "closure:a" ) );
+        assertFalse( getStderr().findAny().isPresent() );
+
+        List<String> expected = Arrays.asList( "closure:a:jar:SYSTEM /usr/share/java/closure/a.jar", //
+                                               "  closure:b:jar:SYSTEM", //
+                                               "  closure:c:jar:SYSTEM", //
+                                               "  closure:g:jar:SYSTEM", //
+                                               "  closure:k:jar:SYSTEM", //
+                                               "  closure:m:jar:SYSTEM", //
+                                               "  closure:n:jar:SYSTEM", //
+                                               "closure:b:jar:SYSTEM /usr/share/java/closure/b.jar", //
+                                               "closure:c:jar:SYSTEM /usr/share/java/closure/c.jar", //
+                                               "  closure:b:jar:SYSTEM", //
+                                               "  other:x:jar:SYSTEM", //
+                                               "closure:g:jar:SYSTEM /usr/share/java/closure/g.jar", //
+                                               "  closure:h:jar:SYSTEM", //
+                                               "closure:k:jar:SYSTEM /usr/share/java/closure/k.jar", //
+                                               "closure:m:jar:SYSTEM /usr/share/java/closure/m.jar", //
+                                               "  closure:o:pom:SYSTEM", //
+                                               "closure:n:jar:SYSTEM /usr/share/java/closure/n.jar", //
+                                               "  closure:o:pom:SYSTEM", //
+                                               "other:x:jar:SYSTEM /usr/share/java/closure/x.jar", //
+                                               "closure:h:jar:SYSTEM /usr/share/java/closure/h.jar", //
+                                               "  closure:i:jar:SYSTEM", //
+                                               "closure:o:pom:SYSTEM", //
+                                               "  closure:l:jar:2", //
+                                               "closure:i:jar:SYSTEM /usr/share/java/closure/i.jar", //
+                                               "closure:l:jar:2 /usr/share/java/closure/l-2.jar" );
+        assertEquals( expected, getStdout().collect( Collectors.toList() ) );
+    }
+
+    @Test
+    public void testResolveClosureFail()
+        throws Exception
+    {
+        assertEquals( 1, invokeTool( "xmvn-resolve", "--closure", "closure:p", "closure:missing" ) );
+        List<String> err = getStderr().collect( Collectors.toList() );
+        assertTrue( err.contains( "ERROR: Unable to resolve artifact closure:missing:jar:SYSTEM" ) );
+        assertTrue( err.contains( "ERROR: Unable to resolve dependency closure:q:jar:SYSTEM of closure:p:jar:SYSTEM" ) );
+        assertFalse( getStdout().findAny().isPresent() );
+    }
 }
@@ -26,6 +26,7 @@ import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 
@@ -45,6 +46,7 @@ import org.eclipse.aether.RepositorySystemSession;
 
 import org.fedoraproject.xmvn.artifact.Artifact;
 import org.fedoraproject.xmvn.artifact.DefaultArtifact;
+import org.fedoraproject.xmvn.connector.aether.ProjectStateStore;
 import org.fedoraproject.xmvn.deployer.Deployer;
 import org.fedoraproject.xmvn.deployer.DeploymentRequest;
 import org.fedoraproject.xmvn.deployer.DeploymentResult;
@@ -85,6 +87,8 @@ public class InstallMojo
     @Component
     private Deployer deployer;
 
+    private Map<?, ?> projectProperties;
+
     public InstallMojo()
     {
         // No-argument constructor is required by Plexus
@@ -145,24 +149,45 @@ public class InstallMojo
         }
     }
 
-    private String getProjectProperty( Artifact artifact, String key )
+    /**
+     * Load project properties. If XMvn connector is active, properties are taken from the state shared through
+     * repository session, otherwise they are read from disk.
+     */
+    private Map<?, ?> loadProjectProperties()
     {
-        Path propertiesPath = Paths.get( ".xmvn/properties" );
-        if ( !Files.exists( propertiesPath ) )
-            return null;
-
-        Properties properties = new Properties();
-        try ( InputStream stream = Files.newInputStream( propertiesPath ) )
+        if ( repoSession != null )
         {
-            properties.load( stream );
+            Object sharedProperties = repoSession.getData().get( ProjectStateStore.PROJECT_PROPERTIES_KEY );
+            if ( sharedProperties instanceof Map )
+                return (Map<?, ?>) sharedProperties;
         }
-        catch ( IOException e )
+
+        Properties properties = new Properties();
+
+        Path propertiesPath = Paths.get( ".xmvn/properties" );
+        if ( Files.exists( propertiesPath ) )
         {
-            return null;
+            try ( InputStream stream = Files.newInputStream( propertiesPath ) )
+            {
+                properties.load( stream );
+            }
+            catch ( IOException e )
+            {
+                logger.debug( "Unable to read project properties", e );
+            }
         }
 
+        return properties;
+    }
+
+    private String getProjectProperty( Artifact artifact, String key )
+    {
+        if ( projectProperties == null )
+            projectProperties = loadProjectProperties();
+
         String artifactKey = artifact.getGroupId() + "/" + artifact.getArtifactId() + "/" + artifact.getVersion();
-        return properties.getProperty( artifactKey + "/" + key );
+        Object value = projectProperties.get( artifactKey + "/" + key );
+        return value != null ? value.toString() : null;
     }
 
     private void deployArtifact( Artifact artifact, String type, Model model )
@@ -16,16 +16,41 @@
 package org.fedoraproject.xmvn.tools.bisect;
 
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.PrintStream;
 import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
+import java.nio.file.LinkOption;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.Collections;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
 
+import org.apache.maven.shared.invoker.CommandLineConfigurationException;
 import org.apache.maven.shared.invoker.DefaultInvoker;
 import org.apache.maven.shared.invoker.InvocationRequest;
 import org.apache.maven.shared.invoker.Invoker;
+import org.apache.maven.shared.invoker.MavenCommandLineBuilder;
 import org.apache.maven.shared.invoker.MavenInvocationException;
+import org.codehaus.plexus.util.cli.Commandline;
 
 /**
  * @author Mikolaj Izdebski
@@ -34,15 +59,49 @@ public class BisectCli
 {
     private static final int BISECT_MAX = 1000000000;
 
+    private static final int COUNTER_SIZE = 4;
+
     private final Invoker invoker = new DefaultInvoker();
 
     private InvocationRequest request;
 
     private Path counter;
 
-    private boolean executeBuild( String logPath )
+    /**
+     * Build slots in which bisection builds are ran. With a single slot builds are ran in the project directory,
+     * otherwise each slot has its own working copy of the project and its own counter file.
+     */
+    private final List<BuildSlot> slots = new ArrayList<>();
+
+    /**
+     * Maven instance in which all builds are ran in-process, or {@code null} if each build is ran in a new JVM.
+     */
+    private EmbeddedMaven embeddedMaven;
+
+    /**
+     * Distinct artifacts resolved during initial build, in order of their first resolution. In delta debugging mode
+     * build configurations are sets of indexes into this list, denoting artifacts resolved from system.
+     */
+    private List<String> recordedArtifacts;
+
+    /**
+     * Outcomes of builds already ran in delta debugging mode, keyed by build configuration.
+     */
+    private final Map<BitSet, Boolean> testedConfigurations = new HashMap<>();
+
+    /**
+     * Logs of builds already ran in delta debugging mode, keyed by build configuration.
+     */
+    private final Map<BitSet, String> configurationLogs = new HashMap<>();
+
+    private int buildCount;
+
+    private boolean executeBuild( InvocationRequest request, String logPath )
         throws MavenInvocationException
     {
+        if ( embeddedMaven != null )
+            return executeEmbeddedBuild( request, logPath );
+
         try ( PrintWriter log = new PrintWriter( logPath ) )
         {
             request.setOutputHandler( log::println );
@@ -56,6 +115,41 @@ public class BisectCli
         }
     }
 
+    private boolean executeEmbeddedBuild( InvocationRequest request, String logPath )
+        throws MavenInvocationException
+    {
+        MavenCommandLineBuilder builder = new MavenCommandLineBuilder();
+        builder.setMavenHome( invoker.getMavenHome() );
+
+        Commandline commandLine;
+        try
+        {
+            commandLine = builder.build( request );
+        }
+        catch ( CommandLineConfigurationException e )
+        {
+            throw new MavenInvocationException( "Error configuring command-line. Reason: " + e.getMessage(), e );
+        }
+
+        Path workingDirectory = commandLine.getWorkingDirectory() != null ? commandLine.getWorkingDirectory().toPath()
+                        : Paths.get( "" ).toAbsolutePath();
+
+        try ( PrintStream log = new PrintStream( logPath ) )
+        {
+            return embeddedMaven.execute( Arrays.asList( commandLine.getArguments() ), workingDirectory, log ) == 0;
+        }
+        catch ( FileNotFoundException e )
+        {
+            throw new RuntimeException( e );
+        }
+    }
+
+    private boolean executeBuild( String logPath )
+        throws MavenInvocationException
+    {
+        return executeBuild( request, logPath );
+    }
+
     private static String getBuildLogName( int buildId )
     {
         return String.format( "bisect-build-%d.log", buildId );
@@ -66,16 +160,389 @@ public class BisectCli
         return "bisect-initial.log";
     }
 
+    /**
+     * Set value of bisection counter. Counter file holds a 32-bit integer in little-endian byte order. It is updated in
+     * place, as it may be mapped into memory of resolver.
+     */
+    private static void setValue( Path counter, int value )
+        throws IOException
+    {
+        ByteBuffer buffer = ByteBuffer.allocate( COUNTER_SIZE ).order( ByteOrder.LITTLE_ENDIAN );
+        buffer.putInt( 0, value );
+
+        try ( FileChannel channel = FileChannel.open( counter, StandardOpenOption.CREATE, StandardOpenOption.WRITE ) )
+        {
+            channel.write( buffer, 0 );
+        }
+    }
+
     private void setValue( int value )
         throws Exception
     {
-        Files.write( counter, Collections.singleton( Integer.toString( value ) ) );
+        setValue( counter, value );
     }
 
     private int getValue()
         throws Exception
     {
-        return Integer.parseInt( Files.readAllLines( counter ).iterator().next() );
+        return ByteBuffer.wrap( Files.readAllBytes( counter ) ).order( ByteOrder.LITTLE_ENDIAN ).getInt( 0 );
+    }
+
+    /**
+     * Delete directory tree, if it exists.
+     */
+    private static void deleteTree( Path root )
+        throws IOException
+    {
+        if ( !Files.exists( root, LinkOption.NOFOLLOW_LINKS ) )
+            return;
+
+        Files.walkFileTree( root, new SimpleFileVisitor<Path>()
+        {
+            @Override
+            public FileVisitResult visitFile( Path file, BasicFileAttributes attrs )
+                throws IOException
+            {
+                Files.delete( file );
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory( Path dir, IOException e )
+                throws IOException
+            {
+                if ( e != null )
+                    throw e;
+
+                Files.delete( dir );
+                return FileVisitResult.CONTINUE;
+            }
+        } );
+    }
+
+    /**
+     * Copy project directory tree into fresh working copy. The directory containing working copies, bisection build
+     * logs and counter files (including counter files of other slots and files derived from counter path) are not
+     * copied.
+     */
+    private static void copyProject( Path projectDir, Path workingCopy, Path workDir, Path counter )
+        throws IOException
+    {
+        deleteTree( workingCopy );
+
+        Files.walkFileTree( projectDir, new SimpleFileVisitor<Path>()
+        {
+            @Override
+            public FileVisitResult preVisitDirectory( Path dir, BasicFileAttributes attrs )
+                throws IOException
+            {
+                if ( dir.startsWith( workDir ) )
+                    return FileVisitResult.SKIP_SUBTREE;
+
+                Files.createDirectories( workingCopy.resolve( projectDir.relativize( dir ) ) );
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile( Path file, BasicFileAttributes attrs )
+                throws IOException
+            {
+                String fileName = file.getFileName().toString();
+                if ( ( fileName.startsWith( "bisect-" ) && fileName.endsWith( ".log" ) )
+                    || file.toString().startsWith( counter.toString() ) )
+                    return FileVisitResult.CONTINUE;
+
+                Files.copy( file, workingCopy.resolve( projectDir.relativize( file ) ),
+                            StandardCopyOption.COPY_ATTRIBUTES, LinkOption.NOFOLLOW_LINKS );
+                return FileVisitResult.CONTINUE;
+            }
+        } );
+    }
+
+    private void createBuildSlots( BisectCliRequest commandLineParser )
+        throws IOException
+    {
+        int jobs = commandLineParser.getJobs();
+        if ( jobs > 1 && embeddedMaven != null )
+        {
+            System.err.println( "WARNING: Builds ran in-process can't be parallelized, running one build at time" );
+            jobs = 1;
+        }
+        if ( jobs <= 1 )
+        {
+            slots.add( new BuildSlot( request, counter ) );
+            return;
+        }
+
+        Path projectDir = Paths.get( commandLineParser.getBaseDirectory() ).toAbsolutePath().normalize();
+        Path workDir = Paths.get( commandLineParser.getWorkDirectory() ).toAbsolutePath().normalize();
+        System.err.printf( "Preparing %d working copies of %s in %s%n", jobs, projectDir, workDir );
+
+        for ( int slot = 1; slot <= jobs; slot++ )
+        {
+            Path workingCopy = workDir.resolve( "build-" + slot );
+            copyProject( projectDir, workingCopy, workDir, counter.toAbsolutePath().normalize() );
+
+            InvocationRequest slotRequest = commandLineParser.createInvocationRequest();
+            slotRequest.setShellEnvironmentInherited( true );
+            slotRequest.setBaseDirectory( workingCopy.toFile() );
+            if ( slotRequest.getPomFile() != null )
+            {
+                Path pomPath = projectDir.relativize( slotRequest.getPomFile().toPath().toAbsolutePath().normalize() );
+                slotRequest.setPomFile( workingCopy.resolve( pomPath ).toFile() );
+            }
+
+            Path slotCounter = Paths.get( commandLineParser.getCounterPath() + "-" + slot );
+            slotRequest.getProperties().put( "xmvn.bisect.counter", slotCounter.toString() );
+            slots.add( new BuildSlot( slotRequest, slotCounter ) );
+        }
+    }
+
+    /**
+     * Select build numbers to try in the next bisection round, one for each build slot, evenly spaced within range
+     * {@code (badId,goodId)}.
+     */
+    private List<Integer> getSplitPoints( int badId, int goodId, boolean binarySearch )
+    {
+        List<Integer> tryIds = new ArrayList<>();
+        int count = slots.size();
+
+        for ( int i = 1; i <= count; i++ )
+        {
+            int tryId = binarySearch ? badId + (int) ( (long) ( goodId - badId ) * i / ( count + 1 ) ) : badId + i;
+            if ( tryId > badId && tryId < goodId && ( tryIds.isEmpty() || tryId > tryIds.get( tryIds.size() - 1 ) ) )
+                tryIds.add( tryId );
+        }
+
+        return tryIds;
+    }
+
+    /**
+     * Run bisection builds concurrently, each in its own build slot.
+     * 
+     * @return build outcomes, in the same order as build numbers
+     */
+    private List<Boolean> executeBuilds( ExecutorService executor, List<Integer> tryIds )
+        throws Exception
+    {
+        List<Future<Boolean>> futures = new ArrayList<>();
+        for ( int i = 0; i < tryIds.size(); i++ )
+        {
+            BuildSlot slot = slots.get( i );
+            int tryId = tryIds.get( i );
+            futures.add( executor.submit( () -> {
+                setValue( slot.counter, tryId );
+                return executeBuild( slot.request, getBuildLogName( tryId ) );
+            } ) );
+        }
+
+        return getResults( futures );
+    }
+
+    private static List<Boolean> getResults( List<Future<Boolean>> futures )
+        throws Exception
+    {
+        List<Boolean> results = new ArrayList<>();
+        try
+        {
+            for ( Future<Boolean> future : futures )
+                results.add( future.get() );
+        }
+        catch ( ExecutionException e )
+        {
+            Throwable cause = e.getCause();
+            if ( cause instanceof Exception )
+                throw (Exception) cause;
+            if ( cause instanceof Error )
+                throw (Error) cause;
+            throw new RuntimeException( cause );
+        }
+
+        return results;
+    }
+
+    /**
+     * Split set of artifacts into given number of subsets of roughly equal size.
+     */
+    private static List<BitSet> split( BitSet configuration, int parts )
+    {
+        int[] indexes = configuration.stream().toArray();
+        List<BitSet> subsets = new ArrayList<>();
+
+        for ( int i = 0; i < parts; i++ )
+        {
+            BitSet subset = new BitSet();
+            for ( int j = indexes.length * i / parts; j < indexes.length * ( i + 1 ) / parts; j++ )
+                subset.set( indexes[j] );
+            subsets.add( subset );
+        }
+
+        return subsets;
+    }
+
+    private void addTestedConfiguration( BitSet configuration, boolean success, String logPath )
+    {
+        testedConfigurations.put( configuration, success );
+        configurationLogs.put( configuration, logPath );
+    }
+
+    /**
+     * Run delta debugging builds concurrently, each in its own build slot. Each build resolves artifacts from given
+     * configuration from system and all other recorded artifacts from bisection repository.
+     */
+    private void executeConfigurations( ExecutorService executor, List<BitSet> configurations )
+        throws Exception
+    {
+        List<Future<Boolean>> futures = new ArrayList<>();
+        List<String> logPaths = new ArrayList<>();
+        for ( int i = 0; i < configurations.size(); i++ )
+        {
+            BuildSlot slot = slots.get( i );
+            BitSet configuration = configurations.get( i );
+            String logPath = getBuildLogName( ++buildCount );
+            logPaths.add( logPath );
+
+            List<String> bisectArtifacts = new ArrayList<>();
+            for ( int j = configuration.nextClearBit( 0 ); j < recordedArtifacts.size();
+                            j = configuration.nextClearBit( j + 1 ) )
+                bisectArtifacts.add( recordedArtifacts.get( j ) );
+
+            futures.add( executor.submit( () -> {
+                Files.write( slot.artifacts, bisectArtifacts );
+                setValue( slot.counter, 0 );
+                return executeBuild( slot.request, logPath );
+            } ) );
+        }
+
+        List<Boolean> results = getResults( futures );
+
+        for ( int i = 0; i < configurations.size(); i++ )
+        {
+            boolean success = results.get( i );
+            System.err.printf( "Delta debugging build with %d artifacts from system %s, see %s%n",
+                               configurations.get( i ).cardinality(), success ? "succeeded" : "failed",
+                               logPaths.get( i ) );
+            addTestedConfiguration( configurations.get( i ), success, logPaths.get( i ) );
+        }
+    }
+
+    /**
+     * Find the first of given configurations for which the build fails. Configurations which were already tested are
+     * not built again, others are built in batches, one build per build slot.
+     * 
+     * @return the first failing configuration, or {@code null} if builds of all configurations succeed
+     */
+    private BitSet findFailingConfiguration( ExecutorService executor, List<BitSet> configurations )
+        throws Exception
+    {
+        int next = 0;
+        while ( next < configurations.size() )
+        {
+            List<BitSet> batch = new ArrayList<>();
+            int end = next;
+            while ( end < configurations.size() && batch.size() < slots.size() )
+            {
+                BitSet configuration = configurations.get( end++ );
+                if ( !testedConfigurations.containsKey( configuration ) && !batch.contains( configuration ) )
+                    batch.add( configuration );
+            }
+
+            executeConfigurations( executor, batch );
+
+            for ( ; next < end; next++ )
+            {
+                if ( !testedConfigurations.get( configurations.get( next ) ) )
+                    return configurations.get( next );
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Find minimal set of recorded artifacts which make the build fail when resolved from system, using ddmin
+     * algorithm. The set is 1-minimal, that is resolving any single artifact of it from bisection repository makes
+     * the build succeed.
+     */
+    private void runDeltaDebugging( ExecutorService executor, Path record, boolean sanityChecked )
+        throws Exception
+    {
+        recordedArtifacts = new ArrayList<>( new LinkedHashSet<>( Files.readAllLines( record ) ) );
+        if ( recordedArtifacts.isEmpty() )
+        {
+            System.err.println( "ERROR: No artifacts were resolved during initial build" );
+            System.exit( 1 );
+        }
+        System.err.printf( "Recorded %d artifacts resolved during initial build%n", recordedArtifacts.size() );
+
+        for ( BuildSlot slot : slots )
+        {
+            slot.request.getProperties().put( "xmvn.bisect.record", "" );
+            slot.request.getProperties().put( "xmvn.bisect.artifacts", slot.artifacts.toString() );
+        }
+
+        // Reuse outcomes of builds which were already ran
+        BitSet failing = new BitSet();
+        failing.set( 0, recordedArtifacts.size() );
+        addTestedConfiguration( failing, false, sanityChecked ? getBuildLogName( 0 ) : "default.log" );
+        addTestedConfiguration( new BitSet(), true, getInitialBuildName() );
+
+        int granularity = 2;
+        while ( failing.cardinality() >= 2 )
+        {
+            System.err.printf( "Delta debugging iteration: %d artifacts from system, splitting into %d parts%n",
+                               failing.cardinality(), granularity );
+
+            List<BitSet> subsets = split( failing, granularity );
+            BitSet next = findFailingConfiguration( executor, subsets );
+            if ( next != null )
+            {
+                failing = next;
+                granularity = 2;
+                continue;
+            }
+
+            List<BitSet> complements = new ArrayList<>();
+            for ( BitSet subset : subsets )
+            {
+                BitSet complement = (BitSet) failing.clone();
+                complement.andNot( subset );
+                complements.add( complement );
+            }
+            next = findFailingConfiguration( executor, complements );
+            if ( next != null )
+            {
+                failing = next;
+                granularity = Math.max( granularity - 1, 2 );
+                continue;
+            }
+
+            if ( granularity >= failing.cardinality() )
+                break;
+            granularity = Math.min( 2 * granularity, failing.cardinality() );
+        }
+
+        // Any build with one less artifact from system succeeded, if there was one
+        String goodLog = getInitialBuildName();
+        for ( int i = failing.nextSetBit( 0 ); i >= 0; i = failing.nextSetBit( i + 1 ) )
+        {
+            BitSet configuration = (BitSet) failing.clone();
+            configuration.clear( i );
+            if ( Boolean.TRUE.equals( testedConfigurations.get( configuration ) ) )
+            {
+                goodLog = configurationLogs.get( configuration );
+                break;
+            }
+        }
+        String badLog = configurationLogs.get( failing );
+
+        System.err.println( "Delta debugging finished" );
+        System.err.printf( "Build fails when these %d artifacts are resolved from system:%n", failing.cardinality() );
+        failing.stream().forEach( i -> System.err.printf( "  %s%n", recordedArtifacts.get( i ) ) );
+        System.err.printf( "Failed build:     see %s%n", badLog );
+        System.err.printf( "Successful build: see %s%n", goodLog );
+        System.err.println( "Try:" );
+        System.err.printf( "  $ git diff --no-index --color %s %s%n", badLog, goodLog );
     }
 
     private void run( BisectCliRequest commandLineParser )
@@ -90,12 +557,30 @@ public class BisectCli
         invoker.setMavenHome( xmvnHome.toFile() );
         System.err.printf( "Using XMvn at %s%n", xmvnHome );
 
+        if ( commandLineParser.isInProcess() )
+        {
+            // Metadata is resolved only once, in the first build, and then kept in memory
+            System.setProperty( "xmvn.resolver.shareMetadata", "true" );
+            embeddedMaven = new EmbeddedMaven( xmvnHome );
+            System.err.println( "Running builds in-process" );
+        }
+
         request.getProperties().put( "xmvn.bisect.counter", commandLineParser.getCounterPath() );
 
         int counterInitialValue = BISECT_MAX;
         counter = Paths.get( commandLineParser.getCounterPath() );
         setValue( 0 );
 
+        // In delta debugging mode resolved artifacts are recorded during initial build
+        boolean deltaDebugging = commandLineParser.isDeltaDebugging();
+        Path record = Paths.get( commandLineParser.getCounterPath() + ".record" );
+        if ( deltaDebugging )
+        {
+            request.getProperties().put( "xmvn.bisect.artifacts", "" );
+            request.getProperties().put( "xmvn.bisect.record", "" );
+            Files.deleteIfExists( record );
+        }
+
         if ( !commandLineParser.isSkipSanityChecks() )
         {
             System.err.println( "Checking if standard local build really fails" );
@@ -111,6 +596,8 @@ public class BisectCli
         int badId = 0;
         System.err.println( "Running initial upstream build" );
         setValue( counterInitialValue );
+        if ( deltaDebugging )
+            request.getProperties().put( "xmvn.bisect.record", record.toString() );
         boolean success = executeBuild( getInitialBuildName() );
         int goodId = counterInitialValue - getValue();
         if ( !success )
@@ -120,25 +607,46 @@ public class BisectCli
             System.exit( 1 );
         }
 
-        while ( goodId - badId > 1 )
+        createBuildSlots( commandLineParser );
+        ExecutorService executor = Executors.newFixedThreadPool( slots.size() );
+        try
         {
-            int tryId;
-            if ( commandLineParser.useBinarySearch() )
-                tryId = badId + ( goodId - badId ) / 2;
-            else
-                tryId = badId + 1;
+            if ( deltaDebugging )
+            {
+                runDeltaDebugging( executor, record, !commandLineParser.isSkipSanityChecks() );
+                return;
+            }
 
-            System.err.printf( "Bisection iteration: current range is [%d,%d], trying %d%n", badId + 1, goodId - 1,
-                               tryId );
-            setValue( tryId );
+            while ( goodId - badId > 1 )
+            {
+                List<Integer> tryIds = getSplitPoints( badId, goodId, commandLineParser.useBinarySearch() );
 
-            success = executeBuild( getBuildLogName( tryId ) );
-            System.err.printf( "Bisection build number %d %s%n", tryId, success ? "succeeded" : "failed" );
+                System.err.printf( "Bisection iteration: current range is [%d,%d], trying %s%n", badId + 1,
+                                   goodId - 1,
+                                   tryIds.stream().map( String::valueOf ).collect( Collectors.joining( ", " ) ) );
 
-            if ( success )
-                goodId = tryId;
-            else
-                badId = tryId;
+                List<Boolean> results = executeBuilds( executor, tryIds );
+
+                // The first successful build bounds the range from above, failed builds preceding it from below
+                for ( int i = 0; i < tryIds.size(); i++ )
+                {
+                    int tryId = tryIds.get( i );
+                    success = results.get( i );
+                    System.err.printf( "Bisection build number %d %s%n", tryId, success ? "succeeded" : "failed" );
+
+                    if ( success && tryId < goodId )
+                        goodId = tryId;
+                    else if ( !success && tryId < goodId )
+                        badId = tryId;
+                }
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+
+            if ( embeddedMaven != null )
+                embeddedMaven.close();
         }
 
         String goodLog = getBuildLogName( goodId );
@@ -155,6 +663,28 @@ public class BisectCli
         System.err.printf( "  $ git diff --no-index --color %s %s%n", badLog, goodLog );
     }
 
+    /**
+     * Build environment in which bisection builds can be ran, one at time.
+     */
+    private static class BuildSlot
+    {
+        private final InvocationRequest request;
+
+        private final Path counter;
+
+        /**
+         * File listing artifacts to be resolved from bisection repository, used in delta debugging mode.
+         */
+        private final Path artifacts;
+
+        public BuildSlot( InvocationRequest request, Path counter )
+        {
+            this.request = request;
+            this.counter = counter;
+            this.artifacts = Paths.get( counter + ".artifacts" );
+        }
+    }
+
     public static void main( String[] args )
         throws Exception
     {
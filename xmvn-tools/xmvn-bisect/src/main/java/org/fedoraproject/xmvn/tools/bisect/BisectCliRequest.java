@@ -45,9 +45,24 @@ public class BisectCliRequest
     @Parameter( names = { "-l", "--linear" }, description = "Use linear search instead of binary search" )
     private boolean linearSearch;
 
+    @Parameter( names = { "-dd",
+        "--ddmin" }, description = "Use delta debugging to find minimal set of artifacts which make the build fail when resolved from system" )
+    private boolean deltaDebugging;
+
     @Parameter( names = { "-C", "--counter" }, description = "Path to temporary semaphore file" )
     private String counterPath;
 
+    @Parameter( names = { "-j", "--jobs" }, description = "Number of bisection builds to run in parallel" )
+    private int jobs = 1;
+
+    @Parameter( names = { "-w",
+        "--work-directory" }, description = "Path to directory in which working copies for parallel builds are created" )
+    private String workDirectory;
+
+    @Parameter( names = { "-i",
+        "--in-process" }, description = "Run all builds in a single Maven instance embedded in this process; Java home and MAVEN_OPTS are ignored" )
+    private boolean inProcess;
+
     @Parameter( names = { "-q", "--skip-sanity" }, description = "Skip sanity checks to speedup the process" )
     private boolean noSanityChecks;
 
@@ -187,6 +202,7 @@ public class BisectCliRequest
             throw new RuntimeException( "Failed to obtain user home path" );
 
         counterPath = Paths.get( "bisect-counter" ).toAbsolutePath().toString();
+        workDirectory = Paths.get( "bisect-work" ).toAbsolutePath().toString();
 
         InvocationRequest request = new DefaultInvocationRequest();
 
@@ -260,11 +276,36 @@ public class BisectCliRequest
         return !linearSearch;
     }
 
+    public boolean isDeltaDebugging()
+    {
+        return deltaDebugging;
+    }
+
     public String getCounterPath()
     {
         return counterPath;
     }
 
+    public int getJobs()
+    {
+        return jobs;
+    }
+
+    public String getWorkDirectory()
+    {
+        return workDirectory;
+    }
+
+    public String getBaseDirectory()
+    {
+        return basedir != null ? basedir : Paths.get( "" ).toAbsolutePath().toString();
+    }
+
+    public boolean isInProcess()
+    {
+        return inProcess;
+    }
+
     public boolean isSkipSanityChecks()
     {
         return noSanityChecks;
@@ -0,0 +1,160 @@
+/*-
+ * Copyright (c) 2018 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fedoraproject.xmvn.tools.bisect;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Maven instance embedded in the current JVM, which can run many builds one after another.
+ * <p>
+ * Maven is loaded from Maven home in its own class loader only once, so that subsequent builds don't repeat JVM
+ * startup and class loading, and run already JIT-compiled code. Each build runs in a new Maven session, but static
+ * state of classes loaded from Maven home, including metadata and bisection counters shared by XMvn resolver, is kept
+ * between builds until embedded Maven is closed.
+ * <p>
+ * Builds can't run concurrently, as Maven uses system properties and standard streams, which are global to the JVM.
+ * 
+ * @author Mikolaj Izdebski
+ */
+class EmbeddedMaven
+    implements Closeable
+{
+    private static final String MAVEN_CLI_CLASS = "org.apache.maven.cli.MavenCli";
+
+    private static final String RESOLVER_CLASS = "org.fedoraproject.xmvn.resolver.impl.DefaultResolver";
+
+    private final Path mavenHome;
+
+    private final URLClassLoader classLoader;
+
+    private final Object cli;
+
+    private final Method doMain;
+
+    public EmbeddedMaven( Path mavenHome )
+        throws IOException
+    {
+        this.mavenHome = mavenHome;
+
+        // Same class path as Maven launcher uses for its core realm, see bin/m2.conf
+        List<URL> classPath = new ArrayList<>();
+        addJars( classPath, mavenHome.resolve( "lib/ext" ) );
+        addJars( classPath, mavenHome.resolve( "lib" ) );
+        addJars( classPath, mavenHome.resolve( "boot" ) );
+
+        // Classes used by bisect itself must not leak into Maven, so only platform classes are visible to it
+        classLoader = new URLClassLoader( classPath.toArray( new URL[classPath.size()] ),
+                                          ClassLoader.getSystemClassLoader().getParent() );
+
+        try
+        {
+            Class<?> cliClass = classLoader.loadClass( MAVEN_CLI_CLASS );
+            cli = cliClass.newInstance();
+            doMain = cliClass.getMethod( "doMain", String[].class, String.class, PrintStream.class, PrintStream.class );
+        }
+        catch ( ReflectiveOperationException e )
+        {
+            classLoader.close();
+            throw new IOException( "Unable to load embeddable Maven from " + mavenHome, e );
+        }
+    }
+
+    private static void addJars( List<URL> classPath, Path dir )
+        throws IOException
+    {
+        if ( !Files.isDirectory( dir ) )
+            return;
+
+        List<Path> jars = new ArrayList<>();
+        try ( DirectoryStream<Path> stream = Files.newDirectoryStream( dir, "*.jar" ) )
+        {
+            stream.forEach( jars::add );
+        }
+
+        jars.sort( null );
+        for ( Path jar : jars )
+            classPath.add( jar.toUri().toURL() );
+    }
+
+    /**
+     * Run a single Maven build.
+     * 
+     * @param args Maven command line arguments
+     * @param workingDirectory directory in which the build is ran
+     * @param log stream to which build output is written
+     * @return exit code of the build
+     */
+    public synchronized int execute( List<String> args, Path workingDirectory, PrintStream log )
+    {
+        Thread thread = Thread.currentThread();
+        ClassLoader contextClassLoader = thread.getContextClassLoader();
+
+        System.setProperty( "maven.home", mavenHome.toString() );
+        System.setProperty( "maven.multiModuleProjectDirectory", workingDirectory.toString() );
+
+        thread.setContextClassLoader( classLoader );
+        try
+        {
+            return (Integer) doMain.invoke( cli, args.toArray( new String[args.size()] ), workingDirectory.toString(),
+                                            log, log );
+        }
+        catch ( InvocationTargetException e )
+        {
+            throw new RuntimeException( e.getCause() );
+        }
+        catch ( IllegalAccessException e )
+        {
+            throw new RuntimeException( e );
+        }
+        finally
+        {
+            thread.setContextClassLoader( contextClassLoader );
+        }
+    }
+
+    @Override
+    public void close()
+        throws IOException
+    {
+        try
+        {
+            classLoader.loadClass( RESOLVER_CLASS ).getMethod( "releaseSharedResources" ).invoke( null );
+        }
+        catch ( ClassNotFoundException e )
+        {
+            // XMvn resolver is not present in Maven home, there are no shared resources to release
+        }
+        catch ( ReflectiveOperationException e )
+        {
+            throw new IOException( "Unable to release resources shared by XMvn resolver", e );
+        }
+        finally
+        {
+            classLoader.close();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/*-
+ * Copyright (c) 2018 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.maven.cli;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Fake Maven CLI used for testing in-process bisection. Builds have the same outcomes as builds ran by fake
+ * {@code mvn} scripts.
+ * 
+ * @author Mikolaj Izdebski
+ */
+public class MavenCli
+{
+    private static final String COUNTER_PROPERTY = "xmvn.bisect.counter=";
+
+    private static final int INITIAL_BUILD_THRESHOLD = 1000000;
+
+    private static final int LAST_FAILING_BUILD = 42;
+
+    private static int invocationCount;
+
+    private static int readCounter( Path counter )
+        throws IOException
+    {
+        return ByteBuffer.wrap( Files.readAllBytes( counter ) ).order( ByteOrder.LITTLE_ENDIAN ).getInt( 0 );
+    }
+
+    private static void writeCounter( Path counter, int value )
+        throws IOException
+    {
+        Files.write( counter, ByteBuffer.allocate( 4 ).order( ByteOrder.LITTLE_ENDIAN ).putInt( 0, value ).array() );
+    }
+
+    public int doMain( String[] args, String workingDirectory, PrintStream stdout, PrintStream stderr )
+        throws IOException
+    {
+        stdout.printf( "Invocation %d, context class loader is %s%n", ++invocationCount,
+                       Thread.currentThread().getContextClassLoader() == getClass().getClassLoader() ? "Maven"
+                                       : "foreign" );
+
+        Path counter = null;
+        for ( String arg : args )
+        {
+            int index = arg.indexOf( COUNTER_PROPERTY );
+            if ( index >= 0 )
+                counter = Paths.get( arg.substring( index + COUNTER_PROPERTY.length() ) );
+        }
+
+        int cnt = readCounter( counter );
+        int ret;
+
+        if ( cnt == 0 )
+        {
+            ret = 1;
+        }
+        else if ( cnt > INITIAL_BUILD_THRESHOLD )
+        {
+            cnt -= 100;
+            ret = 0;
+        }
+        else if ( cnt > LAST_FAILING_BUILD )
+        {
+            cnt = 0;
+            ret = 0;
+        }
+        else
+        {
+            cnt = 0;
+            ret = 1;
+        }
+
+        writeCounter( counter, cnt );
+        return ret;
+    }
+}
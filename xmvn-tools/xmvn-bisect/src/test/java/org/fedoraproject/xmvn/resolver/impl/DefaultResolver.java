@@ -0,0 +1,36 @@
+/*-
+ * Copyright (c) 2018 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fedoraproject.xmvn.resolver.impl;
+
+/**
+ * Fake XMvn resolver used for testing in-process bisection. Records release of shared resources in a system
+ * property, which is visible outside of Maven class loader.
+ * 
+ * @author Mikolaj Izdebski
+ */
+public final class DefaultResolver
+{
+    public static final String RELEASED_PROPERTY = "xmvn.test.sharedResourcesReleased";
+
+    private DefaultResolver()
+    {
+    }
+
+    public static void releaseSharedResources()
+    {
+        System.setProperty( RELEASED_PROPERTY, "true" );
+    }
+}
@@ -15,28 +15,44 @@
  */
 package org.fedoraproject.xmvn.tools.bisect;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
 
 import java.io.BufferedReader;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.PrintStream;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TestName;
 
+import org.fedoraproject.xmvn.resolver.impl.DefaultResolver;
+
 /**
  * @author Mikolaj Izdebski
  */
 public class BisectCliTest
 {
+    private static final int BUILD_COUNT = 200;
+
     @Rule
     public TestName testName = new TestName();
 
@@ -78,4 +94,135 @@ public class BisectCliTest
         assertTrue( out.stream().anyMatch( x -> x.matches( "Failed build: +42, see bisect-build-42.log" ) ) );
         assertTrue( out.stream().anyMatch( x -> x.matches( "Successful build: +43, see bisect-build-43.log" ) ) );
     }
+
+    @Test
+    public void testBisectParallel()
+        throws Exception
+    {
+        // Leftovers of previous runs, which must not get into working copies
+        Path workingCopy = Paths.get( "bisect-work/build-1" );
+        Files.createDirectories( workingCopy );
+        Files.write( workingCopy.resolve( "stale.txt" ), new byte[0] );
+        Files.write( Paths.get( "bisect-build-1.log" ), new byte[0] );
+        Files.write( Paths.get( "bisect-counter-7" ), new byte[0] );
+        Files.write( Paths.get( "project.txt" ), new byte[0] );
+
+        List<String> out = run( "-j", "3" );
+        assertTrue( out.stream().anyMatch( x -> x.equals( "Bisection iteration: current range is [1,999], trying 250, 500, 750" ) ) );
+        assertTrue( out.stream().anyMatch( x -> x.equals( "Bisection build finished" ) ) );
+        assertTrue( out.stream().anyMatch( x -> x.matches( "Failed build: +142, see bisect-build-142.log" ) ) );
+        assertTrue( out.stream().anyMatch( x -> x.matches( "Successful build: +143, see bisect-build-143.log" ) ) );
+        assertTrue( Files.isRegularFile( Paths.get( "bisect-build-143.log" ) ) );
+
+        assertTrue( Files.isRegularFile( workingCopy.resolve( "project.txt" ) ) );
+        assertFalse( Files.exists( workingCopy.resolve( "stale.txt" ) ) );
+        assertFalse( Files.exists( workingCopy.resolve( "bisect-build-1.log" ) ) );
+        assertFalse( Files.exists( workingCopy.resolve( "bisect-counter-7" ) ) );
+        assertFalse( Files.exists( workingCopy.resolve( "bisect-work" ) ) );
+    }
+
+    @Test
+    public void testBisectDeltaDebugging()
+        throws Exception
+    {
+        List<String> out = run( "-dd" );
+        assertTrue( out.stream().anyMatch( x -> x.equals( "Recorded 16 artifacts resolved during initial build" ) ) );
+        assertTrue( out.stream().anyMatch( x -> x.equals( "Delta debugging finished" ) ) );
+        assertTrue( out.stream().anyMatch( x -> x.equals( "Build fails when these 2 artifacts are resolved from system:" ) ) );
+        assertTrue( out.stream().anyMatch( x -> x.equals( "  org.example:artifact5:jar:1.0" ) ) );
+        assertTrue( out.stream().anyMatch( x -> x.equals( "  org.example:artifact12:jar:1.0" ) ) );
+
+        assertTrue( out.stream().anyMatch( x -> x.matches( "Failed build: +see bisect-build-[0-9]+.log" ) ) );
+        assertTrue( out.stream().anyMatch( x -> x.matches( "Successful build: +see bisect-build-[0-9]+.log" ) ) );
+    }
+
+    /**
+     * Create XMvn home with fake Maven CLI and fake XMvn resolver, which must be loaded in isolated class loader.
+     */
+    private Path createEmbeddableHome()
+        throws Exception
+    {
+        Path home = Paths.get( testName.getMethodName() ).toAbsolutePath();
+        Files.createDirectories( home.resolve( "bin" ) );
+        Files.write( home.resolve( "bin/mvn" ), new byte[0] );
+        Files.createDirectories( home.resolve( "lib" ) );
+        try ( OutputStream os = Files.newOutputStream( home.resolve( "lib/maven-embedder.jar" ) );
+                        JarOutputStream jos = new JarOutputStream( os ) )
+        {
+            for ( Class<?> cls : Arrays.asList( org.apache.maven.cli.MavenCli.class, DefaultResolver.class ) )
+            {
+                String entry = cls.getName().replace( '.', '/' ) + ".class";
+                jos.putNextEntry( new JarEntry( entry ) );
+                try ( InputStream is = getClass().getResourceAsStream( "/" + entry ) )
+                {
+                    byte[] buffer = new byte[1024];
+                    for ( int n = is.read( buffer ); n >= 0; n = is.read( buffer ) )
+                        jos.write( buffer, 0, n );
+                }
+            }
+        }
+        return home;
+    }
+
+    private static long countOpenFiles()
+        throws Exception
+    {
+        try ( Stream<Path> fds = Files.list( Paths.get( "/proc/self/fd" ) ) )
+        {
+            return fds.count();
+        }
+    }
+
+    @Test
+    public void testBisectInProcess()
+        throws Exception
+    {
+        Path home = createEmbeddableHome();
+        System.setProperty( "xmvn.home", home.toString() );
+
+        List<String> out = run( "-i" );
+        assertTrue( out.stream().anyMatch( x -> x.equals( "Running builds in-process" ) ) );
+        assertTrue( out.stream().anyMatch( x -> x.equals( "Bisection build finished" ) ) );
+        assertTrue( out.stream().anyMatch( x -> x.matches( "Failed build: +42, see bisect-build-42.log" ) ) );
+        assertTrue( out.stream().anyMatch( x -> x.matches( "Successful build: +43, see bisect-build-43.log" ) ) );
+
+        // Builds ran in the same warm Maven instance
+        List<String> log = Files.readAllLines( Paths.get( "bisect-build-43.log" ) );
+        assertTrue( log.stream().anyMatch( x -> x.matches( "Invocation ([3-9]|[1-9][0-9]+), context class loader is Maven" ) ) );
+    }
+
+    /**
+     * Test if many builds ran in the same embedded Maven don't leave open files behind, and if resources shared by
+     * resolver are released when embedded Maven is closed.
+     * 
+     * @throws Exception
+     */
+    @Test
+    public void testEmbeddedMavenManyBuilds()
+        throws Exception
+    {
+        assumeTrue( Files.isDirectory( Paths.get( "/proc/self/fd" ) ) );
+        System.clearProperty( DefaultResolver.RELEASED_PROPERTY );
+
+        Path counter = Paths.get( "bisect-counter-many" ).toAbsolutePath();
+        Files.write( counter, ByteBuffer.allocate( 4 ).order( ByteOrder.LITTLE_ENDIAN ).putInt( 1 ).array() );
+        List<String> args = Arrays.asList( "-Dxmvn.bisect.counter=" + counter, "verify" );
+        Path workingDirectory = Paths.get( "" ).toAbsolutePath();
+
+        try ( EmbeddedMaven maven = new EmbeddedMaven( createEmbeddableHome() );
+                        PrintStream log = new PrintStream( Files.newOutputStream( Paths.get( "bisect-many.log" ) ) ) )
+        {
+            // Warm-up build, which loads classes and opens jars of Maven home
+            maven.execute( args, workingDirectory, log );
+            long openFiles = countOpenFiles();
+
+            for ( int i = 0; i < BUILD_COUNT; i++ )
+                maven.execute( args, workingDirectory, log );
+
+            assertEquals( openFiles, countOpenFiles() );
+            assertFalse( Boolean.getBoolean( DefaultResolver.RELEASED_PROPERTY ) );
+        }
+
+        assertTrue( Boolean.getBoolean( DefaultResolver.RELEASED_PROPERTY ) );
+    }
 }
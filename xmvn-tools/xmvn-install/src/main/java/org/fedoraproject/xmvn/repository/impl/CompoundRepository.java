@@ -16,6 +16,7 @@
 package org.fedoraproject.xmvn.repository.impl;
 
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -42,11 +43,23 @@ class CompoundRepository
 
     private final List<Repository> slaveRepositories;
 
+    private final Set<Path> rootPaths;
+
     public CompoundRepository( String namespace, Path prefix, List<Repository> slaveRepositories )
     {
         super( namespace );
         this.prefix = prefix;
-        this.slaveRepositories = slaveRepositories;
+        this.slaveRepositories = Collections.unmodifiableList( new ArrayList<>( slaveRepositories ) );
+
+        Set<Path> roots = new LinkedHashSet<>();
+        for ( Repository repository : slaveRepositories )
+        {
+            for ( Path rootPath : repository.getRootPaths() )
+            {
+                roots.add( prefix( rootPath ) );
+            }
+        }
+        rootPaths = Collections.unmodifiableSet( roots );
     }
 
     private Path prefix( Path path )
@@ -72,16 +85,6 @@ class CompoundRepository
     @Override
     public Set<Path> getRootPaths()
     {
-        Set<Path> rootPaths = new LinkedHashSet<>();
-
-        for ( Repository repository : slaveRepositories )
-        {
-            for ( Path rootPath : repository.getRootPaths() )
-            {
-                rootPaths.add( prefix( rootPath ) );
-            }
-        }
-
-        return Collections.unmodifiableSet( rootPaths );
+        return rootPaths;
     }
 }
@@ -15,9 +15,12 @@
  */
 package org.fedoraproject.xmvn.repository.impl;
 
+import java.util.Arrays;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.w3c.dom.Element;
 
@@ -26,6 +29,11 @@ import org.fedoraproject.xmvn.repository.Repository;
 import org.fedoraproject.xmvn.repository.RepositoryConfigurator;
 
 /**
+ * Default implementation of {@link RepositoryConfigurator}.
+ * <p>
+ * Repositories are immutable, so each repository is configured only once for given id and namespace and then shared
+ * by all callers.
+ * 
  * @author Mikolaj Izdebski
  */
 public class DefaultRepositoryConfigurator
@@ -35,6 +43,11 @@ public class DefaultRepositoryConfigurator
 
     private final Map<String, RepositoryFactory> repositoryFactories = new LinkedHashMap<>();
 
+    /**
+     * Maps repository id and namespace to configured repository.
+     */
+    private final Map<List<String>, Repository> repositoryCache = new ConcurrentHashMap<>();
+
     public DefaultRepositoryConfigurator( Configurator configurator )
     {
         this.configurator = configurator;
@@ -47,6 +60,7 @@ public class DefaultRepositoryConfigurator
     void addRepositoryFactory( String type, RepositoryFactory repositoryFactory )
     {
         repositoryFactories.put( type, repositoryFactory );
+        repositoryCache.clear();
     }
 
     private org.fedoraproject.xmvn.config.Repository findDescriptor( String repoId )
@@ -66,6 +80,20 @@ public class DefaultRepositoryConfigurator
 
     @Override
     public Repository configureRepository( String repoId, String namespace )
+    {
+        List<String> key = Arrays.asList( repoId, namespace );
+        Repository repository = repositoryCache.get( key );
+        if ( repository != null )
+            return repository;
+
+        // Not computeIfAbsent() -- compound repositories configure their slave repositories recursively. Concurrent
+        // callers may configure the same repository twice, but only one instance is ever published.
+        repository = createRepository( repoId );
+        Repository previous = repositoryCache.putIfAbsent( key, repository );
+        return previous != null ? previous : repository;
+    }
+
+    private Repository createRepository( String repoId )
     {
         org.fedoraproject.xmvn.config.Repository desc = findDescriptor( repoId );
         if ( desc == null )
@@ -33,12 +33,15 @@ abstract class SimpleRepository
 {
     private final Path root;
 
+    private final Set<Path> rootPaths;
+
     private final Condition condition;
 
     public SimpleRepository( String namespace, Path root, Element filter )
     {
         super( namespace );
         this.root = root;
+        this.rootPaths = Collections.singleton( root );
         this.condition = new Condition( filter );
     }
 
@@ -72,6 +75,6 @@ abstract class SimpleRepository
     @Override
     public Set<Path> getRootPaths()
     {
-        return Collections.singleton( root );
+        return rootPaths;
     }
 }
@@ -25,6 +25,34 @@ public interface ArtifactInstaller
 {
     String DEFAULT_REPOSITORY_ID = "install";
 
+    /**
+     * Prepare artifact for installation, for example by analyzing or modifying artifact file. This method is called
+     * before artifact is installed and it doesn't modify any packages, therefore it may be called concurrently from
+     * multiple threads for different artifacts. Artifacts sharing the same file are always prepared sequentially.
+     * 
+     * @param am metadata of artifact to prepare
+     * @throws ArtifactInstallationException
+     */
+    default void prepare( ArtifactMetadata am )
+        throws ArtifactInstallationException
+    {
+        // Nothing to do by default
+    }
+
+    /**
+     * Prepare artifact for installation, like {@link #prepare(ArtifactMetadata)}, remembering results of expensive
+     * analysis in manifest of current installation, so that they can be reused by later installations.
+     * 
+     * @param am metadata of artifact to prepare
+     * @param manifest manifest of current installation
+     * @throws ArtifactInstallationException
+     */
+    default void prepare( ArtifactMetadata am, InstallationManifest manifest )
+        throws ArtifactInstallationException
+    {
+        prepare( am );
+    }
+
     default void install( JavaPackage targetPackage, ArtifactMetadata am, PackagingRule rule, String basePackageName, String repositoryId )
             throws ArtifactInstallationException
     {
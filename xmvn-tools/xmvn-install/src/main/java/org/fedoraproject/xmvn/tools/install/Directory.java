@@ -60,6 +60,12 @@ public class Directory
             Files.createDirectory( targetAbsolutePath );
     }
 
+    @Override
+    protected String getFingerprint()
+    {
+        return "directory";
+    }
+
     @Override
     protected String getDescriptorExtra()
     {
@@ -56,6 +56,35 @@ public abstract class File
     protected abstract void installContents( Path targetAbsolutePath )
         throws IOException;
 
+    /**
+     * Get fingerprint of file contents, which is used to determine whether file installed previously is up to date.
+     * <p>
+     * Files with equal fingerprints must have identical contents when installed. By default fingerprint is not known,
+     * which means that file is always installed again.
+     * 
+     * @return content fingerprint, or {@code null} if unknown
+     * @throws IOException
+     */
+    protected String getFingerprint()
+        throws IOException
+    {
+        return null;
+    }
+
+    /**
+     * Get fingerprint of file contents, as in {@link #getFingerprint()}, reusing fingerprints already computed during
+     * installation. By default this method just calls {@link #getFingerprint()}.
+     * 
+     * @param manifest installation manifest
+     * @return content fingerprint, or {@code null} if unknown
+     * @throws IOException
+     */
+    protected String getFingerprint( InstallationManifest manifest )
+        throws IOException
+    {
+        return getFingerprint();
+    }
+
     /**
      * Get additional file attributes to be added to file descriptor.
      * <p>
@@ -125,7 +154,23 @@ public abstract class File
         throws IOException
     {
         installRoot = installRoot.toAbsolutePath();
+        createInstallRoot( installRoot );
 
+        Path targetAbsolutePath = installRoot.resolve( targetPath );
+        Files.createDirectories( targetAbsolutePath.getParent() );
+
+        installContents( targetAbsolutePath );
+    }
+
+    /**
+     * Make sure that installation root exists and is a directory, creating it if needed.
+     * 
+     * @param installRoot absolute path to installation root
+     * @throws IOException if installation root exists, but is not a directory, or if it can't be created
+     */
+    static void createInstallRoot( Path installRoot )
+        throws IOException
+    {
         if ( Files.exists( installRoot ) )
         {
             if ( !Files.isDirectory( installRoot ) )
@@ -135,11 +180,6 @@ public abstract class File
         {
             Files.createDirectory( installRoot );
         }
-
-        Path targetAbsolutePath = installRoot.resolve( targetPath );
-        Files.createDirectories( targetAbsolutePath.getParent() );
-
-        installContents( targetAbsolutePath );
     }
 
     /**
@@ -0,0 +1,354 @@
+/*-
+ * Copyright (c) 2018 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fedoraproject.xmvn.tools.install;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Record of files installed into particular installation root.
+ * <p>
+ * For every installed file manifest remembers fingerprint of its contents (for regular files this is a digest of
+ * contents) and state of target file right after it was installed. When the same file is installed again, it can be
+ * skipped if its fingerprint didn't change and target file wasn't modified since it was installed.
+ * <p>
+ * Manifest also remembers results of native code analysis of artifact files, keyed by fingerprint of their contents,
+ * so that rebuilt artifacts with unchanged contents don't need to be analyzed again. Only results used during the
+ * current installation are written back.
+ * <p>
+ * Manifest is stored outside of installation root, so that it doesn't become part of any package. Manifest recorded
+ * for different installation root is ignored.
+ * 
+ * @author Mikolaj Izdebski
+ */
+public final class InstallationManifest
+{
+    private static final String INSTALL_ROOT_KEY = "installRoot";
+
+    private static final String NATIVE_CODE_PREFIX = "nativeCode.";
+
+    private static final int BUFFER_SIZE = 65536;
+
+    private final Path manifestPath;
+
+    private final Path installRoot;
+
+    /**
+     * Maps target path (prefixed with slash) to file fingerprint and state of installed file, separated by newline.
+     */
+    private final Map<String, String> entries = new ConcurrentHashMap<>();
+
+    /**
+     * Maps content fingerprint to result of native code analysis, as read from manifest file or recorded.
+     */
+    private final Map<String, Boolean> nativeCode = new ConcurrentHashMap<>();
+
+    /**
+     * Results of native code analysis looked up or recorded during current installation.
+     */
+    private final Map<String, Boolean> usedNativeCode = new ConcurrentHashMap<>();
+
+    /**
+     * Fingerprints computed during current installation, keyed by absolute file path. Values are file state (size
+     * and modification time) and fingerprint, separated by newline.
+     */
+    private final Map<Path, String> fingerprints = new ConcurrentHashMap<>();
+
+    private volatile boolean modified;
+
+    private InstallationManifest( Path manifestPath, Path installRoot )
+    {
+        this.manifestPath = manifestPath;
+        this.installRoot = installRoot;
+    }
+
+    /**
+     * Read installation manifest from specified file. If the file doesn't exist or it describes a different
+     * installation root then an empty manifest is returned.
+     * 
+     * @param manifestPath path to manifest file
+     * @param installRoot installation root described by the manifest
+     * @return installation manifest (never {@code null})
+     * @throws IOException if manifest file exists, but can't be read
+     */
+    public static InstallationManifest read( Path manifestPath, Path installRoot )
+        throws IOException
+    {
+        installRoot = installRoot.toAbsolutePath().normalize();
+        InstallationManifest manifest = new InstallationManifest( manifestPath, installRoot );
+
+        Properties properties = new Properties();
+        try ( InputStream stream = Files.newInputStream( manifestPath ) )
+        {
+            properties.load( stream );
+        }
+        catch ( NoSuchFileException e )
+        {
+            return manifest;
+        }
+
+        if ( installRoot.toString().equals( properties.getProperty( INSTALL_ROOT_KEY ) ) )
+        {
+            for ( String key : properties.stringPropertyNames() )
+            {
+                if ( key.startsWith( "/" ) )
+                    manifest.entries.put( key, properties.getProperty( key ) );
+                else if ( key.startsWith( NATIVE_CODE_PREFIX ) )
+                    manifest.nativeCode.put( key.substring( NATIVE_CODE_PREFIX.length() ),
+                                             Boolean.valueOf( properties.getProperty( key ) ) );
+            }
+        }
+        else
+        {
+            manifest.modified = true;
+        }
+
+        return manifest;
+    }
+
+    /**
+     * Write manifest back to the file it was read from, if it was modified.
+     * 
+     * @throws IOException
+     */
+    public void write()
+        throws IOException
+    {
+        if ( !modified )
+            return;
+
+        Properties properties = new Properties();
+        properties.setProperty( INSTALL_ROOT_KEY, installRoot.toString() );
+        for ( Entry<String, String> entry : entries.entrySet() )
+            properties.setProperty( entry.getKey(), entry.getValue() );
+        for ( Entry<String, Boolean> entry : usedNativeCode.entrySet() )
+            properties.setProperty( NATIVE_CODE_PREFIX + entry.getKey(), entry.getValue().toString() );
+
+        Path directory = manifestPath.toAbsolutePath().getParent();
+        Path tempFile = Files.createTempFile( directory, manifestPath.getFileName().toString(), ".tmp" );
+        try
+        {
+            try ( OutputStream stream = Files.newOutputStream( tempFile ) )
+            {
+                properties.store( stream, "XMvn installation manifest" );
+            }
+
+            Files.move( tempFile, manifestPath, StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE );
+            modified = false;
+        }
+        finally
+        {
+            Files.deleteIfExists( tempFile );
+        }
+    }
+
+    private static String getKey( Path targetPath )
+    {
+        return "/" + targetPath;
+    }
+
+    private static String getState( Path targetAbsolutePath )
+        throws IOException
+    {
+        BasicFileAttributes attributes =
+            Files.readAttributes( targetAbsolutePath, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS );
+
+        if ( attributes.isDirectory() )
+            return "directory";
+        if ( attributes.isSymbolicLink() )
+            return "symlink " + Files.readSymbolicLink( targetAbsolutePath );
+
+        return "file " + attributes.size() + " " + attributes.lastModifiedTime().toMillis();
+    }
+
+    /**
+     * Determine whether given file was installed and hasn't changed since then.
+     * 
+     * @param targetPath file path, relative to installation root
+     * @param fingerprint current fingerprint of file contents (can be {@code null} if unknown)
+     * @param targetAbsolutePath absolute path to target file
+     * @return {@code true} if and only if file doesn't need to be installed again
+     * @throws IOException
+     */
+    public boolean isUpToDate( Path targetPath, String fingerprint, Path targetAbsolutePath )
+        throws IOException
+    {
+        String entry = entries.get( getKey( targetPath ) );
+        if ( fingerprint == null || entry == null || !Files.exists( targetAbsolutePath, LinkOption.NOFOLLOW_LINKS ) )
+            return false;
+
+        return entry.equals( fingerprint + "\n" + getState( targetAbsolutePath ) );
+    }
+
+    /**
+     * Remove file installed previously, so that it can be installed again. Only files recorded in this manifest are
+     * removed. Directories are never removed.
+     * 
+     * @param targetPath file path, relative to installation root
+     * @param targetAbsolutePath absolute path to target file
+     * @throws IOException
+     */
+    public void removeInstalled( Path targetPath, Path targetAbsolutePath )
+        throws IOException
+    {
+        if ( entries.remove( getKey( targetPath ) ) == null )
+            return;
+
+        modified = true;
+        if ( !Files.isDirectory( targetAbsolutePath, LinkOption.NOFOLLOW_LINKS ) )
+            Files.deleteIfExists( targetAbsolutePath );
+    }
+
+    /**
+     * Record file which was just installed.
+     * 
+     * @param targetPath file path, relative to installation root
+     * @param fingerprint fingerprint of file contents (can be {@code null} if unknown)
+     * @param targetAbsolutePath absolute path to target file
+     * @throws IOException
+     */
+    public void recordInstalled( Path targetPath, String fingerprint, Path targetAbsolutePath )
+        throws IOException
+    {
+        entries.put( getKey( targetPath ), fingerprint + "\n" + getState( targetAbsolutePath ) );
+        modified = true;
+    }
+
+    /**
+     * Get result of native code analysis of file with given contents, recorded during this or previous installation.
+     * 
+     * @param fingerprint fingerprint of file contents
+     * @return {@code true} if file has native code, {@code false} if it doesn't, {@code null} if unknown
+     */
+    public Boolean getNativeCode( String fingerprint )
+    {
+        Boolean result = nativeCode.get( fingerprint );
+        if ( result != null )
+            usedNativeCode.put( fingerprint, result );
+        return result;
+    }
+
+    /**
+     * Record result of native code analysis of file with given contents.
+     * 
+     * @param fingerprint fingerprint of file contents
+     * @param result whether file has native code
+     */
+    public void recordNativeCode( String fingerprint, boolean result )
+    {
+        nativeCode.put( fingerprint, result );
+        usedNativeCode.put( fingerprint, result );
+        modified = true;
+    }
+
+    /**
+     * Get fingerprint of file contents. Fingerprint of each file is computed at most once during installation, unless
+     * the file is modified.
+     * 
+     * @param path path to file
+     * @return content fingerprint
+     * @throws IOException
+     */
+    public String getFingerprint( Path path )
+        throws IOException
+    {
+        Path absolutePath = path.toAbsolutePath().normalize();
+        BasicFileAttributes attributes = Files.readAttributes( absolutePath, BasicFileAttributes.class );
+        String state = attributes.size() + " " + attributes.lastModifiedTime().toMillis() + "\n";
+
+        String memo = fingerprints.get( absolutePath );
+        if ( memo != null && memo.startsWith( state ) )
+            return memo.substring( state.length() );
+
+        String fingerprint = fingerprint( absolutePath );
+        fingerprints.put( absolutePath, state + fingerprint );
+        return fingerprint;
+    }
+
+    private static MessageDigest newDigest()
+    {
+        try
+        {
+            return MessageDigest.getInstance( "SHA-256" );
+        }
+        catch ( NoSuchAlgorithmException e )
+        {
+            throw new RuntimeException( "SHA-256 digest algorithm is not available", e );
+        }
+    }
+
+    private static String toFingerprint( MessageDigest digest )
+    {
+        return "sha256:" + String.format( "%064x", new BigInteger( 1, digest.digest() ) );
+    }
+
+    /**
+     * Compute fingerprint of file contents.
+     * 
+     * @param path path to file
+     * @return content fingerprint
+     * @throws IOException
+     */
+    static String fingerprint( Path path )
+        throws IOException
+    {
+        MessageDigest digest = newDigest();
+        ByteBuffer buffer = ByteBuffer.allocate( BUFFER_SIZE );
+
+        try ( FileChannel channel = FileChannel.open( path, StandardOpenOption.READ ) )
+        {
+            while ( channel.read( buffer ) >= 0 )
+            {
+                buffer.flip();
+                digest.update( buffer );
+                buffer.clear();
+            }
+        }
+
+        return toFingerprint( digest );
+    }
+
+    /**
+     * Compute fingerprint of given bytes.
+     * 
+     * @param content file contents
+     * @return content fingerprint
+     */
+    static String fingerprint( byte[] content )
+    {
+        MessageDigest digest = newDigest();
+        digest.update( content );
+        return toFingerprint( digest );
+    }
+}
@@ -198,9 +198,54 @@ public final class JarUtils
         putAttribute( mf, Artifact.MF_KEY_VERSION, artifact.getVersion(), Artifact.DEFAULT_VERSION );
     }
 
+    /**
+     * Read manifest of JAR file and inject artifact coordinates into it.
+     * 
+     * @return updated manifest, or {@code null} if manifest already contains all artifact coordinates
+     */
+    private static Manifest getInjectedManifest( ZipFile jar, ZipArchiveEntry manifestEntry, Artifact artifact )
+        throws IOException
+    {
+        Manifest mf;
+        try ( InputStream stream = jar.getInputStream( manifestEntry ) )
+        {
+            mf = new Manifest( stream );
+        }
+
+        Manifest originalManifest = new Manifest( mf );
+        updateManifest( artifact, mf );
+
+        if ( mf.equals( originalManifest ) )
+        {
+            LOGGER.trace( "Manifest injection skipped: manifest already contains artifact coordinates" );
+            return null;
+        }
+
+        return mf;
+    }
+
+    /**
+     * Write JAR file with given manifest. All other entries are copied from source JAR in raw form, without
+     * decompressing and compressing them again.
+     */
+    private static void writeInjectedJar( ZipFile jar, ZipArchiveEntry manifestEntry, Manifest mf, Path targetJar )
+        throws IOException
+    {
+        try ( ZipArchiveOutputStream os = new ZipArchiveOutputStream( targetJar.toFile() ) )
+        {
+            // write manifest
+            ZipArchiveEntry newManifestEntry = new ZipArchiveEntry( MANIFEST_PATH );
+            os.putArchiveEntry( newManifestEntry );
+            mf.write( os );
+            os.closeArchiveEntry();
+            // copy the rest of content
+            jar.copyRawEntries( os, entry -> !entry.equals( manifestEntry ) );
+        }
+    }
+
     /**
      * Inject artifact coordinates into manifest of specified JAR (or WAR, EAR, ...) file. The file is modified
-     * in-place.
+     * in-place. The file is not modified if its manifest already contains artifact coordinates.
      * 
      * @param targetJar
      * @param artifact
@@ -215,18 +260,13 @@ public final class JarUtils
                 ZipArchiveEntry manifestEntry = jar.getEntry( MANIFEST_PATH );
                 if ( manifestEntry != null )
                 {
-                    Manifest mf = new Manifest( jar.getInputStream( manifestEntry ) );
-                    updateManifest( artifact, mf );
+                    Manifest mf = getInjectedManifest( jar, manifestEntry, artifact );
+                    if ( mf == null )
+                        return;
                     Files.delete( targetJar );
-                    try ( ZipArchiveOutputStream os = new ZipArchiveOutputStream( targetJar.toFile() ) )
+                    try
                     {
-                        // write manifest
-                        ZipArchiveEntry newManifestEntry = new ZipArchiveEntry( MANIFEST_PATH );
-                        os.putArchiveEntry( newManifestEntry );
-                        mf.write( os );
-                        os.closeArchiveEntry();
-                        // copy the rest of content
-                        jar.copyRawEntries( os, entry -> !entry.equals( manifestEntry ) );
+                        writeInjectedJar( jar, manifestEntry, mf, targetJar );
                     }
                     catch ( IOException e )
                     {
@@ -247,4 +287,64 @@ public final class JarUtils
             LOGGER.debug( "I/O exception caught when trying to read JAR: {}", targetJar );
         }
     }
+
+    /**
+     * Copy JAR (or WAR, EAR, ...) file to target location, injecting artifact coordinates into its manifest on the way.
+     * <p>
+     * Nothing is written if the source file is not a JAR, if it has no manifest or if its manifest already contains
+     * artifact coordinates. In this case the source file can be copied to target location unchanged.
+     * 
+     * @param sourceJar path to source JAR, which is not modified
+     * @param targetJar path to target file, which must not exist
+     * @param artifact artifact which coordinates are injected
+     * @return {@code true} if target file was written, {@code false} if manifest injection was not needed
+     * @throws IOException if target file could not be written
+     */
+    public static boolean injectManifest( Path sourceJar, Path targetJar, Artifact artifact )
+        throws IOException
+    {
+        LOGGER.trace( "Trying to inject manifest to {}", artifact );
+
+        ZipFile jar;
+        try
+        {
+            jar = new ZipFile( sourceJar.toFile() );
+        }
+        catch ( IOException e )
+        {
+            LOGGER.debug( "I/O exception caught when trying to read JAR: {}", sourceJar );
+            return false;
+        }
+
+        try
+        {
+            ZipArchiveEntry manifestEntry = jar.getEntry( MANIFEST_PATH );
+            if ( manifestEntry == null )
+            {
+                LOGGER.trace( "Manifest injection skipped: no pre-existing manifest found to update" );
+                return false;
+            }
+
+            Manifest mf;
+            try
+            {
+                mf = getInjectedManifest( jar, manifestEntry, artifact );
+            }
+            catch ( IOException e )
+            {
+                LOGGER.debug( "I/O exception caught when trying to read manifest of JAR: {}", sourceJar );
+                return false;
+            }
+            if ( mf == null )
+                return false;
+
+            writeInjectedJar( jar, manifestEntry, mf, targetJar );
+            LOGGER.trace( "Manifest injected successfully" );
+            return true;
+        }
+        finally
+        {
+            jar.close();
+        }
+    }
 }
@@ -15,14 +15,23 @@
  */
 package org.fedoraproject.xmvn.tools.install;
 
-import java.io.ByteArrayOutputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
 import java.util.UUID;
-import java.util.stream.Collectors;
+
+import javax.xml.stream.XMLStreamException;
 
 import org.fedoraproject.xmvn.metadata.ArtifactMetadata;
 import org.fedoraproject.xmvn.metadata.PackageMetadata;
@@ -62,68 +71,81 @@ public class JavaPackage
     }
 
     /**
-     * Create metadata contents split by namespace, so that artifacts with different namespaces don't have conflicting
-     * metadata files.
+     * Partition artifacts by namespace in a single pass, so that artifacts with different namespaces don't have
+     * conflicting metadata files. Namespaces are ordered by their first occurrence. If there are no artifacts then
+     * there is a single empty partition for the default namespace.
      * 
-     * @param namespace namespace name
-     * @return new metadata with subset of artifacts
+     * @return map from namespace to artifacts in that namespace
      */
-    private PackageMetadata getSplitMetadata( String namespace )
-    {
-        PackageMetadata splitMetadata = new PackageMetadata();
-        splitMetadata.setUuid( UUID.randomUUID().toString() );
-        splitMetadata.setProperties( metadata.getProperties() );
-        List<ArtifactMetadata> allArtifacts = metadata.getArtifacts();
-        List<ArtifactMetadata> splitArtifacts =
-            allArtifacts.stream().filter( a -> namespace.equals( a.getNamespace() ) ).collect( Collectors.toList() );
-        splitMetadata.setArtifacts( splitArtifacts );
-        splitMetadata.setSkippedArtifacts( metadata.getSkippedArtifacts() );
-        return splitMetadata;
-    }
-
-    private byte[] getMetadataContents( String namespace )
-    {
-        try
-        {
-            ByteArrayOutputStream bos = new ByteArrayOutputStream();
-            new MetadataStaxWriter().write( bos, getSplitMetadata( namespace ) );
-            return bos.toByteArray();
-        }
-        catch ( Exception e )
-        {
-            throw new RuntimeException( "Failed to generate package metadata", e );
-        }
-    }
-
-    private Set<String> getNamespaces()
+    private Map<String, List<ArtifactMetadata>> partitionArtifacts()
     {
-        Set<String> namespaces = new LinkedHashSet<>();
-        for ( ArtifactMetadata am : getMetadata().getArtifacts() )
+        Map<String, List<ArtifactMetadata>> artifactsByNamespace = new LinkedHashMap<>();
+        for ( ArtifactMetadata am : metadata.getArtifacts() )
         {
-            namespaces.add( am.getNamespace() );
+            artifactsByNamespace.computeIfAbsent( am.getNamespace(), namespace -> new ArrayList<>() ).add( am );
         }
-        if ( namespaces.isEmpty() )
+        if ( artifactsByNamespace.isEmpty() )
         {
-            namespaces.add( "" );
+            artifactsByNamespace.put( "", Collections.emptyList() );
         }
-        return namespaces;
+        return artifactsByNamespace;
     }
 
     @Override
     public Set<File> getFiles()
     {
         Set<File> allFiles = new LinkedHashSet<>( super.getFiles() );
-        for ( String namespace : getNamespaces() )
+        for ( Entry<String, List<ArtifactMetadata>> entry : partitionArtifacts().entrySet() )
         {
+            String namespace = entry.getKey();
             String metadataName = namespace + ( namespace.isEmpty() ? "" : "-" ) + basePackageName
                 + ( getId().isEmpty() ? "" : "-" ) + getId();
             Path metadataPath = metadataDir.resolve( metadataName + ".xml" );
-            File metadataFile = new RegularFile( metadataPath, () -> getMetadataContents( namespace ) );
-            allFiles.add( metadataFile );
+            allFiles.add( new MetadataFile( metadataPath, entry.getValue() ) );
         }
         return Collections.unmodifiableSet( allFiles );
     }
 
+    /**
+     * Metadata file containing artifacts from single namespace. Metadata is generated when the file is installed and
+     * it is written directly to target file.
+     */
+    private class MetadataFile
+        extends File
+    {
+        private final List<ArtifactMetadata> artifacts;
+
+        public MetadataFile( Path targetPath, List<ArtifactMetadata> artifacts )
+        {
+            super( targetPath );
+            this.artifacts = artifacts;
+        }
+
+        @Override
+        protected void installContents( Path targetAbsolutePath )
+            throws IOException
+        {
+            PackageMetadata splitMetadata = new PackageMetadata();
+            splitMetadata.setUuid( UUID.randomUUID().toString() );
+            splitMetadata.setProperties( metadata.getProperties() );
+            splitMetadata.setArtifacts( artifacts );
+            splitMetadata.setSkippedArtifacts( metadata.getSkippedArtifacts() );
+
+            try ( OutputStream stream = new BufferedOutputStream( Files.newOutputStream( targetAbsolutePath,
+                                                                                         StandardOpenOption.CREATE_NEW,
+                                                                                         StandardOpenOption.WRITE ) ) )
+            {
+                new MetadataStaxWriter().write( stream, splitMetadata );
+            }
+            catch ( XMLStreamException e )
+            {
+                throw new IOException( "Failed to generate package metadata", e );
+            }
+        }
+
+        // Fingerprint is left unknown as generated metadata is never the same -- it contains random UUIDs.
+    }
+
     /**
      * Get metadata associated with this package.
      * 
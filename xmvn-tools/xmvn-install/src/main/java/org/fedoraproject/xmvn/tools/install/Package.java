@@ -16,12 +16,26 @@
 package org.fedoraproject.xmvn.tools.install;
 
 import java.io.IOException;
-import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.LinkOption;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * Class describing a binary package as a set of files.
@@ -30,6 +44,11 @@ import java.util.Set;
  */
 public class Package
 {
+    private final Logger logger = LoggerFactory.getLogger( Package.class );
+
+    private static final int INSTALLATION_THREADS =
+        Integer.getInteger( "xmvn.installer.threads", Runtime.getRuntime().availableProcessors() );
+
     /**
      * ID of main package.
      */
@@ -106,6 +125,10 @@ public class Package
      * <p>
      * Target directory won't be overwritten if it already exists, which allows installation of multiple packages into
      * the same directory.
+     * <p>
+     * Parent directories of all files are created upfront, after which files are installed concurrently, using the
+     * number of threads specified by system property {@code xmvn.installer.threads} (by default the number of available
+     * processors).
      * 
      * @param installRoot target directory where package files will be installed
      * @throws IOException
@@ -113,8 +136,160 @@ public class Package
     public void install( Path installRoot )
         throws IOException
     {
-        for ( File file : getFiles() )
-            file.install( installRoot );
+        install( installRoot, null );
+    }
+
+    /**
+     * Install this package into specified root, skipping files which are already installed and up to date according
+     * to installation manifest. Files recorded in the manifest which are out of date are replaced. Manifest is updated
+     * to reflect installed files, but it is not written.
+     * 
+     * @param installRoot target directory where package files will be installed
+     * @param manifest manifest of files installed into installation root (can be {@code null}, in which case all files
+     *            are installed unconditionally)
+     * @throws IOException
+     */
+    public void install( Path installRoot, InstallationManifest manifest )
+        throws IOException
+    {
+        Set<File> packageFiles = getFiles();
+        if ( packageFiles.isEmpty() )
+            return;
+
+        long startTime = System.nanoTime();
+        installRoot = installRoot.toAbsolutePath();
+
+        File.createInstallRoot( installRoot );
+        createParentDirectories( installRoot, packageFiles );
+        Set<File> installedFiles = installFiles( installRoot, packageFiles, manifest );
+
+        reportThroughput( installRoot, packageFiles, installedFiles, System.nanoTime() - startTime );
+    }
+
+    private void createParentDirectories( Path installRoot, Set<File> packageFiles )
+        throws IOException
+    {
+        // Sorted set orders directories before their subdirectories, so each directory is created just once
+        Set<Path> directories = new TreeSet<>();
+        for ( File file : packageFiles )
+        {
+            Path parent = file.getTargetPath().getParent();
+            if ( parent != null )
+                directories.add( parent );
+        }
+
+        Set<Path> created = new LinkedHashSet<>();
+        for ( Path directory : directories )
+        {
+            Path parent = directory.getParent();
+            if ( parent != null && created.contains( parent ) )
+            {
+                Path absoluteDirectory = installRoot.resolve( directory );
+                if ( !Files.isDirectory( absoluteDirectory, LinkOption.NOFOLLOW_LINKS ) )
+                    Files.createDirectory( absoluteDirectory );
+            }
+            else
+            {
+                Files.createDirectories( installRoot.resolve( directory ) );
+            }
+
+            created.add( directory );
+        }
+    }
+
+    private static boolean installFile( Path installRoot, File file, InstallationManifest manifest )
+        throws IOException
+    {
+        Path targetAbsolutePath = installRoot.resolve( file.getTargetPath() );
+        if ( manifest == null )
+        {
+            file.installContents( targetAbsolutePath );
+            return true;
+        }
+
+        String fingerprint = file.getFingerprint( manifest );
+        if ( manifest.isUpToDate( file.getTargetPath(), fingerprint, targetAbsolutePath ) )
+            return false;
+
+        manifest.removeInstalled( file.getTargetPath(), targetAbsolutePath );
+        file.installContents( targetAbsolutePath );
+        manifest.recordInstalled( file.getTargetPath(), fingerprint, targetAbsolutePath );
+        return true;
+    }
+
+    private Set<File> installFiles( Path installRoot, Set<File> packageFiles, InstallationManifest manifest )
+        throws IOException
+    {
+        Set<File> installedFiles = ConcurrentHashMap.newKeySet();
+
+        int threads = Math.min( INSTALLATION_THREADS, packageFiles.size() );
+        if ( threads <= 1 )
+        {
+            for ( File file : packageFiles )
+            {
+                if ( installFile( installRoot, file, manifest ) )
+                    installedFiles.add( file );
+            }
+            return installedFiles;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool( threads );
+        try
+        {
+            List<Future<?>> futures = new ArrayList<>( packageFiles.size() );
+            for ( File file : packageFiles )
+            {
+                futures.add( executor.submit( () ->
+                {
+                    if ( installFile( installRoot, file, manifest ) )
+                        installedFiles.add( file );
+                    return null;
+                } ) );
+            }
+
+            for ( Future<?> future : futures )
+                future.get();
+
+            return installedFiles;
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new IOException( "Interrupted while installing " + this, e );
+        }
+        catch ( ExecutionException e )
+        {
+            Throwable cause = e.getCause();
+            if ( cause instanceof IOException )
+                throw (IOException) cause;
+            if ( cause instanceof RuntimeException )
+                throw (RuntimeException) cause;
+            if ( cause instanceof Error )
+                throw (Error) cause;
+            throw new IOException( "Failed to install " + this, cause );
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    private void reportThroughput( Path installRoot, Set<File> packageFiles, Set<File> installedFiles,
+                                   long elapsedNanos )
+        throws IOException
+    {
+        long bytes = 0;
+        for ( File file : installedFiles )
+        {
+            if ( file instanceof RegularFile )
+                bytes += Files.size( installRoot.resolve( file.getTargetPath() ) );
+        }
+
+        long millis = TimeUnit.NANOSECONDS.toMillis( elapsedNanos );
+        long throughput = bytes * 1000 / 1024 / Math.max( millis, 1 );
+        logger.info( "Installed {} files ({} kB) of {} in {} ms ({} kB/s), {} files were up to date",
+                     installedFiles.size(), bytes / 1024, this, millis, throughput,
+                     packageFiles.size() - installedFiles.size() );
     }
 
     /**
@@ -128,14 +303,20 @@ public class Package
     public void writeDescriptor( Path descriptorPath )
         throws IOException
     {
-        try ( Writer writer = Files.newBufferedWriter( descriptorPath ) )
+        StringBuilder sb = new StringBuilder();
+        for ( File file : getFiles() )
         {
-            for ( File file : getFiles() )
-            {
-                writer.write( file.getDescriptor() );
-                writer.write( '\n' );
-            }
+            sb.append( file.getDescriptor() );
+            sb.append( '\n' );
         }
+        byte[] descriptor = sb.toString().getBytes( StandardCharsets.UTF_8 );
+
+        // Leave descriptor untouched if it is already up to date
+        if ( Files.isRegularFile( descriptorPath ) && Files.size( descriptorPath ) == descriptor.length
+            && Arrays.equals( Files.readAllBytes( descriptorPath ), descriptor ) )
+            return;
+
+        Files.write( descriptorPath, descriptor );
     }
 
     @Override
@@ -16,20 +16,36 @@
 package org.fedoraproject.xmvn.tools.install;
 
 import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystemException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.EnumSet;
 import java.util.function.Supplier;
 
 /**
  * A regular file created installed in target package.
  * <p>
  * The file can be installed either by coping an existing file (source file), or by writing provided contents.
+ * <p>
+ * When source file resides on the same filesystem as installation root, target file is created as a hard link to
+ * source file, unless this is disabled by setting system property {@code xmvn.installer.hardlinks} to {@code false}.
+ * Otherwise file contents are copied with {@link FileChannel#transferTo}, which lets the kernel copy data without
+ * passing it through user space.
  * 
  * @author Mikolaj Izdebski
  */
 public class RegularFile
     extends File
 {
+    private static final boolean HARDLINKS_ENABLED =
+        Boolean.parseBoolean( System.getProperty( "xmvn.installer.hardlinks", "true" ) );
+
     /**
      * Path to source file which contents will be copied to create target file. Can be {@code null}, in which case byte
      * contents are used instead.
@@ -42,6 +58,12 @@ public class RegularFile
      */
     private final Supplier<byte[]> content;
 
+    /**
+     * Contents obtained from provider when computing fingerprint, retained until the file is installed so that
+     * provider doesn't need to be called again.
+     */
+    private byte[] providedContent;
+
     /**
      * Create a regular file object, which contents will be populated from a source file. Target file will have default
      * access mode (0644).
@@ -132,11 +154,93 @@ public class RegularFile
     {
         if ( sourcePath != null )
         {
-            Files.copy( sourcePath, targetPath );
+            if ( !HARDLINKS_ENABLED || !createLink( sourcePath, targetPath ) )
+                copy( sourcePath, targetPath );
         }
         else
         {
-            Files.write( targetPath, content.get() );
+            byte[] bytes = providedContent != null ? providedContent : content.get();
+            providedContent = null;
+            Files.write( targetPath, bytes );
+        }
+    }
+
+    @Override
+    protected String getFingerprint()
+        throws IOException
+    {
+        if ( sourcePath != null )
+            return InstallationManifest.fingerprint( sourcePath );
+
+        providedContent = content.get();
+        return InstallationManifest.fingerprint( providedContent );
+    }
+
+    @Override
+    protected String getFingerprint( InstallationManifest manifest )
+        throws IOException
+    {
+        if ( sourcePath != null )
+            return manifest.getFingerprint( sourcePath );
+
+        return getFingerprint();
+    }
+
+    /**
+     * Try to create target file as a hard link to source file.
+     * 
+     * @return {@code true} if hard link was created, {@code false} if it couldn't be created, for example because
+     *         files are on different filesystems
+     */
+    private static boolean createLink( Path sourcePath, Path targetPath )
+        throws IOException
+    {
+        // Hard links to symbolic links are possible, but files are copied following links, so link the final target
+        Path realSourcePath = sourcePath.toRealPath();
+        if ( !Files.isRegularFile( realSourcePath ) )
+            return false;
+
+        try
+        {
+            Files.createLink( targetPath, realSourcePath );
+            return true;
+        }
+        catch ( FileAlreadyExistsException e )
+        {
+            throw e;
+        }
+        catch ( FileSystemException | UnsupportedOperationException e )
+        {
+            return false;
+        }
+    }
+
+    /**
+     * Copy source file to target, which must not exist. Just like {@link Files#copy}, target file is created with the
+     * same permissions as source file, subject to umask.
+     */
+    private static void copy( Path sourcePath, Path targetPath )
+        throws IOException
+    {
+        FileAttribute<?>[] attributes = new FileAttribute<?>[0];
+        PosixFileAttributeView view = Files.getFileAttributeView( sourcePath, PosixFileAttributeView.class );
+        if ( view != null )
+            attributes =
+                new FileAttribute<?>[] { PosixFilePermissions.asFileAttribute( view.readAttributes().permissions() ) };
+
+        try ( FileChannel in = FileChannel.open( sourcePath, StandardOpenOption.READ );
+                        FileChannel out = FileChannel.open( targetPath, EnumSet.of( StandardOpenOption.CREATE_NEW,
+                                                                                     StandardOpenOption.WRITE ),
+                                                            attributes ) )
+        {
+            long position = 0;
+            long transferred;
+            do
+            {
+                transferred = in.transferTo( position, Long.MAX_VALUE, out );
+                position += transferred;
+            }
+            while ( transferred > 0 );
         }
     }
 }
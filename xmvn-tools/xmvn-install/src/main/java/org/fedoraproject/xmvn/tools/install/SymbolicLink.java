@@ -61,4 +61,10 @@ public class SymbolicLink
     {
         Files.createSymbolicLink( targetAbsolutePath, referencedPath );
     }
+
+    @Override
+    protected String getFingerprint()
+    {
+        return "symlink " + referencedPath;
+    }
 }
@@ -33,4 +33,10 @@ class And
     {
         return lhs & rhs;
     }
+
+    @Override
+    protected int compile( ConditionCompiler compiler, int[] args )
+    {
+        return compiler.and( args );
+    }
 }
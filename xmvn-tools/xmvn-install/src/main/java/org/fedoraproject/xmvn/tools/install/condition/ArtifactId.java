@@ -28,4 +28,10 @@ class ArtifactId
     {
         return context.getArtifact().getArtifactId();
     }
+
+    @Override
+    int compile( ConditionCompiler compiler )
+    {
+        return compiler.artifactField( CompiledCondition.ARTIFACT_ID );
+    }
 }
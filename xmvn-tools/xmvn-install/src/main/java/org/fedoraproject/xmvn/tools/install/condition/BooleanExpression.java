@@ -23,4 +23,6 @@ import org.fedoraproject.xmvn.repository.ArtifactContext;
 abstract class BooleanExpression
 {
     public abstract boolean getValue( ArtifactContext context );
+
+    abstract int compile( ConditionCompiler compiler );
 }
@@ -35,4 +35,10 @@ class BooleanLiteral
     {
         return value;
     }
+
+    @Override
+    int compile( ConditionCompiler compiler )
+    {
+        return compiler.constant( value );
+    }
 }
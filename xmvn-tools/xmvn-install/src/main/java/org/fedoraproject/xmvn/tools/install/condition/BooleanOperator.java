@@ -49,4 +49,16 @@ abstract class BooleanOperator
     }
 
     protected abstract boolean evaluate( boolean lhs, boolean rhs );
+
+    protected abstract int compile( ConditionCompiler compiler, int[] args );
+
+    @Override
+    int compile( ConditionCompiler compiler )
+    {
+        int[] args = new int[children.size()];
+        for ( int i = 0; i < args.length; i++ )
+            args[i] = children.get( i ).compile( compiler );
+
+        return compile( compiler, args );
+    }
 }
@@ -28,4 +28,10 @@ class Classifier
     {
         return context.getArtifact().getClassifier();
     }
+
+    @Override
+    int compile( ConditionCompiler compiler )
+    {
+        return compiler.artifactField( CompiledCondition.CLASSIFIER );
+    }
 }
@@ -0,0 +1,286 @@
+/*-
+ * Copyright (c) 2018 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fedoraproject.xmvn.tools.install.condition;
+
+import org.fedoraproject.xmvn.artifact.Artifact;
+import org.fedoraproject.xmvn.repository.ArtifactContext;
+
+/**
+ * Condition compiled into a flat form, suitable for fast evaluation.
+ * <p>
+ * Boolean expressions are stored as a directed acyclic graph of nodes, in which every distinct subexpression appears
+ * only once. Nodes are kept in arrays, with operands always preceding nodes that use them. String operands are either
+ * constants or slots, which hold values looked up from artifact context. Each slot and each node used more than once is
+ * evaluated at most once per artifact.
+ * 
+ * @author Mikolaj Izdebski
+ */
+final class CompiledCondition
+{
+    static final byte FALSE = 0;
+
+    static final byte TRUE = 1;
+
+    static final byte NOT = 2;
+
+    static final byte AND = 3;
+
+    static final byte OR = 4;
+
+    static final byte XOR = 5;
+
+    static final byte EQUALS = 6;
+
+    static final byte DEFINED = 7;
+
+    static final byte GROUP_ID = 0;
+
+    static final byte ARTIFACT_ID = 1;
+
+    static final byte EXTENSION = 2;
+
+    static final byte CLASSIFIER = 3;
+
+    static final byte VERSION = 4;
+
+    static final byte PROPERTY = 5;
+
+    /**
+     * Operation code of each node.
+     */
+    private final byte[] opcodes;
+
+    /**
+     * Operands of each node. Boolean operands are node indexes. String operands are slot indexes if non-negative, or
+     * bitwise complements of constant indexes otherwise.
+     */
+    private final int[][] operands;
+
+    /**
+     * Whether node is an operand of more than one other node, in which case its value is remembered.
+     */
+    private final boolean[] shared;
+
+    /**
+     * Kind of value held in each slot.
+     */
+    private final byte[] slotKinds;
+
+    /**
+     * Property key for property slots, {@code null} for other slots.
+     */
+    private final String[] slotKeys;
+
+    private final String[] constants;
+
+    private final int root;
+
+    /**
+     * Whether any node or slot is used more than once, in which case values need to be remembered during evaluation.
+     */
+    private final boolean memoize;
+
+    CompiledCondition( byte[] opcodes, int[][] operands, boolean[] shared, byte[] slotKinds, String[] slotKeys,
+                       String[] constants, int root )
+    {
+        this.opcodes = opcodes;
+        this.operands = operands;
+        this.shared = shared;
+        this.slotKinds = slotKinds;
+        this.slotKeys = slotKeys;
+        this.constants = constants;
+        this.root = root;
+
+        boolean memoizeNodes = false;
+        int[] slotReferences = new int[slotKinds.length];
+        for ( int node = 0; node < opcodes.length; node++ )
+        {
+            memoizeNodes |= shared[node];
+            if ( opcodes[node] == EQUALS || opcodes[node] == DEFINED )
+            {
+                for ( int arg : operands[node] )
+                {
+                    if ( arg >= 0 )
+                        slotReferences[arg]++;
+                }
+            }
+        }
+        boolean memoizeSlots = false;
+        for ( int references : slotReferences )
+            memoizeSlots |= references > 1;
+        this.memoize = memoizeNodes || memoizeSlots;
+    }
+
+    /**
+     * Get number of nodes in the compiled condition.
+     * 
+     * @return number of nodes
+     */
+    int getNodeCount()
+    {
+        return opcodes.length;
+    }
+
+    /**
+     * Determine whether compiled condition is constant, that is its value doesn't depend on artifact.
+     * 
+     * @return {@code true} iff condition is constant
+     */
+    boolean isConstant()
+    {
+        return opcodes[root] == FALSE || opcodes[root] == TRUE;
+    }
+
+    public boolean getValue( ArtifactContext context )
+    {
+        switch ( opcodes[root] )
+        {
+            case FALSE:
+                return false;
+            case TRUE:
+                return true;
+            default:
+                return new Evaluation( context ).evaluate( root );
+        }
+    }
+
+    /**
+     * State of evaluation of the condition for a single artifact.
+     */
+    private final class Evaluation
+    {
+        private static final byte UNKNOWN = 0;
+
+        private static final byte KNOWN_FALSE = 1;
+
+        private static final byte KNOWN_TRUE = 2;
+
+        private final ArtifactContext context;
+
+        private final String[] values = memoize ? new String[slotKinds.length] : null;
+
+        private final boolean[] loaded = memoize ? new boolean[slotKinds.length] : null;
+
+        private final byte[] results = memoize ? new byte[opcodes.length] : null;
+
+        public Evaluation( ArtifactContext context )
+        {
+            this.context = context;
+        }
+
+        private String getSlotValue( int slot )
+        {
+            if ( memoize && loaded[slot] )
+                return values[slot];
+
+            Artifact artifact = context.getArtifact();
+            String value;
+            switch ( slotKinds[slot] )
+            {
+                case GROUP_ID:
+                    value = artifact.getGroupId();
+                    break;
+                case ARTIFACT_ID:
+                    value = artifact.getArtifactId();
+                    break;
+                case EXTENSION:
+                    value = artifact.getExtension();
+                    break;
+                case CLASSIFIER:
+                    value = artifact.getClassifier();
+                    break;
+                case VERSION:
+                    value = artifact.getVersion();
+                    break;
+                default:
+                    value = context.getProperty( slotKeys[slot] );
+            }
+
+            if ( memoize )
+            {
+                values[slot] = value;
+                loaded[slot] = true;
+            }
+            return value;
+        }
+
+        private String getString( int operand )
+        {
+            return operand >= 0 ? getSlotValue( operand ) : constants[~operand];
+        }
+
+        public boolean evaluate( int node )
+        {
+            if ( !shared[node] )
+                return compute( node );
+
+            if ( results[node] == UNKNOWN )
+                results[node] = compute( node ) ? KNOWN_TRUE : KNOWN_FALSE;
+
+            return results[node] == KNOWN_TRUE;
+        }
+
+        private boolean compute( int node )
+        {
+            int[] args = operands[node];
+
+            switch ( opcodes[node] )
+            {
+                case FALSE:
+                    return false;
+
+                case TRUE:
+                    return true;
+
+                case NOT:
+                    return !evaluate( args[0] );
+
+                case AND:
+                    for ( int arg : args )
+                    {
+                        if ( !evaluate( arg ) )
+                            return false;
+                    }
+                    return true;
+
+                case OR:
+                    for ( int arg : args )
+                    {
+                        if ( evaluate( arg ) )
+                            return true;
+                    }
+                    return false;
+
+                case XOR:
+                    boolean value = false;
+                    for ( int arg : args )
+                        value ^= evaluate( arg );
+                    return value;
+
+                case EQUALS:
+                    String lhs = getString( args[0] );
+                    String rhs = getString( args[1] );
+                    return lhs == null ? rhs == null : lhs.equals( rhs );
+
+                case DEFINED:
+                    return getSlotValue( args[0] ) != null;
+
+                default:
+                    throw new IllegalStateException( "Invalid opcode: " + opcodes[node] );
+            }
+        }
+    }
+}
@@ -24,11 +24,19 @@ import org.w3c.dom.Element;
 import org.fedoraproject.xmvn.repository.ArtifactContext;
 
 /**
+ * Condition which artifacts must meet, for example to be stored in a repository.
+ * <p>
+ * Condition is parsed from XML into an expression tree, which is then compiled into {@link CompiledCondition}, so that
+ * it can be evaluated efficiently for large numbers of artifacts.
+ * 
  * @author Mikolaj Izdebski
  */
 public class Condition
 {
-    private final BooleanExpression expr;
+    /**
+     * Condition expression compiled into form suitable for fast evaluation.
+     */
+    private final CompiledCondition compiledExpr;
 
     private StringExpression parseString( Element dom )
     {
@@ -80,7 +88,7 @@ public class Condition
 
             case "false":
                 DomUtils.parseAsEmpty( dom );
-                return new BooleanLiteral( true );
+                return new BooleanLiteral( false );
 
             case "not":
                 return new Not( parseBoolean( DomUtils.parseAsWrapper( dom ) ) );
@@ -115,18 +123,32 @@ public class Condition
 
     public Condition( Element dom )
     {
+        BooleanExpression expr;
         if ( dom == null )
         {
-            this.expr = new BooleanLiteral( true );
+            expr = new BooleanLiteral( true );
         }
         else
         {
-            this.expr = parseBoolean( DomUtils.parseAsWrapper( dom ) );
+            expr = parseBoolean( DomUtils.parseAsWrapper( dom ) );
         }
+
+        ConditionCompiler compiler = new ConditionCompiler();
+        this.compiledExpr = compiler.build( expr.compile( compiler ) );
+    }
+
+    /**
+     * Get compiled form of this condition.
+     * 
+     * @return compiled condition
+     */
+    CompiledCondition getCompiledExpression()
+    {
+        return compiledExpr;
     }
 
     public boolean getValue( ArtifactContext context )
     {
-        return expr.getValue( context );
+        return compiledExpr.getValue( context );
     }
 }
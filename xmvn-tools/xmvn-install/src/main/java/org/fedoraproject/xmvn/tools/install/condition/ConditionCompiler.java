@@ -0,0 +1,288 @@
+/*-
+ * Copyright (c) 2018 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fedoraproject.xmvn.tools.install.condition;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Compiler of condition expressions into {@link CompiledCondition}.
+ * <p>
+ * Expressions are folded while being compiled: operators with constant operands are replaced by constants, neutral
+ * operands are dropped, repeated operands are merged and double negations are removed. Structurally identical
+ * subexpressions are compiled into a single node.
+ * 
+ * @author Mikolaj Izdebski
+ */
+final class ConditionCompiler
+{
+    private final List<Byte> opcodes = new ArrayList<>();
+
+    private final List<int[]> operands = new ArrayList<>();
+
+    private final Map<List<Integer>, Integer> nodeIndex = new HashMap<>();
+
+    private final List<Byte> slotKinds = new ArrayList<>();
+
+    private final List<String> slotKeys = new ArrayList<>();
+
+    private final Map<List<Object>, Integer> slotIndex = new HashMap<>();
+
+    private final List<String> constants = new ArrayList<>();
+
+    private final Map<String, Integer> constantIndex = new HashMap<>();
+
+    public ConditionCompiler()
+    {
+        node( CompiledCondition.FALSE );
+        node( CompiledCondition.TRUE );
+    }
+
+    private int node( byte opcode, int... args )
+    {
+        List<Integer> key = new ArrayList<>( args.length + 1 );
+        key.add( (int) opcode );
+        for ( int arg : args )
+            key.add( arg );
+
+        return nodeIndex.computeIfAbsent( key, k -> {
+            opcodes.add( opcode );
+            operands.add( args );
+            return opcodes.size() - 1;
+        } );
+    }
+
+    private byte opcode( int node )
+    {
+        return opcodes.get( node );
+    }
+
+    private boolean isConstant( int node )
+    {
+        return opcode( node ) == CompiledCondition.FALSE || opcode( node ) == CompiledCondition.TRUE;
+    }
+
+    public int constant( boolean value )
+    {
+        return value ? 1 : 0;
+    }
+
+    public int not( int arg )
+    {
+        if ( isConstant( arg ) )
+            return constant( opcode( arg ) == CompiledCondition.FALSE );
+
+        if ( opcode( arg ) == CompiledCondition.NOT )
+            return operands.get( arg )[0];
+
+        return node( CompiledCondition.NOT, arg );
+    }
+
+    /**
+     * Compile conjunction ({@code absorbing == false}) or disjunction ({@code absorbing == true}).
+     */
+    private int junction( byte opcode, boolean absorbing, int[] args )
+    {
+        Set<Integer> children = new LinkedHashSet<>();
+        for ( int arg : args )
+        {
+            if ( arg == constant( absorbing ) )
+                return arg;
+
+            if ( arg == constant( !absorbing ) )
+                continue;
+
+            // Nested operators of the same kind are flattened
+            if ( opcode( arg ) == opcode )
+            {
+                for ( int grandChild : operands.get( arg ) )
+                    children.add( grandChild );
+            }
+            else
+            {
+                children.add( arg );
+            }
+        }
+
+        if ( children.isEmpty() )
+            return constant( !absorbing );
+        if ( children.size() == 1 )
+            return children.iterator().next();
+
+        return node( opcode, children.stream().mapToInt( Integer::intValue ).toArray() );
+    }
+
+    public int and( int... args )
+    {
+        return junction( CompiledCondition.AND, false, args );
+    }
+
+    public int or( int... args )
+    {
+        return junction( CompiledCondition.OR, true, args );
+    }
+
+    public int xor( int... args )
+    {
+        boolean parity = false;
+
+        // Operands which occur even number of times cancel out
+        Map<Integer, Boolean> occurrences = new LinkedHashMap<>();
+        for ( int arg : args )
+        {
+            if ( isConstant( arg ) )
+                parity ^= arg == constant( true );
+            else
+                occurrences.merge( arg, true, ( x, y ) -> !x );
+        }
+
+        int[] children = occurrences.entrySet().stream() //
+                                    .filter( e -> e.getValue() ) //
+                                    .mapToInt( e -> e.getKey() ) //
+                                    .toArray();
+
+        if ( children.length == 0 )
+            return constant( parity );
+
+        int result = children.length == 1 ? children[0] : node( CompiledCondition.XOR, children );
+        return parity ? not( result ) : result;
+    }
+
+    /**
+     * Compile string equality test.
+     * 
+     * @param lhs first string operand, as returned by {@link #string(String)}, {@link #artifactField(byte)} or
+     *            {@link #property(String)}
+     * @param rhs second string operand
+     * @return compiled node
+     */
+    public int equalTo( int lhs, int rhs )
+    {
+        if ( lhs == rhs )
+            return constant( true );
+
+        if ( lhs < 0 && rhs < 0 )
+            return constant( Objects.equals( constants.get( ~lhs ), constants.get( ~rhs ) ) );
+
+        // Equality is symmetric, so operands are ordered to let equal comparisons share the same node
+        return node( CompiledCondition.EQUALS, Math.min( lhs, rhs ), Math.max( lhs, rhs ) );
+    }
+
+    public int defined( String key )
+    {
+        return node( CompiledCondition.DEFINED, property( key ) );
+    }
+
+    public int string( String value )
+    {
+        return ~constantIndex.computeIfAbsent( value, v -> {
+            constants.add( v );
+            return constants.size() - 1;
+        } );
+    }
+
+    private int slot( byte kind, String key )
+    {
+        return slotIndex.computeIfAbsent( Arrays.asList( kind, key ), k -> {
+            slotKinds.add( kind );
+            slotKeys.add( key );
+            return slotKinds.size() - 1;
+        } );
+    }
+
+    public int artifactField( byte kind )
+    {
+        return slot( kind, null );
+    }
+
+    public int property( String key )
+    {
+        return slot( CompiledCondition.PROPERTY, key );
+    }
+
+    /**
+     * Create compiled condition with given root node. Only nodes reachable from the root are retained.
+     * 
+     * @param root root node
+     * @return compiled condition
+     */
+    public CompiledCondition build( int root )
+    {
+        // Renumber reachable nodes, keeping operands before nodes using them
+        int[] newIndex = new int[opcodes.size()];
+        Arrays.fill( newIndex, -1 );
+        List<Integer> order = new ArrayList<>();
+        collect( root, newIndex, order );
+
+        int count = order.size();
+        byte[] opcodeArray = new byte[count];
+        int[][] operandArray = new int[count][];
+        int[] references = new int[count];
+        for ( int i = 0; i < count; i++ )
+        {
+            int node = order.get( i );
+            byte opcode = opcode( node );
+            int[] args = operands.get( node ).clone();
+            if ( opcode == CompiledCondition.NOT || opcode == CompiledCondition.AND || opcode == CompiledCondition.OR
+                || opcode == CompiledCondition.XOR )
+            {
+                for ( int j = 0; j < args.length; j++ )
+                {
+                    args[j] = newIndex[args[j]];
+                    references[args[j]]++;
+                }
+            }
+            opcodeArray[i] = opcode;
+            operandArray[i] = args;
+        }
+
+        boolean[] shared = new boolean[count];
+        for ( int i = 0; i < count; i++ )
+            shared[i] = references[i] > 1;
+
+        byte[] slotKindArray = new byte[slotKinds.size()];
+        for ( int i = 0; i < slotKindArray.length; i++ )
+            slotKindArray[i] = slotKinds.get( i );
+
+        return new CompiledCondition( opcodeArray, operandArray, shared, slotKindArray,
+                                      slotKeys.toArray( new String[slotKeys.size()] ),
+                                      constants.toArray( new String[constants.size()] ), newIndex[root] );
+    }
+
+    private void collect( int node, int[] newIndex, List<Integer> order )
+    {
+        if ( newIndex[node] >= 0 )
+            return;
+
+        byte opcode = opcode( node );
+        if ( opcode == CompiledCondition.NOT || opcode == CompiledCondition.AND || opcode == CompiledCondition.OR
+            || opcode == CompiledCondition.XOR )
+        {
+            for ( int arg : operands.get( node ) )
+                collect( arg, newIndex, order );
+        }
+
+        newIndex[node] = order.size();
+        order.add( node );
+    }
+}
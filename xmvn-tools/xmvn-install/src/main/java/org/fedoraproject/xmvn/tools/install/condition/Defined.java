@@ -35,4 +35,10 @@ class Defined
     {
         return context.getProperty( key ) != null;
     }
+
+    @Override
+    int compile( ConditionCompiler compiler )
+    {
+        return compiler.defined( key );
+    }
 }
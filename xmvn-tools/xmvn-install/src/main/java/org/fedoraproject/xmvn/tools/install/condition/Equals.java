@@ -54,4 +54,10 @@ class Equals
         return ( lhsValue == null && rhsValue == null )
             || ( lhsValue != null && rhsValue != null && lhsValue.equals( rhsValue ) );
     }
+
+    @Override
+    int compile( ConditionCompiler compiler )
+    {
+        return compiler.equalTo( lhs.compile( compiler ), rhs.compile( compiler ) );
+    }
 }
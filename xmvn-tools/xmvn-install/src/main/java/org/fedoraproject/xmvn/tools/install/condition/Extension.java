@@ -28,4 +28,10 @@ class Extension
     {
         return context.getArtifact().getExtension();
     }
+
+    @Override
+    int compile( ConditionCompiler compiler )
+    {
+        return compiler.artifactField( CompiledCondition.EXTENSION );
+    }
 }
@@ -28,4 +28,10 @@ class GroupId
     {
         return context.getArtifact().getGroupId();
     }
+
+    @Override
+    int compile( ConditionCompiler compiler )
+    {
+        return compiler.artifactField( CompiledCondition.GROUP_ID );
+    }
 }
@@ -35,4 +35,10 @@ class Not
     {
         return !rhs.getValue( context );
     }
+
+    @Override
+    int compile( ConditionCompiler compiler )
+    {
+        return compiler.not( rhs.compile( compiler ) );
+    }
 }
@@ -28,4 +28,10 @@ class Null
     {
         return null;
     }
+
+    @Override
+    int compile( ConditionCompiler compiler )
+    {
+        return compiler.string( null );
+    }
 }
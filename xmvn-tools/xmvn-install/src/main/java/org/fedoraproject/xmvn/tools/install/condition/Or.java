@@ -33,4 +33,10 @@ class Or
     {
         return lhs | rhs;
     }
+
+    @Override
+    protected int compile( ConditionCompiler compiler, int[] args )
+    {
+        return compiler.or( args );
+    }
 }
@@ -35,4 +35,10 @@ class Property
     {
         return context.getProperty( key );
     }
+
+    @Override
+    int compile( ConditionCompiler compiler )
+    {
+        return compiler.property( key );
+    }
 }
@@ -23,4 +23,6 @@ import org.fedoraproject.xmvn.repository.ArtifactContext;
 abstract class StringExpression
 {
     public abstract String getValue( ArtifactContext context );
+
+    abstract int compile( ConditionCompiler compiler );
 }
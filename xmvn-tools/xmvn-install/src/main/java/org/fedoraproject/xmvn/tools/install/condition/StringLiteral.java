@@ -35,4 +35,10 @@ class StringLiteral
     {
         return value;
     }
+
+    @Override
+    int compile( ConditionCompiler compiler )
+    {
+        return compiler.string( value );
+    }
 }
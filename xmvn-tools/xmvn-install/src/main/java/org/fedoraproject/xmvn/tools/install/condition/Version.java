@@ -28,4 +28,10 @@ class Version
     {
         return context.getArtifact().getVersion();
     }
+
+    @Override
+    int compile( ConditionCompiler compiler )
+    {
+        return compiler.artifactField( CompiledCondition.VERSION );
+    }
 }
@@ -33,4 +33,10 @@ class Xor
     {
         return lhs ^ rhs;
     }
+
+    @Override
+    protected int compile( ConditionCompiler compiler, int[] args )
+    {
+        return compiler.xor( args );
+    }
 }
@@ -0,0 +1,72 @@
+/*-
+ * Copyright (c) 2018 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fedoraproject.xmvn.tools.install.impl;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import org.fedoraproject.xmvn.artifact.Artifact;
+import org.fedoraproject.xmvn.tools.install.InstallationManifest;
+import org.fedoraproject.xmvn.tools.install.JarUtils;
+import org.fedoraproject.xmvn.tools.install.RegularFile;
+
+/**
+ * A regular file holding artifact, which is copied from artifact file with artifact coordinates injected into its
+ * manifest.
+ * <p>
+ * The JAR with injected manifest is written directly to its target location, so that artifact file doesn't need to be
+ * modified and then copied. Files which are not JARs or which already have correct manifest are copied as-is.
+ * 
+ * @author Mikolaj Izdebski
+ */
+class ArtifactFile
+    extends RegularFile
+{
+    private final Path sourcePath;
+
+    private final Artifact artifact;
+
+    public ArtifactFile( Path targetPath, Path sourcePath, Artifact artifact )
+    {
+        super( targetPath, sourcePath );
+
+        this.sourcePath = sourcePath;
+        this.artifact = artifact;
+    }
+
+    @Override
+    protected void installContents( Path targetPath )
+        throws IOException
+    {
+        if ( !JarUtils.injectManifest( sourcePath, targetPath, artifact ) )
+            super.installContents( targetPath );
+    }
+
+    @Override
+    protected String getFingerprint()
+        throws IOException
+    {
+        // Injected manifest depends on artifact coordinates
+        return super.getFingerprint() + " " + artifact;
+    }
+
+    @Override
+    protected String getFingerprint( InstallationManifest manifest )
+        throws IOException
+    {
+        return super.getFingerprint( manifest ) + " " + artifact;
+    }
+}
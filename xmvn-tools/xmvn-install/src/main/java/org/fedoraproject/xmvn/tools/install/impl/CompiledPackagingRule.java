@@ -0,0 +1,271 @@
+/*-
+ * Copyright (c) 2018 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fedoraproject.xmvn.tools.install.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.fedoraproject.xmvn.config.Artifact;
+import org.fedoraproject.xmvn.config.PackagingRule;
+
+/**
+ * Packaging rule with artifact glob compiled into regular expressions and backreference templates prepared in advance,
+ * so that it can be applied to any number of artifacts without compiling anything again.
+ * <p>
+ * Artifact coordinates are passed around as arrays of strings in the following order: stereotype, groupId, artifactId,
+ * extension, classifier, version. Backreferences are numbered in the same order.
+ *
+ * @author Mikolaj Izdebski
+ */
+class CompiledPackagingRule
+{
+    private final PackagingRule rule;
+
+    /**
+     * Literal glob for each coordinate, or {@code null} if coordinate is matched by pattern or not matched at all.
+     */
+    private final String[] literals = new String[6];
+
+    /**
+     * Compiled glob pattern for each coordinate, or {@code null} if coordinate is matched literally or not at all.
+     */
+    private final Pattern[] patterns = new Pattern[6];
+
+    private final String groupIdPrefix;
+
+    /**
+     * Patterns matching backreferences {@code @1}, {@code @2}, ..., as used for expanding aliases.
+     */
+    private final Pattern[] backreferences;
+
+    private final List<String[]> aliases = new ArrayList<>();
+
+    private final String targetPackage;
+
+    private final List<String> files;
+
+    private final List<String> versions;
+
+    public CompiledPackagingRule( PackagingRule rule )
+    {
+        this.rule = rule;
+
+        Artifact glob = rule.getArtifactGlob();
+        String[] globs = toArray( glob );
+        int groupCount = 0;
+        for ( int i = 0; i < globs.length; i++ )
+        {
+            if ( globs[i] == null || globs[i].isEmpty() )
+                continue;
+
+            if ( GlobUtils.isLiteral( globs[i] ) )
+            {
+                literals[i] = globs[i];
+            }
+            else
+            {
+                patterns[i] = GlobUtils.glob2pattern( globs[i] );
+                groupCount += patterns[i].matcher( "" ).groupCount();
+            }
+        }
+
+        String groupIdGlob = globs[1];
+        groupIdPrefix = groupIdGlob == null ? "" : GlobUtils.literalPrefix( groupIdGlob );
+
+        backreferences = new Pattern[groupCount];
+        for ( int i = 0; i < groupCount; i++ )
+            backreferences[i] = Pattern.compile( "@" + ( i + 1 ) );
+
+        for ( Artifact alias : rule.getAliases() )
+            aliases.add( toArray( alias ) );
+
+        targetPackage = rule.getTargetPackage();
+        files = new ArrayList<>( rule.getFiles() );
+        versions = new ArrayList<>( rule.getVersions() );
+    }
+
+    private static String[] toArray( Artifact artifact )
+    {
+        return new String[] { artifact.getStereotype(), artifact.getGroupId(), artifact.getArtifactId(),
+            artifact.getExtension(), artifact.getClassifier(), artifact.getVersion() };
+    }
+
+    private static boolean hasBackreferences( String template )
+    {
+        return template != null && template.indexOf( '@' ) >= 0;
+    }
+
+    /**
+     * Replace all occurrences of literal string, without using regular expressions.
+     */
+    private static String replaceLiteral( String str, String target, String replacement )
+    {
+        int index = str.indexOf( target );
+        if ( index < 0 )
+            return str;
+
+        StringBuilder sb = new StringBuilder();
+        int start = 0;
+        do
+        {
+            sb.append( str, start, index ).append( replacement );
+            start = index + target.length();
+            index = str.indexOf( target, start );
+        }
+        while ( index >= 0 );
+
+        return sb.append( str, start, str.length() ).toString();
+    }
+
+    public PackagingRule getRule()
+    {
+        return rule;
+    }
+
+    /**
+     * Get literal prefix that groupId of every artifact matched by this rule starts with.
+     *
+     * @return groupId prefix, possibly empty
+     */
+    public String getGroupIdPrefix()
+    {
+        return groupIdPrefix;
+    }
+
+    /**
+     * Match artifact coordinates against artifact glob of this rule.
+     *
+     * @param coordinates artifact coordinates
+     * @return list of values of capturing groups, in backreference order, or {@code null} if artifact doesn't match
+     */
+    public List<String> match( String[] coordinates )
+    {
+        List<String> groups = null;
+
+        for ( int i = 0; i < coordinates.length; i++ )
+        {
+            if ( literals[i] != null )
+            {
+                if ( !literals[i].equals( coordinates[i] ) )
+                    return null;
+            }
+            else if ( patterns[i] != null )
+            {
+                Matcher matcher = patterns[i].matcher( coordinates[i] );
+                if ( !matcher.matches() )
+                    return null;
+
+                if ( matcher.groupCount() > 0 && groups == null )
+                    groups = new ArrayList<>( backreferences.length );
+                for ( int j = 1; j <= matcher.groupCount(); j++ )
+                    groups.add( matcher.group( j ) );
+            }
+        }
+
+        return groups != null ? groups : Collections.emptyList();
+    }
+
+    private static String expand( String template, List<String> groups )
+    {
+        if ( hasBackreferences( template ) )
+        {
+            for ( int i = 0; i < groups.size(); i++ )
+                template = replaceLiteral( template, "@" + ( i + 1 ), groups.get( i ) );
+        }
+
+        return template.trim();
+    }
+
+    private static List<String> expand( List<String> templates, List<String> groups )
+    {
+        List<String> result = new ArrayList<>( templates.size() );
+        for ( String template : templates )
+            result.add( expand( template, groups ) );
+        return result;
+    }
+
+    /**
+     * Get target package of this rule with backreferences expanded.
+     *
+     * @param groups values of capturing groups, as returned by {@link #match(String[])}
+     * @return expanded target package name
+     */
+    public String expandTargetPackage( List<String> groups )
+    {
+        return expand( targetPackage, groups );
+    }
+
+    /**
+     * Get files of this rule with backreferences expanded.
+     *
+     * @param groups values of capturing groups, as returned by {@link #match(String[])}
+     * @return expanded file names
+     */
+    public List<String> expandFiles( List<String> groups )
+    {
+        return expand( files, groups );
+    }
+
+    /**
+     * Get compat versions of this rule with backreferences expanded.
+     *
+     * @param groups values of capturing groups, as returned by {@link #match(String[])}
+     * @return expanded versions
+     */
+    public List<String> expandVersions( List<String> groups )
+    {
+        return expand( versions, groups );
+    }
+
+    /**
+     * Get aliases of this rule with backreferences expanded. Returned artifacts are newly created and can be freely
+     * modified by caller.
+     *
+     * @param groups values of capturing groups, as returned by {@link #match(String[])}
+     * @return expanded aliases
+     */
+    public List<Artifact> expandAliases( List<String> groups )
+    {
+        List<Artifact> result = new ArrayList<>( aliases.size() );
+
+        for ( String[] alias : aliases )
+        {
+            String[] expanded = alias.clone();
+            for ( int i = 0; i < expanded.length; i++ )
+            {
+                if ( !hasBackreferences( expanded[i] ) )
+                    continue;
+
+                for ( int j = 0; j < groups.size(); j++ )
+                    expanded[i] = backreferences[j].matcher( expanded[i] ).replaceAll( groups.get( j ) );
+            }
+
+            Artifact target = new Artifact();
+            target.setStereotype( expanded[0] );
+            target.setGroupId( expanded[1] );
+            target.setArtifactId( expanded[2] );
+            target.setExtension( expanded[3] );
+            target.setClassifier( expanded[4] );
+            target.setVersion( expanded[5] );
+            result.add( target );
+        }
+
+        return result;
+    }
+}
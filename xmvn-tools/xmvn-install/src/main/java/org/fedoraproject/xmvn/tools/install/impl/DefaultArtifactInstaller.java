@@ -15,13 +15,11 @@
  */
 package org.fedoraproject.xmvn.tools.install.impl;
 
-import static org.fedoraproject.xmvn.tools.install.JarUtils.containsNativeCode;
-import static org.fedoraproject.xmvn.tools.install.JarUtils.injectManifest;
-import static org.fedoraproject.xmvn.tools.install.JarUtils.usesNativeCode;
-
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
@@ -46,8 +44,8 @@ import org.fedoraproject.xmvn.tools.install.ArtifactInstallationException;
 import org.fedoraproject.xmvn.tools.install.ArtifactInstaller;
 import org.fedoraproject.xmvn.tools.install.Directory;
 import org.fedoraproject.xmvn.tools.install.File;
+import org.fedoraproject.xmvn.tools.install.InstallationManifest;
 import org.fedoraproject.xmvn.tools.install.JavaPackage;
-import org.fedoraproject.xmvn.tools.install.RegularFile;
 import org.fedoraproject.xmvn.tools.install.SymbolicLink;
 
 /**
@@ -60,6 +58,14 @@ class DefaultArtifactInstaller
 
     private final RepositoryConfigurator repositoryConfigurator;
 
+    private final NativeCodeAnalyzer nativeCodeAnalyzer = new NativeCodeAnalyzer();
+
+    /**
+     * Artifacts which were already prepared for installation, compared by identity.
+     */
+    private final Set<ArtifactMetadata> preparedArtifacts =
+        Collections.synchronizedSet( Collections.newSetFromMap( new IdentityHashMap<>() ) );
+
     public DefaultArtifactInstaller( Configurator configurator )
     {
         this( new DefaultRepositoryConfigurator( configurator ) );
@@ -71,18 +77,33 @@ class DefaultArtifactInstaller
     }
 
     @Override
-    public void install( JavaPackage targetPackage, ArtifactMetadata am, PackagingRule rule, String basePackageName, String repositoryId )
-        throws ArtifactInstallationException
+    public void prepare( ArtifactMetadata am )
     {
-        Artifact artifact = am.toArtifact();
+        prepare( am, null );
+    }
 
-        // Handle native JARs/WARs etc
+    @Override
+    public void prepare( ArtifactMetadata am, InstallationManifest manifest )
+    {
         Path artifactPath = Paths.get( am.getPath() );
-        if ( usesNativeCode( artifactPath ) || containsNativeCode( artifactPath ) )
+
+        // Handle native JARs/WARs etc
+        if ( manifest != null ? nativeCodeAnalyzer.hasNativeCode( artifactPath, manifest )
+                        : nativeCodeAnalyzer.hasNativeCode( artifactPath ) )
             am.getProperties().setProperty( "native", "true" );
 
-        // Inject Javapackages manifests
-        injectManifest( artifactPath, artifact );
+        preparedArtifacts.add( am );
+    }
+
+    @Override
+    public void install( JavaPackage targetPackage, ArtifactMetadata am, PackagingRule rule, String basePackageName, String repositoryId )
+        throws ArtifactInstallationException
+    {
+        if ( !preparedArtifacts.remove( am ) )
+            prepare( am );
+
+        Artifact artifact = am.toArtifact();
+        Path artifactPath = Paths.get( am.getPath() );
 
         Map<String, String> properties = new LinkedHashMap<>();
         for ( String name : am.getProperties().stringPropertyNames() )
@@ -117,6 +138,7 @@ class DefaultArtifactInstaller
         Artifact versionedArtifact = artifact.setVersion( installedVersion );
         ArtifactContext context = new ArtifactContext( versionedArtifact, properties );
         List<Path> repoPaths = new ArrayList<>();
+        Set<Path> repoRoots = repo.getRootPaths();
         for ( Path path : relativePaths )
         {
             Path repoPath = repo.getPrimaryArtifactPath( versionedArtifact, context, path.toString() );
@@ -125,14 +147,13 @@ class DefaultArtifactInstaller
                     + versionedArtifact );
             repoPaths.add( repoPath );
 
-            Set<Path> repoRoots = repo.getRootPaths();
             for ( Path dir = repoPath.getParent(); dir != null && !repoRoots.contains( dir ); dir = dir.getParent() )
                 targetPackage.addFileIfNotExists( new Directory( dir ) );
         }
         Iterator<Path> repoPathIterator = repoPaths.iterator();
 
-        // Artifact path
-        File artifactFile = new RegularFile( repoPathIterator.next(), artifactPath );
+        // Artifact path, Javapackages manifest is injected when the file is installed
+        File artifactFile = new ArtifactFile( repoPathIterator.next(), artifactPath, artifact );
         targetPackage.addFile( artifactFile );
         Path primaryPath = Paths.get( "/" ).resolve( artifactFile.getTargetPath() );
         am.setPath( primaryPath.toString() );
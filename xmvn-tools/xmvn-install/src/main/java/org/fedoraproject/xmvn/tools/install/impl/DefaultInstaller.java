@@ -20,12 +20,16 @@ import java.io.StringWriter;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.xml.stream.XMLStreamException;
 
@@ -48,6 +52,7 @@ import org.fedoraproject.xmvn.resolver.ResolutionResult;
 import org.fedoraproject.xmvn.resolver.Resolver;
 import org.fedoraproject.xmvn.tools.install.ArtifactInstallationException;
 import org.fedoraproject.xmvn.tools.install.ArtifactInstaller;
+import org.fedoraproject.xmvn.tools.install.InstallationManifest;
 import org.fedoraproject.xmvn.tools.install.InstallationRequest;
 import org.fedoraproject.xmvn.tools.install.InstallationResult;
 import org.fedoraproject.xmvn.tools.install.Installer;
@@ -59,6 +64,12 @@ import org.fedoraproject.xmvn.tools.install.JavaPackage;
 public class DefaultInstaller
     implements Installer
 {
+    /**
+     * Maximal number of threads used for preparing artifacts for installation and for resolving their dependencies.
+     */
+    private static final int INSTALLER_THREADS =
+        Integer.getInteger( "xmvn.installer.threads", Runtime.getRuntime().availableProcessors() );
+
     private final Logger logger = LoggerFactory.getLogger( DefaultInstaller.class );
 
     private final Set<ArtifactState> reactor = new LinkedHashSet<>();
@@ -71,6 +82,8 @@ public class DefaultInstaller
 
     private Configuration configuration;
 
+    private PackagingRuleMatcher packagingRuleMatcher;
+
     private PackageRegistry packageRegistry;
 
     public DefaultInstaller( Configurator configurator, Resolver resolver )
@@ -114,7 +127,7 @@ public class DefaultInstaller
     {
         Artifact artifact = artifactState.getArtifact();
 
-        PackagingRule rule = new EffectivePackagingRule( configuration.getArtifactManagement(), artifact.getGroupId(),
+        PackagingRule rule = new EffectivePackagingRule( packagingRuleMatcher, artifact.getGroupId(),
                                                          artifact.getArtifactId(), artifact.getExtension(),
                                                          artifact.getClassifier(), artifact.getVersion() );
 
@@ -210,6 +223,80 @@ public class DefaultInstaller
                                                                           artifactState.getMetadata().getProperties() ) );
     }
 
+    /**
+     * Prepare installable artifacts for installation, processing independent artifacts concurrently. Artifacts that
+     * share the same file are prepared by a single task, in reactor order. Preparation doesn't modify packages, so the
+     * result of installation doesn't depend on the order in which tasks complete.
+     * 
+     * @throws ArtifactInstallationException
+     */
+    private void prepareArtifacts( InstallationManifest manifest )
+        throws ArtifactInstallationException
+    {
+        Map<String, List<ArtifactState>> artifactsByPath = new LinkedHashMap<>();
+        for ( ArtifactState artifactState : reactor )
+        {
+            if ( artifactState.getInstaller() != null )
+                artifactsByPath.computeIfAbsent( artifactState.getMetadata().getPath(),
+                                                 path -> new ArrayList<>() ).add( artifactState );
+        }
+
+        int threads = Math.min( INSTALLER_THREADS, artifactsByPath.size() );
+        if ( threads <= 1 )
+        {
+            for ( List<ArtifactState> artifactStates : artifactsByPath.values() )
+                prepareArtifacts( artifactStates, manifest );
+            return;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool( threads );
+        try
+        {
+            List<Future<?>> futures = new ArrayList<>();
+            for ( List<ArtifactState> artifactStates : artifactsByPath.values() )
+            {
+                futures.add( executor.submit( () -> {
+                    prepareArtifacts( artifactStates, manifest );
+                    return null;
+                } ) );
+            }
+
+            // Wait for all tasks in reactor order, so that the same failure is reported regardless of timing
+            for ( Future<?> future : futures )
+                future.get();
+        }
+        catch ( ExecutionException e )
+        {
+            Throwable cause = e.getCause();
+            if ( cause instanceof ArtifactInstallationException )
+                throw (ArtifactInstallationException) cause;
+            if ( cause instanceof RuntimeException )
+                throw (RuntimeException) cause;
+            if ( cause instanceof Error )
+                throw (Error) cause;
+            throw new ArtifactInstallationException( "Failed to prepare artifacts for installation", cause );
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new ArtifactInstallationException( "Interrupted while preparing artifacts for installation", e );
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    private void prepareArtifacts( List<ArtifactState> artifactStates, InstallationManifest manifest )
+        throws ArtifactInstallationException
+    {
+        for ( ArtifactState artifactState : artifactStates )
+        {
+            logger.debug( "Preparing {} for installation", artifactState.getArtifact() );
+            artifactState.getInstaller().prepare( artifactState.getMetadata(), manifest );
+        }
+    }
+
     private void installArtifact( ArtifactState artifactState, String basePackageName, String repositoryId )
         throws ArtifactInstallationException
     {
@@ -249,46 +336,123 @@ public class DefaultInstaller
             }
         }
 
+        List<Dependency> dependencies = new ArrayList<>();
         for ( JavaPackage pkg : packageRegistry.getPackages() )
         {
             for ( ArtifactMetadata artifactMetadata : pkg.getMetadata().getArtifacts() )
-            {
-                for ( Dependency dependency : artifactMetadata.getDependencies() )
-                {
-                    resolveDependency( dependency, installedArtifacts );
-                }
-            }
+                dependencies.addAll( artifactMetadata.getDependencies() );
+        }
+
+        // Dependencies are looked up at requested version first, then at system version
+        List<Dependency> unresolved = resolveDependencies( dependencies, true, installedArtifacts );
+        unresolved = resolveDependencies( unresolved, false, installedArtifacts );
+
+        for ( Dependency dependency : unresolved )
+        {
+            dependency.setResolvedVersion( "UNKNOWN" );
+            dependency.setNamespace( "UNKNOWN" );
         }
     }
 
-    private void resolveDependency( Dependency dependency, Map<Artifact, ArtifactMetadata> installedArtifacts )
+    /**
+     * Try to resolve dependencies at given version, either from installed artifacts or using system resolver. Each
+     * distinct artifact is resolved by system resolver only once, no matter how many dependencies refer to it.
+     * 
+     * @return list of dependencies that couldn't be resolved
+     */
+    private List<Dependency> resolveDependencies( List<Dependency> dependencies, boolean useRequestedVersion,
+                                                  Map<Artifact, ArtifactMetadata> installedArtifacts )
     {
-        for ( String version : Arrays.asList( dependency.getRequestedVersion(), Artifact.DEFAULT_VERSION ) )
+        List<Artifact> dependencyArtifacts = new ArrayList<>( dependencies.size() );
+        Set<Artifact> externalArtifacts = new LinkedHashSet<>();
+        for ( Dependency dependency : dependencies )
         {
+            String version = useRequestedVersion ? dependency.getRequestedVersion() : Artifact.DEFAULT_VERSION;
             Artifact dependencyArtifact = dependency.toArtifact().setVersion( version );
+            dependencyArtifacts.add( dependencyArtifact );
+            if ( !installedArtifacts.containsKey( dependencyArtifact ) )
+                externalArtifacts.add( dependencyArtifact );
+        }
+
+        Map<Artifact, ResolutionResult> resolutionResults = resolveArtifacts( externalArtifacts );
+
+        List<Dependency> unresolved = new ArrayList<>();
+        for ( int i = 0; i < dependencies.size(); i++ )
+        {
+            Dependency dependency = dependencies.get( i );
+            Artifact dependencyArtifact = dependencyArtifacts.get( i );
 
             // First try to resolve dependency from installed artifact
             ArtifactMetadata resolvedMetadata = installedArtifacts.get( dependencyArtifact );
             if ( resolvedMetadata != null )
             {
-                dependency.setResolvedVersion( version );
+                dependency.setResolvedVersion( dependencyArtifact.getVersion() );
                 dependency.setNamespace( resolvedMetadata.getNamespace() );
-                return;
+                continue;
             }
 
             // Next try system artifact resolver
-            ResolutionRequest request = new ResolutionRequest( dependencyArtifact );
-            ResolutionResult result = resolver.resolve( request );
+            ResolutionResult result = resolutionResults.get( dependencyArtifact );
             if ( result.getArtifactPath() != null )
             {
                 dependency.setResolvedVersion( result.getCompatVersion() );
                 dependency.setNamespace( result.getNamespace() );
-                return;
+                continue;
             }
+
+            unresolved.add( dependency );
         }
 
-        dependency.setResolvedVersion( "UNKNOWN" );
-        dependency.setNamespace( "UNKNOWN" );
+        return unresolved;
+    }
+
+    /**
+     * Resolve given artifacts using system resolver, concurrently.
+     * 
+     * @return map from artifact to its resolution result
+     */
+    private Map<Artifact, ResolutionResult> resolveArtifacts( Set<Artifact> artifacts )
+    {
+        Map<Artifact, ResolutionResult> results = new LinkedHashMap<>();
+
+        int threads = Math.min( INSTALLER_THREADS, artifacts.size() );
+        if ( threads <= 1 )
+        {
+            for ( Artifact artifact : artifacts )
+                results.put( artifact, resolver.resolve( new ResolutionRequest( artifact ) ) );
+            return results;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool( threads );
+        try
+        {
+            Map<Artifact, Future<ResolutionResult>> futures = new LinkedHashMap<>();
+            for ( Artifact artifact : artifacts )
+                futures.put( artifact, executor.submit( () -> resolver.resolve( new ResolutionRequest( artifact ) ) ) );
+
+            for ( Entry<Artifact, Future<ResolutionResult>> entry : futures.entrySet() )
+                results.put( entry.getKey(), entry.getValue().get() );
+
+            return results;
+        }
+        catch ( ExecutionException e )
+        {
+            Throwable cause = e.getCause();
+            if ( cause instanceof RuntimeException )
+                throw (RuntimeException) cause;
+            if ( cause instanceof Error )
+                throw (Error) cause;
+            throw new RuntimeException( "Failed to resolve artifact dependencies", cause );
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException( "Interrupted while resolving artifact dependencies", e );
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
     }
 
     @Override
@@ -304,6 +468,7 @@ public class DefaultInstaller
         buildReactor( installationPlan );
 
         logger.debug( "Creating effective packaging rules for each artifact" );
+        packagingRuleMatcher = new PackagingRuleMatcher( configuration.getArtifactManagement() );
         for ( ArtifactState artifactState : reactor )
             constructEffectivePackagingRule( artifactState );
 
@@ -322,6 +487,16 @@ public class DefaultInstaller
         for ( ArtifactState artifactState : reactor )
             assignArtifactInstaller( artifactState );
 
+        Path manifestPath = Paths.get( ".xmvn-install-manifest" );
+        if ( request.getDescriptorRoot() != null )
+            manifestPath = request.getDescriptorRoot().resolve( manifestPath );
+        logger.debug( "Reading installation manifest {}", manifestPath );
+        InstallationManifest manifest = InstallationManifest.read( manifestPath, request.getInstallRoot() );
+
+        // Results of artifact analysis are remembered in manifest
+        logger.debug( "Preparing artifacts for installation" );
+        prepareArtifacts( manifest );
+
         logger.debug( "Installing artifacts" );
         for ( ArtifactState artifactState : reactor )
         {
@@ -351,7 +526,15 @@ public class DefaultInstaller
         for ( JavaPackage pkg : packageRegistry.getPackages() )
         {
             logger.debug( "Installing {}", pkg );
-            pkg.install( request.getInstallRoot() );
+            try
+            {
+                pkg.install( request.getInstallRoot(), manifest );
+            }
+            finally
+            {
+                // Record files installed so far, so that they can be replaced when installation is retried
+                manifest.write();
+            }
 
             Path mfiles =
                 Paths.get( ( pkg.getId() == null || pkg.getId().isEmpty() ) ? ".mfiles" : ".mfiles-" + pkg.getId() );
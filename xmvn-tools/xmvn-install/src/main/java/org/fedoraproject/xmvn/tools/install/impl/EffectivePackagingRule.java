@@ -15,10 +15,7 @@
  */
 package org.fedoraproject.xmvn.tools.install.impl;
 
-import java.util.ArrayList;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import org.fedoraproject.xmvn.config.Artifact;
 import org.fedoraproject.xmvn.config.PackagingRule;
@@ -48,86 +45,22 @@ class EffectivePackagingRule
         return str == null || str.isEmpty();
     }
 
-    private static String expandBackreferences( List<Matcher> matchers, String result )
+    private void applyRule( CompiledPackagingRule compiledRule, String[] coordinates )
     {
-        int group = 1;
-        for ( Matcher matcher : matchers )
-        {
-            for ( int i = 1; i <= matcher.groupCount(); i++, group++ )
-                result = result.replace( "@" + group, matcher.group( i ) );
-        }
-
-        return result.trim();
-    }
-
-    private static org.fedoraproject.xmvn.config.Artifact expandBackreferences( List<Matcher> matchers,
-                                                                                org.fedoraproject.xmvn.config.Artifact source )
-    {
-        org.fedoraproject.xmvn.config.Artifact target = new org.fedoraproject.xmvn.config.Artifact();
-        target.setStereotype( source.getStereotype() );
-        target.setGroupId( source.getGroupId() );
-        target.setArtifactId( source.getArtifactId() );
-        target.setExtension( source.getExtension() );
-        target.setClassifier( source.getClassifier() );
-        target.setVersion( source.getVersion() );
-
-        int group = 1;
-        for ( Matcher matcher : matchers )
-        {
-            for ( int i = 1; i <= matcher.groupCount(); i++, group++ )
-            {
-                Pattern pattern = Pattern.compile( "@" + group );
-                String replacement = matcher.group( i );
-                target.setStereotype( pattern.matcher( target.getStereotype() ).replaceAll( replacement ) );
-                target.setGroupId( pattern.matcher( target.getGroupId() ).replaceAll( replacement ) );
-                target.setArtifactId( pattern.matcher( target.getArtifactId() ).replaceAll( replacement ) );
-                target.setExtension( pattern.matcher( target.getExtension() ).replaceAll( replacement ) );
-                target.setClassifier( pattern.matcher( target.getClassifier() ).replaceAll( replacement ) );
-                target.setVersion( pattern.matcher( target.getVersion() ).replaceAll( replacement ) );
-            }
-        }
-
-        return target;
-    }
-
-    private void applyRule( PackagingRule rule )
-    {
-        Artifact glob = rule.getArtifactGlob();
-        Pattern stereotypePattern = GlobUtils.glob2pattern( glob.getStereotype() );
-        Pattern groupIdPattern = GlobUtils.glob2pattern( glob.getGroupId() );
-        Pattern artifactIdPattern = GlobUtils.glob2pattern( glob.getArtifactId() );
-        Pattern extensionPattern = GlobUtils.glob2pattern( glob.getExtension() );
-        Pattern classifierPattern = GlobUtils.glob2pattern( glob.getClassifier() );
-        Pattern versionPattern = GlobUtils.glob2pattern( glob.getVersion() );
-
-        Artifact artifact = getArtifactGlob();
-        List<Matcher> matchers = new ArrayList<>( 3 );
-        if ( stereotypePattern != null )
-            matchers.add( stereotypePattern.matcher( artifact.getStereotype() ) );
-        if ( groupIdPattern != null )
-            matchers.add( groupIdPattern.matcher( artifact.getGroupId() ) );
-        if ( artifactIdPattern != null )
-            matchers.add( artifactIdPattern.matcher( artifact.getArtifactId() ) );
-        if ( extensionPattern != null )
-            matchers.add( extensionPattern.matcher( artifact.getExtension() ) );
-        if ( classifierPattern != null )
-            matchers.add( classifierPattern.matcher( artifact.getClassifier() ) );
-        if ( versionPattern != null )
-            matchers.add( versionPattern.matcher( artifact.getVersion() ) );
+        List<String> groups = compiledRule.match( coordinates );
+        if ( groups == null )
+            return;
 
-        for ( Matcher matcher : matchers )
-            if ( !matcher.matches() )
-                return;
+        PackagingRule rule = compiledRule.getRule();
         rule.setMatched( true );
 
         String targetPackage = rule.getTargetPackage();
         if ( isNullOrEmpty( getTargetPackage() ) && !isNullOrEmpty( targetPackage ) )
-            setTargetPackage( expandBackreferences( matchers, targetPackage ) );
+            setTargetPackage( compiledRule.expandTargetPackage( groups ) );
 
-        for ( org.fedoraproject.xmvn.config.Artifact alias : rule.getAliases() )
+        Artifact artifact = getArtifactGlob();
+        for ( Artifact alias : compiledRule.expandAliases( groups ) )
         {
-            alias = expandBackreferences( matchers, alias );
-
             if ( isNullOrEmpty( alias.getStereotype() ) )
                 alias.setStereotype( artifact.getStereotype() );
             if ( isNullOrEmpty( alias.getGroupId() ) )
@@ -145,16 +78,14 @@ class EffectivePackagingRule
                 addAlias( alias );
         }
 
-        for ( String file : rule.getFiles() )
+        for ( String file : compiledRule.expandFiles( groups ) )
         {
-            file = expandBackreferences( matchers, file );
             if ( !getFiles().contains( file ) )
                 addFile( file );
         }
 
-        for ( String version : rule.getVersions() )
+        for ( String version : compiledRule.expandVersions( groups ) )
         {
-            version = expandBackreferences( matchers, version );
             if ( !getVersions().contains( version ) )
                 addVersion( version );
         }
@@ -172,6 +103,22 @@ class EffectivePackagingRule
      */
     public EffectivePackagingRule( List<PackagingRule> artifactManagement, String groupId, String artifactId,
                                    String extension, String classifier, String version )
+    {
+        this( new PackagingRuleMatcher( artifactManagement ), groupId, artifactId, extension, classifier, version );
+    }
+
+    /**
+     * Create effective packaging rule for given artifact, using packaging rules that were compiled in advance.
+     * 
+     * @param ruleMatcher compiled packaging rules that are foundation of newly constructed effective rule
+     * @param groupId groupId of artifact for which effective rule is to be created
+     * @param artifactId artifactId of artifact for which effective rule is to be created
+     * @param extension extension of artifact for which effective rule is to be created
+     * @param classifier classifier of artifact for which effective rule is to be created
+     * @param version version of artifact for which effective rule is to be created
+     */
+    public EffectivePackagingRule( PackagingRuleMatcher ruleMatcher, String groupId, String artifactId,
+                                   String extension, String classifier, String version )
     {
         Artifact artifact = new Artifact();
         artifact.setGroupId( groupId );
@@ -183,9 +130,12 @@ class EffectivePackagingRule
         setOptional( false );
         setMatched( true );
 
-        for ( PackagingRule rule : artifactManagement )
+        String[] coordinates = new String[] { artifact.getStereotype(), groupId, artifactId, extension, classifier,
+            version };
+
+        for ( CompiledPackagingRule rule : ruleMatcher.getCandidateRules( groupId ) )
         {
-            applyRule( rule );
+            applyRule( rule, coordinates );
         }
     }
 }
@@ -30,6 +30,12 @@ final class GlobUtils
      */
     private static final String SPECIAL_CHARS = "(){}.,?*+|<=>!";
 
+    /**
+     * Characters that stop glob expression from being treated as a plain literal string. Besides wildcards and
+     * alternatives this includes characters that are passed to regular expression unescaped.
+     */
+    private static final String NON_LITERAL_CHARS = "\\{?*[^$";
+
     private GlobUtils()
     {
         // Avoid generating default public constructor
@@ -114,4 +120,32 @@ final class GlobUtils
             return null;
         return Pattern.compile( glob2re( glob ) );
     }
+
+    /**
+     * Determine whether given wildcard pattern matches exactly one string, which is equal to the pattern itself.
+     * 
+     * @param glob wildcard pattern to check
+     * @return {@code true} iff matching string against the pattern is equivalent to comparing them for equality
+     */
+    public static boolean isLiteral( String glob )
+    {
+        return literalPrefix( glob ).length() == glob.length();
+    }
+
+    /**
+     * Get the longest literal prefix of wildcard pattern. Every string matching the pattern starts with that prefix.
+     * 
+     * @param glob wildcard pattern
+     * @return literal prefix of given pattern, possibly empty
+     */
+    public static String literalPrefix( String glob )
+    {
+        for ( int i = 0; i < glob.length(); i++ )
+        {
+            if ( NON_LITERAL_CHARS.indexOf( glob.charAt( i ) ) >= 0 )
+                return glob.substring( 0, i );
+        }
+
+        return glob;
+    }
 }
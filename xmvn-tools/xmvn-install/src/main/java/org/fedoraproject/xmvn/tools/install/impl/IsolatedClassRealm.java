@@ -15,25 +15,39 @@
  */
 package org.fedoraproject.xmvn.tools.install.impl;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLClassLoader;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.security.CodeSource;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
 
 /**
  * A generic, isolated class loader.
  * <p>
  * This class loader has its own classpath, separate from the primary Java classpath. It has a parent class loader, to
  * which it delegates loading a set of imported classes. All other classes are loaded from its own classpath.
+ * <p>
+ * Contents of JARs are indexed by directory when JARs are added, so that classes and resources are looked up only in
+ * JARs which can contain them.
  * 
  * @author Mikolaj Izdebski
  */
@@ -45,11 +59,31 @@ class IsolatedClassRealm
         registerAsParallelCapable();
     }
 
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * Class loader which sees only classes and resources of bootstrap class loader.
+     */
+    private static final ClassLoader BOOTSTRAP_LOADER = new URLClassLoader( new URL[0], null );
+
     private final ClassLoader parent;
 
-    private final Set<String> imports = new HashSet<>();
+    private final Set<String> imports = ConcurrentHashMap.newKeySet();
+
+    private final Set<String> importsAll = ConcurrentHashMap.newKeySet();
 
-    private final Set<String> importsAll = new HashSet<>();
+    /**
+     * Maps directory name (with slashes as separators) to whether contents of that directory are imported from parent.
+     */
+    private final Map<String, Boolean> importedDirectories = new ConcurrentHashMap<>();
+
+    /**
+     * Maps directory name (with slashes as separators, empty for top-level directory) to JARs having entries in that
+     * directory, in the order in which JARs were added.
+     */
+    private final Map<String, List<IndexedJar>> index = new ConcurrentHashMap<>();
+
+    private final List<IndexedJar> jars = new CopyOnWriteArrayList<>();
 
     public IsolatedClassRealm( ClassLoader parent )
     {
@@ -59,14 +93,21 @@ class IsolatedClassRealm
 
     public void addJar( Path jar )
     {
+        IndexedJar indexedJar;
         try
         {
-            addURL( jar.toUri().toURL() );
+            indexedJar = new IndexedJar( jar );
         }
-        catch ( MalformedURLException e )
+        catch ( IOException e )
         {
             throw new RuntimeException( e );
         }
+
+        jars.add( indexedJar );
+        for ( String directory : indexedJar.getDirectories() )
+            index.computeIfAbsent( directory, d -> new CopyOnWriteArrayList<>() ).add( indexedJar );
+
+        addURL( indexedJar.url );
     }
 
     public void addJarDirectory( Path dir )
@@ -87,27 +128,34 @@ class IsolatedClassRealm
     public void importPackage( String packageName )
     {
         imports.add( packageName );
+        importedDirectories.clear();
     }
 
     public void importAllPackages( String packageName )
     {
         importsAll.add( packageName );
+        importedDirectories.clear();
     }
 
-    boolean isImported( String name )
+    private static String getDirectory( String resourceName )
     {
-        int index = name.lastIndexOf( '/' );
+        return resourceName.substring( 0, Math.max( resourceName.lastIndexOf( '/' ), 0 ) );
+    }
 
-        if ( index >= 0 )
-        {
-            name = name.replace( '/', '.' );
-        }
-        else
-        {
-            index = Math.max( name.lastIndexOf( '.' ), 0 );
-        }
+    /**
+     * Determine whether classes and resources from given directory are imported from parent class loader.
+     * 
+     * @param directory directory name, with slashes as separators
+     * @return {@code true} iff given directory is imported
+     */
+    boolean isImported( String directory )
+    {
+        return importedDirectories.computeIfAbsent( directory, this::isNamespaceImported );
+    }
 
-        String namespace = name.substring( 0, index );
+    private boolean isNamespaceImported( String directory )
+    {
+        String namespace = directory.replace( '/', '.' );
 
         if ( imports.contains( namespace ) )
             return true;
@@ -134,7 +182,26 @@ class IsolatedClassRealm
     protected Class<?> loadClass( String name, boolean resolve )
         throws ClassNotFoundException
     {
-        if ( isImported( name ) )
+        synchronized ( getClassLoadingLock( name ) )
+        {
+            Class<?> clazz = findLoadedClass( name );
+            if ( clazz == null )
+                clazz = lookupClass( name );
+
+            if ( resolve )
+                resolveClass( clazz );
+
+            return clazz;
+        }
+    }
+
+    private Class<?> lookupClass( String name )
+        throws ClassNotFoundException
+    {
+        String path = name.replace( '.', '/' ) + ".class";
+        String directory = getDirectory( path );
+
+        if ( isImported( directory ) )
         {
             try
             {
@@ -142,48 +209,137 @@ class IsolatedClassRealm
             }
             catch ( ClassNotFoundException e )
             {
+                // Not provided by parent, fall back to own classpath
             }
         }
 
+        // Bootstrap classes take precedence over classes from own classpath, but bootstrap class loader needs to be
+        // asked only if the class could be shadowed
+        List<IndexedJar> candidates = index.get( directory );
+        if ( candidates == null || BOOTSTRAP_LOADER.getResource( path ) != null )
+            return BOOTSTRAP_LOADER.loadClass( name );
+
+        Class<?> clazz = defineClass( name, path, candidates );
+        if ( clazz == null )
+            throw new ClassNotFoundException( name );
+
+        return clazz;
+    }
+
+    @Override
+    protected Class<?> findClass( String name )
+        throws ClassNotFoundException
+    {
+        String path = name.replace( '.', '/' ) + ".class";
+        List<IndexedJar> candidates = index.get( getDirectory( path ) );
+
+        Class<?> clazz = candidates != null ? defineClass( name, path, candidates ) : null;
+        if ( clazz == null )
+            throw new ClassNotFoundException( name );
+
+        return clazz;
+    }
+
+    private Class<?> defineClass( String name, String path, List<IndexedJar> candidates )
+        throws ClassNotFoundException
+    {
+        for ( IndexedJar jar : candidates )
+        {
+            JarEntry entry = jar.jarFile.getJarEntry( path );
+            if ( entry == null )
+                continue;
+
+            byte[] bytes;
+            try ( InputStream stream = jar.jarFile.getInputStream( entry ) )
+            {
+                bytes = readFully( stream );
+            }
+            catch ( IOException e )
+            {
+                throw new ClassNotFoundException( name, e );
+            }
+
+            int index = name.lastIndexOf( '.' );
+            if ( index > 0 )
+                definePackageIfNeeded( name.substring( 0, index ), jar );
+
+            // Code signers are available only after the entry was fully read
+            CodeSource codeSource = new CodeSource( jar.url, entry.getCodeSigners() );
+            return defineClass( name, bytes, 0, bytes.length, codeSource );
+        }
+
+        return null;
+    }
+
+    private void definePackageIfNeeded( String packageName, IndexedJar jar )
+    {
+        if ( getPackage( packageName ) != null )
+            return;
+
         try
         {
-            return super.loadClass( name, resolve );
+            if ( jar.manifest != null )
+                definePackage( packageName, jar.manifest, jar.url );
+            else
+                definePackage( packageName, null, null, null, null, null, null, null );
         }
-        catch ( ClassNotFoundException e )
+        catch ( IllegalArgumentException e )
         {
+            // Package was defined concurrently by another thread
         }
+    }
 
-        synchronized ( getClassLoadingLock( name ) )
+    private static byte[] readFully( InputStream stream )
+        throws IOException
+    {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        byte[] chunk = new byte[BUFFER_SIZE];
+        int n = stream.read( chunk );
+        while ( n >= 0 )
         {
-            Class<?> clazz = findLoadedClass( name );
-            if ( clazz != null )
-            {
-                return clazz;
-            }
+            buffer.write( chunk, 0, n );
+            n = stream.read( chunk );
+        }
+        return buffer.toByteArray();
+    }
 
-            try
-            {
-                return super.findClass( name );
-            }
-            catch ( ClassNotFoundException e )
-            {
-            }
+    @Override
+    public URL findResource( String name )
+    {
+        List<IndexedJar> candidates = index.get( getDirectory( name ) );
+        if ( candidates == null )
+            return null;
+
+        for ( IndexedJar jar : candidates )
+        {
+            if ( jar.jarFile.getJarEntry( name ) != null )
+                return jar.getResourceURL( name );
         }
 
-        throw new ClassNotFoundException( name );
+        return null;
     }
 
     @Override
-    protected Class<?> findClass( String name )
-        throws ClassNotFoundException
+    public Enumeration<URL> findResources( String name )
     {
-        throw new ClassNotFoundException( name );
+        List<IndexedJar> candidates = index.get( getDirectory( name ) );
+        if ( candidates == null )
+            return Collections.emptyEnumeration();
+
+        List<URL> resources = new ArrayList<>();
+        for ( IndexedJar jar : candidates )
+        {
+            if ( jar.jarFile.getJarEntry( name ) != null )
+                resources.add( jar.getResourceURL( name ) );
+        }
+
+        return Collections.enumeration( resources );
     }
 
     @Override
     public URL getResource( String name )
     {
-        if ( isImported( name ) )
+        if ( isImported( getDirectory( name ) ) )
         {
             URL resource = parent.getResource( name );
             if ( resource != null )
@@ -192,19 +348,8 @@ class IsolatedClassRealm
             }
         }
 
-        URL resource = super.getResource( name );
-        if ( resource != null )
-        {
-            return resource;
-        }
-
-        resource = super.findResource( name );
-        if ( resource != null )
-        {
-            return resource;
-        }
-
-        return null;
+        // Bootstrap resources first, then own classpath
+        return super.getResource( name );
     }
 
     @Override
@@ -213,7 +358,7 @@ class IsolatedClassRealm
     {
         Collection<URL> resources = new LinkedHashSet<>();
 
-        if ( isImported( name ) )
+        if ( isImported( getDirectory( name ) ) )
         {
             try
             {
@@ -232,14 +377,61 @@ class IsolatedClassRealm
         {
         }
 
+        return Collections.enumeration( resources );
+    }
+
+    @Override
+    public void close()
+        throws IOException
+    {
         try
         {
-            resources.addAll( Collections.list( super.findResources( name ) ) );
+            for ( IndexedJar jar : jars )
+                jar.jarFile.close();
         }
-        catch ( IOException e )
+        finally
         {
+            super.close();
         }
+    }
 
-        return Collections.enumeration( resources );
+    /**
+     * JAR file on classpath of the realm, kept open for the lifetime of the realm.
+     */
+    private static class IndexedJar
+    {
+        private final URL url;
+
+        private final JarFile jarFile;
+
+        private final Manifest manifest;
+
+        public IndexedJar( Path path )
+            throws IOException
+        {
+            url = path.toUri().toURL();
+            jarFile = new JarFile( path.toFile() );
+            manifest = jarFile.getManifest();
+        }
+
+        public Set<String> getDirectories()
+        {
+            Set<String> directories = new HashSet<>();
+            for ( Enumeration<JarEntry> entries = jarFile.entries(); entries.hasMoreElements(); )
+                directories.add( getDirectory( entries.nextElement().getName() ) );
+            return directories;
+        }
+
+        public URL getResourceURL( String name )
+        {
+            try
+            {
+                return new URL( "jar:" + url + "!/" + name );
+            }
+            catch ( MalformedURLException e )
+            {
+                throw new RuntimeException( e );
+            }
+        }
     }
 }
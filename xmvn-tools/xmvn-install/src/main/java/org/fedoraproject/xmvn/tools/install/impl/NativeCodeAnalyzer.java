@@ -0,0 +1,310 @@
+/*-
+ * Copyright (c) 2018 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fedoraproject.xmvn.tools.install.impl;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.fedoraproject.xmvn.tools.install.InstallationManifest;
+
+/**
+ * Determines whether JAR (or WAR, EAR, ...) file contains or uses native (architecture-dependent) code.
+ * <p>
+ * This is equivalent to calling both {@code JarUtils.containsNativeCode} and {@code JarUtils.usesNativeCode}, but the
+ * archive is opened and read only once. Each entry is checked for ELF header and, if it is a class file, for native
+ * methods. Class files are not fully parsed, only enough to read access flags of declared methods. Analysis stops as
+ * soon as any native code is found. Entries of large archives are analyzed in parallel.
+ * <p>
+ * Results can be remembered in installation manifest, keyed by fingerprint of archive contents, so that archive with
+ * the same contents is not analyzed again in subsequent installations, even if it was rebuilt or stored under
+ * different path.
+ * 
+ * @author Mikolaj Izdebski
+ */
+class NativeCodeAnalyzer
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger( NativeCodeAnalyzer.class );
+
+    /**
+     * Minimal number of archive entries for which entries are analyzed in parallel.
+     */
+    private static final int PARALLEL_THRESHOLD = 1024;
+
+    private static final int ELF_MAGIC = 0x7F454C46;
+
+    private static final int CLASS_MAGIC = 0xCAFEBABE;
+
+    private static final int ACC_NATIVE = 0x0100;
+
+    // Constant pool tags, from JVM specification
+    private static final int CONSTANT_UTF8 = 1;
+
+    private static final int CONSTANT_INTEGER = 3;
+
+    private static final int CONSTANT_FLOAT = 4;
+
+    private static final int CONSTANT_LONG = 5;
+
+    private static final int CONSTANT_DOUBLE = 6;
+
+    private static final int CONSTANT_CLASS = 7;
+
+    private static final int CONSTANT_STRING = 8;
+
+    private static final int CONSTANT_FIELDREF = 9;
+
+    private static final int CONSTANT_METHODREF = 10;
+
+    private static final int CONSTANT_INTERFACE_METHODREF = 11;
+
+    private static final int CONSTANT_NAME_AND_TYPE = 12;
+
+    private static final int CONSTANT_METHOD_HANDLE = 15;
+
+    private static final int CONSTANT_METHOD_TYPE = 16;
+
+    private static final int CONSTANT_DYNAMIC = 17;
+
+    private static final int CONSTANT_INVOKE_DYNAMIC = 18;
+
+    private static final int CONSTANT_MODULE = 19;
+
+    private static final int CONSTANT_PACKAGE = 20;
+
+    /**
+     * Heuristically try to determine whether given JAR (or WAR, EAR, ...) file contains or uses native code.
+     * 
+     * @param jarPath path to archive
+     * @return {@code true} if native code was found inside given archive
+     */
+    public boolean hasNativeCode( Path jarPath )
+    {
+        try
+        {
+            return analyze( jarPath );
+        }
+        catch ( IOException e )
+        {
+            LOGGER.debug( "I/O exception caught when trying to determine whether JAR contains native code: {}", jarPath,
+                          e );
+            return false;
+        }
+    }
+
+    /**
+     * Heuristically try to determine whether given JAR (or WAR, EAR, ...) file contains or uses native code. Result
+     * recorded in installation manifest for archive with the same contents is reused, otherwise archive is analyzed
+     * and the result is recorded.
+     * 
+     * @param jarPath path to archive
+     * @param manifest installation manifest
+     * @return {@code true} if native code was found inside given archive
+     */
+    public boolean hasNativeCode( Path jarPath, InstallationManifest manifest )
+    {
+        try
+        {
+            String fingerprint = manifest.getFingerprint( jarPath );
+            Boolean result = manifest.getNativeCode( fingerprint );
+            if ( result == null )
+            {
+                result = analyze( jarPath );
+                manifest.recordNativeCode( fingerprint, result );
+            }
+            else
+            {
+                LOGGER.trace( "Using recorded result of native code analysis for {}", jarPath );
+            }
+            return result;
+        }
+        catch ( IOException e )
+        {
+            LOGGER.debug( "I/O exception caught when trying to determine whether JAR contains native code: {}", jarPath,
+                          e );
+            return false;
+        }
+    }
+
+    private static boolean analyze( Path jarPath )
+        throws IOException
+    {
+        try ( ZipFile jar = new ZipFile( jarPath.toFile() ) )
+        {
+            List<ZipArchiveEntry> entries = Collections.list( jar.getEntries() );
+            Stream<ZipArchiveEntry> stream =
+                entries.size() >= PARALLEL_THRESHOLD ? entries.parallelStream() : entries.stream();
+
+            boolean result = stream.filter( entry -> !entry.isDirectory() ) //
+                                   .anyMatch( entry -> hasNativeCode( jarPath, jar, entry ) );
+
+            if ( !result )
+                LOGGER.trace( "Native code not found inside {}", jarPath );
+            return result;
+        }
+    }
+
+    private static boolean hasNativeCode( Path jarPath, ZipFile jar, ZipArchiveEntry entry )
+    {
+        try ( DataInputStream stream = new DataInputStream( new BufferedInputStream( jar.getInputStream( entry ) ) ) )
+        {
+            int magic = stream.readInt();
+
+            if ( magic == ELF_MAGIC )
+            {
+                LOGGER.debug( "Native code found inside {}: {}", jarPath, entry.getName() );
+                return true;
+            }
+
+            if ( magic == CLASS_MAGIC && entry.getName().endsWith( ".class" ) && declaresNativeMethod( stream ) )
+            {
+                LOGGER.debug( "Native method found in {}: {}", jarPath, entry.getName() );
+                return true;
+            }
+
+            return false;
+        }
+        catch ( EOFException e )
+        {
+            // Entry is shorter than ELF or class file header, or truncated class file
+            return false;
+        }
+        catch ( IOException e )
+        {
+            LOGGER.debug( "I/O exception caught when trying to analyze {}: {}", jarPath, entry.getName(), e );
+            return false;
+        }
+    }
+
+    private static void skip( DataInputStream stream, int length )
+        throws IOException
+    {
+        int remaining = length;
+        while ( remaining > 0 )
+        {
+            int skipped = stream.skipBytes( remaining );
+            if ( skipped <= 0 )
+            {
+                // skipBytes() doesn't signal end of stream, but readByte() does
+                stream.readByte();
+                skipped = 1;
+            }
+            remaining -= skipped;
+        }
+    }
+
+    private static void skipAttributes( DataInputStream stream )
+        throws IOException
+    {
+        int attributesCount = stream.readUnsignedShort();
+        for ( int i = 0; i < attributesCount; i++ )
+        {
+            stream.readUnsignedShort();
+            skip( stream, stream.readInt() );
+        }
+    }
+
+    /**
+     * Read class file up to method table and check whether any of methods has {@code ACC_NATIVE} flag set.
+     * 
+     * @param stream class file stream, positioned just after magic number
+     * @return {@code true} iff class declares at least one native method
+     */
+    private static boolean declaresNativeMethod( DataInputStream stream )
+        throws IOException
+    {
+        // minor_version, major_version
+        skip( stream, 4 );
+
+        int constantPoolCount = stream.readUnsignedShort();
+        for ( int i = 1; i < constantPoolCount; i++ )
+        {
+            int tag = stream.readUnsignedByte();
+            switch ( tag )
+            {
+                case CONSTANT_UTF8:
+                    skip( stream, stream.readUnsignedShort() );
+                    break;
+                case CONSTANT_CLASS:
+                case CONSTANT_STRING:
+                case CONSTANT_METHOD_TYPE:
+                case CONSTANT_MODULE:
+                case CONSTANT_PACKAGE:
+                    skip( stream, 2 );
+                    break;
+                case CONSTANT_METHOD_HANDLE:
+                    skip( stream, 3 );
+                    break;
+                case CONSTANT_INTEGER:
+                case CONSTANT_FLOAT:
+                case CONSTANT_FIELDREF:
+                case CONSTANT_METHODREF:
+                case CONSTANT_INTERFACE_METHODREF:
+                case CONSTANT_NAME_AND_TYPE:
+                case CONSTANT_DYNAMIC:
+                case CONSTANT_INVOKE_DYNAMIC:
+                    skip( stream, 4 );
+                    break;
+                case CONSTANT_LONG:
+                case CONSTANT_DOUBLE:
+                    // 8-byte constants take two entries in constant pool
+                    skip( stream, 8 );
+                    i++;
+                    break;
+                default:
+                    throw new IOException( "Invalid constant pool tag " + tag );
+            }
+        }
+
+        // access_flags, this_class, super_class
+        skip( stream, 6 );
+
+        // interfaces
+        skip( stream, 2 * stream.readUnsignedShort() );
+
+        int fieldsCount = stream.readUnsignedShort();
+        for ( int i = 0; i < fieldsCount; i++ )
+        {
+            // access_flags, name_index, descriptor_index
+            skip( stream, 6 );
+            skipAttributes( stream );
+        }
+
+        int methodsCount = stream.readUnsignedShort();
+        for ( int i = 0; i < methodsCount; i++ )
+        {
+            int accessFlags = stream.readUnsignedShort();
+            if ( ( accessFlags & ACC_NATIVE ) != 0 )
+                return true;
+
+            // name_index, descriptor_index
+            skip( stream, 4 );
+            skipAttributes( stream );
+        }
+
+        return false;
+    }
+}
@@ -0,0 +1,90 @@
+/*-
+ * Copyright (c) 2018 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fedoraproject.xmvn.tools.install.impl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.fedoraproject.xmvn.config.PackagingRule;
+
+/**
+ * Compiled form of list of packaging rules.
+ * <p>
+ * Rules are compiled once and indexed by literal prefix of their groupId glob, so that finding rules applicable to
+ * given artifact doesn't require trying every rule in turn.
+ *
+ * @author Mikolaj Izdebski
+ */
+class PackagingRuleMatcher
+{
+    private final List<CompiledPackagingRule> rules = new ArrayList<>();
+
+    /**
+     * Maps groupId prefix to indexes of rules with that prefix, in ascending order.
+     */
+    private final Map<String, List<Integer>> prefixIndex = new HashMap<>();
+
+    private int maxPrefixLength;
+
+    public PackagingRuleMatcher( List<PackagingRule> artifactManagement )
+    {
+        for ( PackagingRule rule : artifactManagement )
+        {
+            CompiledPackagingRule compiledRule = new CompiledPackagingRule( rule );
+            String prefix = compiledRule.getGroupIdPrefix();
+
+            prefixIndex.computeIfAbsent( prefix, p -> new ArrayList<>() ).add( rules.size() );
+            maxPrefixLength = Math.max( maxPrefixLength, prefix.length() );
+            rules.add( compiledRule );
+        }
+    }
+
+    /**
+     * Get rules that can possibly match artifact with given groupId, in the same order as they were configured.
+     * Returned rules still need to be matched against the artifact.
+     *
+     * @param groupId groupId of artifact
+     * @return list of candidate rules
+     */
+    public List<CompiledPackagingRule> getCandidateRules( String groupId )
+    {
+        if ( groupId == null )
+            groupId = "";
+
+        boolean[] candidates = new boolean[rules.size()];
+        int maxLength = Math.min( groupId.length(), maxPrefixLength );
+        for ( int length = 0; length <= maxLength; length++ )
+        {
+            List<Integer> indexes = prefixIndex.get( groupId.substring( 0, length ) );
+            if ( indexes != null )
+            {
+                for ( int index : indexes )
+                    candidates[index] = true;
+            }
+        }
+
+        List<CompiledPackagingRule> result = new ArrayList<>();
+        for ( int i = 0; i < candidates.length; i++ )
+        {
+            if ( candidates[i] )
+                result.add( rules.get( i ) );
+        }
+
+        return result;
+    }
+}
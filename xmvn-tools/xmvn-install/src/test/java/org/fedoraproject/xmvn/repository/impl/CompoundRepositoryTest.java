@@ -0,0 +1,121 @@
+/*-
+ * Copyright (c) 2018 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fedoraproject.xmvn.repository.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.io.StringReader;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.easymock.EasyMock;
+import org.junit.Before;
+import org.junit.Test;
+import org.w3c.dom.Element;
+import org.xml.sax.InputSource;
+
+import org.fedoraproject.xmvn.artifact.Artifact;
+import org.fedoraproject.xmvn.artifact.DefaultArtifact;
+import org.fedoraproject.xmvn.config.Configuration;
+import org.fedoraproject.xmvn.config.Configurator;
+import org.fedoraproject.xmvn.config.Repository;
+import org.fedoraproject.xmvn.repository.ArtifactContext;
+import org.fedoraproject.xmvn.repository.RepositoryConfigurator;
+
+/**
+ * @author Mikolaj Izdebski
+ */
+public class CompoundRepositoryTest
+{
+    private RepositoryConfigurator repoConfigurator;
+
+    private static Element parseXml( String xml )
+        throws Exception
+    {
+        return DocumentBuilderFactory.newInstance().newDocumentBuilder().parse( new InputSource( new StringReader( xml ) ) ).getDocumentElement();
+    }
+
+    private static Repository createRepository( String id, String type, String xml )
+        throws Exception
+    {
+        Repository repository = new Repository();
+        repository.setId( id );
+        repository.setType( type );
+        if ( xml != null )
+            repository.setConfiguration( parseXml( xml ) );
+        return repository;
+    }
+
+    @Before
+    public void setUp()
+        throws Exception
+    {
+        Configuration configuration = new Configuration();
+        Repository jpp = createRepository( "jpp", "jpp", null );
+        jpp.addProperty( "root", "usr/share/java" );
+        configuration.addRepository( jpp );
+        Repository maven = createRepository( "maven", "maven", null );
+        maven.addProperty( "root", "usr/share/maven-poms" );
+        maven.setFilter( parseXml( "<filter><equals><extension/><string>pom</string></equals></filter>" ) );
+        configuration.addRepository( maven );
+        Repository compound =
+            createRepository( "compound", "compound",
+                              "<configuration><repositories><repository>maven</repository>"
+                                  + "<repository>jpp</repository></repositories></configuration>" );
+        compound.addProperty( "prefix", "opt/rh" );
+        configuration.addRepository( compound );
+
+        Configurator configurator = EasyMock.createMock( Configurator.class );
+        EasyMock.expect( configurator.getConfiguration() ).andReturn( configuration ).atLeastOnce();
+        EasyMock.replay( configurator );
+
+        repoConfigurator = new DefaultRepositoryConfigurator( configurator );
+    }
+
+    @Test
+    public void testCompoundRepository()
+        throws Exception
+    {
+        org.fedoraproject.xmvn.repository.Repository repo = repoConfigurator.configureRepository( "compound" );
+
+        assertEquals( new LinkedHashSet<>( Arrays.asList( Paths.get( "opt/rh/usr/share/maven-poms" ),
+                                                          Paths.get( "opt/rh/usr/share/java" ) ) ),
+                      repo.getRootPaths() );
+
+        Artifact pom = new DefaultArtifact( "foo", "bar", "pom", "1.2" );
+        assertEquals( Paths.get( "opt/rh/usr/share/maven-poms/foo/bar/1.2/bar-1.2.pom" ),
+                      repo.getPrimaryArtifactPath( pom, new ArtifactContext( pom ), "foo-bar" ) );
+
+        Artifact jar = new DefaultArtifact( "foo", "bar", "jar", "1.2" );
+        assertEquals( Paths.get( "opt/rh/usr/share/java/foo-bar-1.2.jar" ),
+                      repo.getPrimaryArtifactPath( jar, new ArtifactContext( jar ), "foo-bar" ) );
+    }
+
+    @Test
+    public void testRepositoriesAreCached()
+        throws Exception
+    {
+        org.fedoraproject.xmvn.repository.Repository repo = repoConfigurator.configureRepository( "compound" );
+        assertSame( repo, repoConfigurator.configureRepository( "compound" ) );
+        assertSame( repo, repoConfigurator.configureRepository( "compound", "" ) );
+        assertSame( repo.getRootPaths(), repo.getRootPaths() );
+        assertSame( repoConfigurator.configureRepository( "jpp" ), repoConfigurator.configureRepository( "jpp" ) );
+    }
+}
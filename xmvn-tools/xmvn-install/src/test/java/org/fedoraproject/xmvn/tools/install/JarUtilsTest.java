@@ -18,6 +18,7 @@ package org.fedoraproject.xmvn.tools.install;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assume.assumeTrue;
 
@@ -25,6 +26,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.nio.file.attribute.PosixFilePermission;
 import java.util.Arrays;
 import java.util.jar.Attributes;
@@ -234,6 +236,72 @@ public class JarUtilsTest
         assertTrue( Files.getPosixFilePermissions( testJar ).contains( PosixFilePermission.OTHERS_READ ) );
     }
 
+    /**
+     * Test if manifest injection writes injected JAR to target location, leaving source JAR unmodified.
+     * 
+     * @throws Exception
+     */
+    @Test
+    public void testManifestInjectionToTarget()
+        throws Exception
+    {
+        Path testResource = Paths.get( "src/test/resources/recompression-size.jar" );
+        Path testJar = workDir.resolve( "injected.jar" );
+        Files.deleteIfExists( testJar );
+
+        Artifact artifact = new DefaultArtifact( "org.apache.maven", "maven-model", "xsd", "model", "2.2.1" );
+        assertTrue( JarUtils.injectManifest( testResource, testJar, artifact ) );
+
+        try ( JarInputStream jis = new JarInputStream( Files.newInputStream( testJar ) ) )
+        {
+            Manifest mf = jis.getManifest();
+            assertNotNull( mf );
+
+            Attributes attr = mf.getMainAttributes();
+            assertEquals( "org.apache.maven", attr.getValue( "JavaPackages-GroupId" ) );
+            assertEquals( "maven-model", attr.getValue( "JavaPackages-ArtifactId" ) );
+            assertEquals( "2.2.1", attr.getValue( "JavaPackages-Version" ) );
+
+            assertEquals( "dir/file", jis.getNextJarEntry().getName() );
+        }
+
+        try ( JarInputStream jis = new JarInputStream( Files.newInputStream( testResource ) ) )
+        {
+            assertNull( jis.getManifest().getMainAttributes().getValue( "JavaPackages-GroupId" ) );
+        }
+
+        // Nothing is written if manifest is already up to date or if there is no manifest
+        Path testJar2 = workDir.resolve( "injected2.jar" );
+        Files.deleteIfExists( testJar2 );
+        assertFalse( JarUtils.injectManifest( testJar, testJar2, artifact ) );
+        assertFalse( JarUtils.injectManifest( Paths.get( "src/test/resources/invalid.jar" ), testJar2, artifact ) );
+        assertFalse( Files.exists( testJar2 ) );
+    }
+
+    /**
+     * Test if JAR which already contains artifact coordinates in its manifest is not rewritten.
+     * 
+     * @throws Exception
+     */
+    @Test
+    public void testManifestInjectionUpToDate()
+        throws Exception
+    {
+        Path testResource = Paths.get( "src/test/resources/example.jar" );
+        Path testJar = workDir.resolve( "up-to-date.jar" );
+        Files.copy( testResource, testJar, StandardCopyOption.COPY_ATTRIBUTES, StandardCopyOption.REPLACE_EXISTING );
+
+        Artifact artifact = new DefaultArtifact( "org.apache.maven", "maven-model", "xsd", "model", "2.2.1" );
+        JarUtils.injectManifest( testJar, artifact );
+        byte[] injectedContent = Files.readAllBytes( testJar );
+        Object fileKey = Files.readAttributes( testJar, BasicFileAttributes.class ).fileKey();
+
+        JarUtils.injectManifest( testJar, artifact );
+
+        assertTrue( Arrays.equals( injectedContent, Files.readAllBytes( testJar ) ) );
+        assertEquals( fileKey, Files.readAttributes( testJar, BasicFileAttributes.class ).fileKey() );
+    }
+
     /**
      * Test if native code detection works as expected.
      * 
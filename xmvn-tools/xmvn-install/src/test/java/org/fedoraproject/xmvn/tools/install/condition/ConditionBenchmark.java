@@ -0,0 +1,145 @@
+/*-
+ * Copyright (c) 2018 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fedoraproject.xmvn.tools.install.condition;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Predicate;
+
+import org.fedoraproject.xmvn.artifact.DefaultArtifact;
+import org.fedoraproject.xmvn.repository.ArtifactContext;
+
+/**
+ * Benchmark of repository filter evaluation, comparing interpreted and compiled conditions.
+ * <p>
+ * Simulates a large compound repository, in which each artifact is checked against filters of consecutive repositories
+ * until the first one accepts it, as well as a single filter combining filters of all repositories. This is not a unit
+ * test; run it with {@code java -cp ... ConditionBenchmark [repositories] [artifacts]}.
+ * 
+ * @author Mikolaj Izdebski
+ */
+public final class ConditionBenchmark
+{
+    private static final int DEFAULT_REPOSITORY_COUNT = 500;
+
+    private static final int DEFAULT_ARTIFACT_COUNT = 5000;
+
+    private ConditionBenchmark()
+    {
+    }
+
+    private static StringExpression string( String value )
+    {
+        return new StringLiteral( value );
+    }
+
+    /**
+     * Create filter resembling filters of real repositories: artifacts of given groupId with given extension, except
+     * for native ones.
+     */
+    private static BooleanExpression createFilter( int i )
+    {
+        BooleanExpression isJar = new Equals( new Extension(), string( "jar" ) );
+        BooleanExpression isPom = new Equals( new Extension(), string( "pom" ) );
+        BooleanExpression isNative = new Equals( new Property( "native" ), string( "true" ) );
+        BooleanExpression inGroup = new Equals( new GroupId(), string( "org.example.group" + i ) );
+        BooleanExpression isCompat =
+            new And( Arrays.asList( new Defined( "compat" ), new Not( new Equals( new Version(), new Null() ) ) ) );
+
+        return new And( Arrays.asList( new BooleanLiteral( true ), inGroup,
+                                       new Or( Arrays.asList( new And( Arrays.asList( isJar, new Not( isNative ) ) ),
+                                                              isPom, new BooleanLiteral( false ) ) ),
+                                       new Not( new And( Arrays.asList( isCompat, isNative ) ) ) ) );
+    }
+
+    private static CompiledCondition compile( BooleanExpression expr )
+    {
+        ConditionCompiler compiler = new ConditionCompiler();
+        return compiler.build( expr.compile( compiler ) );
+    }
+
+    private static long run( List<Predicate<ArtifactContext>> filters, List<ArtifactContext> contexts, int rounds )
+    {
+        long matches = 0;
+        for ( int round = 0; round < rounds; round++ )
+        {
+            for ( ArtifactContext context : contexts )
+            {
+                for ( Predicate<ArtifactContext> filter : filters )
+                {
+                    if ( filter.test( context ) )
+                    {
+                        matches++;
+                        break;
+                    }
+                }
+            }
+        }
+        return matches;
+    }
+
+    private static void measure( String name, List<Predicate<ArtifactContext>> filters, List<ArtifactContext> contexts )
+    {
+        // Warm up JIT before measuring
+        long matches = run( filters, contexts, 3 );
+
+        int rounds = 5;
+        long start = System.nanoTime();
+        matches += run( filters, contexts, rounds );
+        long elapsed = System.nanoTime() - start;
+
+        System.out.printf( "%-40s %10.1f ns/artifact (%d matches)%n", name,
+                           (double) elapsed / rounds / contexts.size(), matches );
+    }
+
+    public static void main( String[] args )
+    {
+        int repositoryCount = args.length > 0 ? Integer.parseInt( args[0] ) : DEFAULT_REPOSITORY_COUNT;
+        int artifactCount = args.length > 1 ? Integer.parseInt( args[1] ) : DEFAULT_ARTIFACT_COUNT;
+
+        List<BooleanExpression> filters = new ArrayList<>();
+        for ( int i = 0; i < repositoryCount; i++ )
+            filters.add( createFilter( i ) );
+
+        List<ArtifactContext> contexts = new ArrayList<>();
+        String[] extensions = { "jar", "pom", "war" };
+        for ( int i = 0; i < artifactCount; i++ )
+        {
+            DefaultArtifact artifact = new DefaultArtifact( "org.example.group" + i % ( repositoryCount + repositoryCount / 4 ),
+                                                            "artifact" + i, extensions[i % extensions.length], "1." + i );
+            contexts.add( new ArtifactContext( artifact, Collections.singletonMap( "native", i % 7 == 0 ? "true"
+                            : "false" ) ) );
+        }
+
+        List<Predicate<ArtifactContext>> interpreted = new ArrayList<>();
+        List<Predicate<ArtifactContext>> compiled = new ArrayList<>();
+        for ( BooleanExpression filter : filters )
+        {
+            interpreted.add( filter::getValue );
+            compiled.add( compile( filter )::getValue );
+        }
+
+        BooleanExpression combined = new Or( filters );
+
+        System.out.printf( "%d repositories, %d artifacts%n", repositoryCount, artifactCount );
+        measure( "compound repository, interpreted", interpreted, contexts );
+        measure( "compound repository, compiled", compiled, contexts );
+        measure( "combined filter, interpreted", Collections.singletonList( combined::getValue ), contexts );
+        measure( "combined filter, compiled", Collections.singletonList( compile( combined )::getValue ), contexts );
+    }
+}
@@ -15,6 +15,7 @@
  */
 package org.fedoraproject.xmvn.tools.install.condition;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
@@ -22,7 +23,10 @@ import static org.junit.Assert.fail;
 import java.io.Reader;
 import java.io.StringReader;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
+import java.util.Random;
 
 import javax.xml.stream.XMLInputFactory;
 import javax.xml.stream.XMLStreamReader;
@@ -154,6 +158,148 @@ public class ConditionTest
         assertTrue( cond.getValue( context2 ) );
     }
 
+    /**
+     * Test if false literal is parsed as false.
+     * 
+     * @throws Exception
+     */
+    @Test
+    public void testFalseLiteral()
+        throws Exception
+    {
+        Condition cond = new Condition( buildDom( "<filter><false/></filter>" ) );
+        assertFalse( cond.getValue( context1 ) );
+        assertFalse( cond.getValue( context2 ) );
+
+        cond = new Condition( buildDom( "<filter><not><false/></not></filter>" ) );
+        assertTrue( cond.getValue( context1 ) );
+        assertTrue( cond.getValue( context2 ) );
+    }
+
+    /**
+     * Test if expressions not depending on artifact are folded into constants.
+     * 
+     * @throws Exception
+     */
+    @Test
+    public void testConstantFolding()
+        throws Exception
+    {
+        StringBuilder sb = new StringBuilder();
+        sb.append( "<filter>" );
+        sb.append( "  <or>" );
+        sb.append( "    <and>" );
+        sb.append( "      <equals><groupId/><string>foo</string></equals>" );
+        sb.append( "      <false/>" );
+        sb.append( "    </and>" );
+        sb.append( "    <xor>" );
+        sb.append( "      <equals><string>a</string><string>a</string></equals>" );
+        sb.append( "      <equals><null/><string>a</string></equals>" );
+        sb.append( "      <not><not><true/></not></not>" );
+        sb.append( "    </xor>" );
+        sb.append( "    <equals><property>foo</property><property>foo</property></equals>" );
+        sb.append( "  </or>" );
+        sb.append( "</filter>" );
+
+        Condition cond = new Condition( buildDom( sb ) );
+        assertTrue( cond.getCompiledExpression().isConstant() );
+        assertTrue( cond.getValue( context1 ) );
+        assertTrue( cond.getValue( context2 ) );
+    }
+
+    /**
+     * Test if identical subexpressions are compiled only once.
+     * 
+     * @throws Exception
+     */
+    @Test
+    public void testSharedSubexpressions()
+        throws Exception
+    {
+        StringBuilder sb = new StringBuilder();
+        sb.append( "<filter>" );
+        sb.append( "  <xor>" );
+        sb.append( "    <and>" );
+        sb.append( "      <equals><groupId/><string>some-gid</string></equals>" );
+        sb.append( "      <defined>foo</defined>" );
+        sb.append( "    </and>" );
+        sb.append( "    <or>" );
+        sb.append( "      <equals><string>some-gid</string><groupId/></equals>" );
+        sb.append( "      <defined>native</defined>" );
+        sb.append( "    </or>" );
+        sb.append( "  </xor>" );
+        sb.append( "</filter>" );
+
+        Condition cond = new Condition( buildDom( sb ) );
+        // Two equals merged into one, two defined, and, or, xor
+        assertEquals( 6, cond.getCompiledExpression().getNodeCount() );
+        assertFalse( cond.getValue( context1 ) );
+        assertTrue( cond.getValue( context2 ) );
+    }
+
+    private BooleanExpression randomBoolean( Random random, int depth )
+    {
+        switch ( random.nextInt( depth > 0 ? 7 : 3 ) )
+        {
+            case 0:
+                return new BooleanLiteral( random.nextBoolean() );
+            case 1:
+                return new Equals( randomString( random ), randomString( random ) );
+            case 2:
+                return new Defined( random.nextBoolean() ? "foo" : "native" );
+            case 3:
+                return new Not( randomBoolean( random, depth - 1 ) );
+            default:
+                List<BooleanExpression> children = new ArrayList<>();
+                for ( int i = random.nextInt( 4 ); i >= 0; i-- )
+                    children.add( randomBoolean( random, depth - 1 ) );
+                return random.nextBoolean() ? new And( children )
+                                : random.nextBoolean() ? new Or( children ) : new Xor( children );
+        }
+    }
+
+    private StringExpression randomString( Random random )
+    {
+        switch ( random.nextInt( 9 ) )
+        {
+            case 0:
+                return new GroupId();
+            case 1:
+                return new ArtifactId();
+            case 2:
+                return new Extension();
+            case 3:
+                return new Classifier();
+            case 4:
+                return new Version();
+            case 5:
+                return new Null();
+            case 6:
+                return new Property( random.nextBoolean() ? "foo" : "native" );
+            default:
+                String[] literals = { "some-gid", "zip", "jar", "bar", "true", "" };
+                return new StringLiteral( literals[random.nextInt( literals.length )] );
+        }
+    }
+
+    /**
+     * Test if compiled conditions give the same results as interpreted expressions.
+     */
+    @Test
+    public void testCompiledEquivalence()
+    {
+        Random random = new Random( 42 );
+        for ( int i = 0; i < 10000; i++ )
+        {
+            BooleanExpression expr = randomBoolean( random, 5 );
+            ConditionCompiler compiler = new ConditionCompiler();
+            CompiledCondition compiled = compiler.build( expr.compile( compiler ) );
+
+            assertEquals( expr.getValue( context1 ), compiled.getValue( context1 ) );
+            assertEquals( expr.getValue( context2 ), compiled.getValue( context2 ) );
+        }
+    }
+
     /**
      * Test if syntax errors are caught by AST walker.
      * 
@@ -21,6 +21,7 @@ import static org.easymock.EasyMock.replay;
 import static org.easymock.EasyMock.verify;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.nio.file.Files;
@@ -31,6 +32,7 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.jar.JarInputStream;
 
 import org.easymock.EasyMockRunner;
 import org.easymock.Mock;
@@ -138,6 +140,16 @@ public class ArtifactInstallerTest
             file = iterator.next();
         assertEquals( Paths.get( "com.example-test" ), file.getTargetPath() );
         assertEquals( "/com.example-test", artifact.getPath() );
+
+        // Manifest is injected into installed file only
+        Path installRoot = Files.createTempDirectory( "xmvn-test" );
+        file.install( installRoot );
+        try ( JarInputStream jis = new JarInputStream( Files.newInputStream( installRoot.resolve( "com.example-test" ) ) ) )
+        {
+            assertEquals( "test", jis.getManifest().getMainAttributes().getValue( "JavaPackages-ArtifactId" ) );
+        }
+        assertTrue( Arrays.equals( Files.readAllBytes( Paths.get( "src/test/resources/example.jar" ) ),
+                                   Files.readAllBytes( Paths.get( "target/test-temp-resources/example.jar" ) ) ) );
     }
 
     @Test
@@ -16,6 +16,7 @@
 package org.fedoraproject.xmvn.tools.install.impl;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
@@ -245,4 +246,93 @@ public class EffectivePackagingTest
         assertEquals( effAlias.getArtifactId(), "bar-test" );
         assertEquals( effAlias.getVersion(), "1.2.3" );
     }
+
+    /**
+     * Test if rules indexed under different groupId prefixes are still applied in configuration order.
+     * 
+     * @throws Exception
+     */
+    @Test
+    public void testRuleOrderWithPrefixes()
+        throws Exception
+    {
+        Configuration configuration = new Configuration();
+        List<PackagingRule> artifactManagement = configuration.getArtifactManagement();
+
+        Artifact glob1 = new Artifact();
+        glob1.setGroupId( "org.apache.{*}" );
+        PackagingRule rule1 = new PackagingRule();
+        rule1.setArtifactGlob( glob1 );
+        rule1.addFile( "first-@1" );
+        artifactManagement.add( rule1 );
+
+        Artifact glob2 = new Artifact();
+        glob2.setArtifactId( "{*}" );
+        PackagingRule rule2 = new PackagingRule();
+        rule2.setArtifactGlob( glob2 );
+        rule2.addFile( "second-@1" );
+        rule2.setTargetPackage( "@1" );
+        artifactManagement.add( rule2 );
+
+        Artifact glob3 = new Artifact();
+        glob3.setGroupId( "org.apache.maven" );
+        PackagingRule rule3 = new PackagingRule();
+        rule3.setArtifactGlob( glob3 );
+        rule3.addFile( "third" );
+        artifactManagement.add( rule3 );
+
+        Artifact glob4 = new Artifact();
+        glob4.setGroupId( "org.codehaus" );
+        PackagingRule rule4 = new PackagingRule();
+        rule4.setArtifactGlob( glob4 );
+        rule4.addFile( "fourth" );
+        artifactManagement.add( rule4 );
+
+        PackagingRuleMatcher matcher = new PackagingRuleMatcher( artifactManagement );
+        PackagingRule effRule = new EffectivePackagingRule( matcher, "org.apache.maven", "maven-core", "jar", "", "3" );
+
+        assertEquals( 3, effRule.getFiles().size() );
+        assertEquals( "first-maven", effRule.getFiles().get( 0 ) );
+        assertEquals( "second-maven-core", effRule.getFiles().get( 1 ) );
+        assertEquals( "third", effRule.getFiles().get( 2 ) );
+        assertEquals( "maven-core", effRule.getTargetPackage() );
+
+        assertTrue( rule1.isMatched() );
+        assertTrue( rule2.isMatched() );
+        assertTrue( rule3.isMatched() );
+        assertFalse( rule4.isMatched() );
+    }
+
+    /**
+     * Test if literal globs are matched exactly, without treating any characters specially.
+     * 
+     * @throws Exception
+     */
+    @Test
+    public void testLiteralGlob()
+        throws Exception
+    {
+        Configuration configuration = new Configuration();
+        List<PackagingRule> artifactManagement = configuration.getArtifactManagement();
+
+        Artifact glob = new Artifact();
+        glob.setGroupId( "foo.bar" );
+        glob.setArtifactId( "a+b" );
+
+        PackagingRule rule = new PackagingRule();
+        rule.setArtifactGlob( glob );
+        rule.setTargetPackage( "pkg" );
+        artifactManagement.add( rule );
+
+        PackagingRuleMatcher matcher = new PackagingRuleMatcher( artifactManagement );
+
+        PackagingRule effRule1 = new EffectivePackagingRule( matcher, "foo.bar", "a+b", "jar", "", "1" );
+        assertEquals( "pkg", effRule1.getTargetPackage() );
+
+        PackagingRule effRule2 = new EffectivePackagingRule( matcher, "fooXbar", "a+b", "jar", "", "1" );
+        assertNull( effRule2.getTargetPackage() );
+
+        PackagingRule effRule3 = new EffectivePackagingRule( matcher, "foo.bar", "aab", "jar", "", "1" );
+        assertNull( effRule3.getTargetPackage() );
+    }
 }
@@ -21,9 +21,15 @@ import static org.easymock.EasyMock.verify;
 import static org.fedoraproject.xmvn.tools.install.impl.InstallationPlanLoader.prepareInstallationPlanFile;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
 
 import org.easymock.EasyMock;
 import org.easymock.EasyMockRunner;
@@ -39,6 +45,9 @@ import org.fedoraproject.xmvn.config.Configurator;
 import org.fedoraproject.xmvn.config.InstallerSettings;
 import org.fedoraproject.xmvn.config.PackagingRule;
 import org.fedoraproject.xmvn.metadata.ArtifactMetadata;
+import org.fedoraproject.xmvn.metadata.Dependency;
+import org.fedoraproject.xmvn.metadata.PackageMetadata;
+import org.fedoraproject.xmvn.metadata.io.stax.MetadataStaxReader;
 import org.fedoraproject.xmvn.resolver.ResolutionRequest;
 import org.fedoraproject.xmvn.resolver.ResolutionResult;
 import org.fedoraproject.xmvn.resolver.Resolver;
@@ -71,15 +80,24 @@ public class InstallerTest
         config.setInstallerSettings( settings );
     }
 
+    private final Set<String> preparedArtifacts = Collections.synchronizedSet( new LinkedHashSet<>() );
+
     class MockArtifactInstaller
         implements ArtifactInstaller
     {
+        @Override
+        public void prepare( ArtifactMetadata artifactMetadata )
+        {
+            preparedArtifacts.add( artifactMetadata.getArtifactId() );
+        }
+
         @Override
         public void install( JavaPackage targetPackage, ArtifactMetadata artifactMetadata, PackagingRule packagingRule,
                              String basePackageName, String repositoryId )
         {
             assertEquals( "test-pkg", basePackageName );
             assertEquals( "test-repo", repositoryId );
+            assertTrue( preparedArtifacts.contains( artifactMetadata.getArtifactId() ) );
             Path path = Paths.get( "usr/share/java/" + artifactMetadata.getArtifactId() + ".jar" );
             File file = new RegularFile( path, Paths.get( artifactMetadata.getPath() ) );
             targetPackage.addFile( file );
@@ -186,6 +204,7 @@ public class InstallerTest
 
         assertMetadataEqual( getResource( "test-pkg.xml" ),
                              installRoot.resolve( "usr/share/maven-metadata/test-pkg.xml" ) );
+        assertEquals( new HashSet<>( Arrays.asList( "test", "test2" ) ), preparedArtifacts );
     }
 
     @Test
@@ -204,6 +223,48 @@ public class InstallerTest
                              installRoot.resolve( "usr/share/maven-metadata/test-pkg.xml" ) );
     }
 
+    @Test
+    public void testSharedDependencies()
+        throws Exception
+    {
+        // Each artifact is expected to be resolved exactly once, even though it is a dependency of many artifacts
+        Path dependencyJar = Paths.get( "/tmp/bla.jar" );
+        addResolution( "org.apache.lucene:lucene-benchmark:4.1", "4", "ns", dependencyJar );
+        addResolution( "org.apache.lucene:lucene-spatial:4.1" );
+        addResolution( "org.apache.lucene:lucene-spatial", dependencyJar );
+        addResolution( "org.apache.lucene:lucene-core:4.1" );
+        addResolution( "org.apache.lucene:lucene-core" );
+
+        install( "shared-dep.xml" );
+
+        PackageMetadata metadata =
+            new MetadataStaxReader().read( installRoot.resolve( "usr/share/maven-metadata/test-pkg.xml" ).toString() );
+        assertEquals( 2, metadata.getArtifacts().size() );
+        for ( ArtifactMetadata artifact : metadata.getArtifacts() )
+        {
+            for ( Dependency dependency : artifact.getDependencies() )
+            {
+                switch ( dependency.getArtifactId() )
+                {
+                    case "lucene-benchmark":
+                        assertEquals( "4", dependency.getResolvedVersion() );
+                        assertEquals( "ns", dependency.getNamespace() );
+                        break;
+                    case "lucene-spatial":
+                        assertEquals( "SYSTEM", dependency.getResolvedVersion() );
+                        break;
+                    case "lucene-core":
+                        assertEquals( "UNKNOWN", dependency.getResolvedVersion() );
+                        assertEquals( "UNKNOWN", dependency.getNamespace() );
+                        break;
+                    default:
+                        assertEquals( "test2", dependency.getArtifactId() );
+                        assertEquals( "SYSTEM", dependency.getResolvedVersion() );
+                }
+            }
+        }
+    }
+
     @Test
     public void testSubpackage()
         throws Exception
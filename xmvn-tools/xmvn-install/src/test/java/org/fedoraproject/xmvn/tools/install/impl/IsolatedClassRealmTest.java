@@ -0,0 +1,130 @@
+/*-
+ * Copyright (c) 2018 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fedoraproject.xmvn.tools.install.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.net.URL;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.fedoraproject.xmvn.tools.install.ArtifactInstaller;
+
+/**
+ * @author Mikolaj Izdebski
+ */
+public class IsolatedClassRealmTest
+{
+    private IsolatedClassRealm realm;
+
+    @Before
+    public void setUp()
+    {
+        realm = new IsolatedClassRealm( IsolatedClassRealmTest.class.getClassLoader() );
+        realm.addJarDirectory( Paths.get( "src/test/resources/plugins" ) );
+        realm.importPackage( "org.fedoraproject.xmvn.tools.install" );
+    }
+
+    @After
+    public void tearDown()
+        throws Exception
+    {
+        realm.close();
+    }
+
+    @Test
+    public void testOwnClass()
+        throws Exception
+    {
+        Class<?> clazz = realm.loadClass( "foo.bar.MyPlugin" );
+        assertSame( realm, clazz.getClassLoader() );
+        assertSame( clazz, realm.loadClass( "foo.bar.MyPlugin" ) );
+        assertNotNull( clazz.getPackage() );
+        assertEquals( "foo.bar", clazz.getPackage().getName() );
+        assertTrue( ArtifactInstaller.class.isAssignableFrom( clazz ) );
+    }
+
+    @Test
+    public void testImportedClass()
+        throws Exception
+    {
+        assertSame( ArtifactInstaller.class, realm.loadClass( ArtifactInstaller.class.getName() ) );
+    }
+
+    @Test
+    public void testBootstrapClass()
+        throws Exception
+    {
+        assertSame( String.class, realm.loadClass( "java.lang.String" ) );
+    }
+
+    @Test
+    public void testNotImportedClass()
+        throws Exception
+    {
+        try
+        {
+            realm.loadClass( IsolatedClassRealmTest.class.getName() );
+            fail();
+        }
+        catch ( ClassNotFoundException e )
+        {
+            assertEquals( IsolatedClassRealmTest.class.getName(), e.getMessage() );
+        }
+
+        try
+        {
+            realm.loadClass( "foo.bar.NonexistentPlugin" );
+            fail();
+        }
+        catch ( ClassNotFoundException e )
+        {
+            assertEquals( "foo.bar.NonexistentPlugin", e.getMessage() );
+        }
+    }
+
+    @Test
+    public void testResources()
+        throws Exception
+    {
+        String dir = ArtifactInstaller.class.getCanonicalName();
+        URL resource = realm.getResource( dir + "/myplugin2" );
+        assertNotNull( resource );
+        assertTrue( resource.toString().endsWith( "myplugin2.jar!/" + dir + "/myplugin2" ) );
+        assertNull( realm.getResource( dir + "/myplugin3" ) );
+        assertNull( realm.getResource( "org/fedoraproject/xmvn/tools/install/impl/IsolatedClassRealmTest.class" ) );
+
+        // Bootstrap class loader may provide manifests too
+        List<String> manifests = Collections.list( realm.getResources( "META-INF/MANIFEST.MF" ) ).stream() //
+                                            .map( URL::toString ) //
+                                            .filter( url -> url.contains( "/plugins/myplugin" ) ) //
+                                            .collect( Collectors.toList() );
+        assertEquals( 2, manifests.size() );
+        assertFalse( manifests.get( 0 ).equals( manifests.get( 1 ) ) );
+    }
+}
@@ -89,6 +89,40 @@ public class JavaPackageTest
                              installRoot.resolve( "usr/share/maven-metadata/bar-my-pkg-my-id.xml" ) );
     }
 
+    @Test
+    public void testJavaPackageMetadataSplitManyArtifacts()
+        throws Exception
+    {
+        JavaPackage pkg = new JavaPackage( "my-id", "my-pkg", Paths.get( "usr/share/maven-metadata" ) );
+
+        String[] namespaces = { "", "foo", "bar" };
+        for ( int i = 0; i < 3000; i++ )
+        {
+            ArtifactMetadata am = new ArtifactMetadata();
+            am.setGroupId( "gid" );
+            am.setArtifactId( "aid" + i );
+            am.setNamespace( namespaces[i % namespaces.length] );
+            pkg.getMetadata().addArtifact( am );
+        }
+
+        pkg.install( installRoot );
+        assertDirectoryStructure( "D /usr", "D /usr/share", "D /usr/share/maven-metadata",
+                                  "F /usr/share/maven-metadata/my-pkg-my-id.xml",
+                                  "F /usr/share/maven-metadata/foo-my-pkg-my-id.xml",
+                                  "F /usr/share/maven-metadata/bar-my-pkg-my-id.xml" );
+
+        for ( String namespace : namespaces )
+        {
+            String fileName = ( namespace.isEmpty() ? "" : namespace + "-" ) + "my-pkg-my-id.xml";
+            PackageMetadata actualMetadata =
+                new MetadataStaxReader().read( installRoot.resolve( "usr/share/maven-metadata" ).resolve( fileName ).toString(),
+                                               true );
+            assertEquals( 1000, actualMetadata.getArtifacts().size() );
+            for ( ArtifactMetadata am : actualMetadata.getArtifacts() )
+                assertEquals( namespace, am.getNamespace() );
+        }
+    }
+
     @Test
     public void testSpacesInFileNames()
         throws Exception
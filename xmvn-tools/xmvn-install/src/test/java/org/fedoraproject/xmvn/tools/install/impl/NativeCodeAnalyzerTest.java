@@ -0,0 +1,168 @@
+/*-
+ * Copyright (c) 2018 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fedoraproject.xmvn.tools.install.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.jar.JarFile;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.compress.utils.IOUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.fedoraproject.xmvn.tools.install.InstallationManifest;
+import org.fedoraproject.xmvn.tools.install.JarUtils;
+
+/**
+ * @author Mikolaj Izdebski
+ */
+public class NativeCodeAnalyzerTest
+{
+    private Path workDir;
+
+    private NativeCodeAnalyzer analyzer;
+
+    @Before
+    public void setUp()
+        throws Exception
+    {
+        workDir = Paths.get( "target/test-work" );
+        Files.createDirectories( workDir );
+        analyzer = new NativeCodeAnalyzer();
+    }
+
+    private byte[] readEntry( String jar, String entry )
+        throws Exception
+    {
+        try ( JarFile jarFile = new JarFile( "src/test/resources/" + jar ) )
+        {
+            return IOUtils.toByteArray( jarFile.getInputStream( jarFile.getEntry( entry ) ) );
+        }
+    }
+
+    /**
+     * Create archive with many plain class files and given payload as the last entry.
+     */
+    private Path createLargeJar( String name, byte[] payload )
+        throws Exception
+    {
+        byte[] plainClass;
+        try ( InputStream is = getClass().getResourceAsStream( getClass().getSimpleName() + ".class" ) )
+        {
+            plainClass = IOUtils.toByteArray( is );
+        }
+
+        Path jar = workDir.resolve( name );
+        try ( OutputStream os = Files.newOutputStream( jar ); ZipOutputStream zos = new ZipOutputStream( os ) )
+        {
+            for ( int i = 0; i < 2000; i++ )
+            {
+                zos.putNextEntry( new ZipEntry( "pkg/Class" + i + ".class" ) );
+                zos.write( plainClass );
+            }
+            if ( payload != null )
+            {
+                zos.putNextEntry( new ZipEntry( "pkg/Payload.class" ) );
+                zos.write( payload );
+            }
+        }
+
+        return jar;
+    }
+
+    @Test
+    public void testNativeCodeDetection()
+        throws Exception
+    {
+        assertFalse( analyzer.hasNativeCode( Paths.get( "src/test/resources/example.jar" ) ) );
+        assertTrue( analyzer.hasNativeCode( Paths.get( "src/test/resources/native-code.jar" ) ) );
+        assertTrue( analyzer.hasNativeCode( Paths.get( "src/test/resources/native-method.jar" ) ) );
+        assertFalse( analyzer.hasNativeCode( Paths.get( "src/test/resources/invalid.jar" ) ) );
+        assertFalse( analyzer.hasNativeCode( Paths.get( "src/test/resources/nonexistent.jar" ) ) );
+    }
+
+    /**
+     * Test if analyzer agrees with {@link JarUtils} for all test JARs.
+     */
+    @Test
+    public void testConsistencyWithJarUtils()
+        throws Exception
+    {
+        try ( Stream<Path> jars = Files.list( Paths.get( "src/test/resources" ) ) )
+        {
+            jars.filter( jar -> jar.toString().endsWith( ".jar" ) ).forEach( jar -> {
+                boolean expected = JarUtils.usesNativeCode( jar ) || JarUtils.containsNativeCode( jar );
+                if ( expected )
+                    assertTrue( jar.toString(), analyzer.hasNativeCode( jar ) );
+                else
+                    assertFalse( jar.toString(), analyzer.hasNativeCode( jar ) );
+            } );
+        }
+    }
+
+    @Test
+    public void testLargeArchive()
+        throws Exception
+    {
+        assertFalse( analyzer.hasNativeCode( createLargeJar( "large-plain.jar", null ) ) );
+        assertTrue( analyzer.hasNativeCode( createLargeJar( "large-native-method.jar",
+                                                            readEntry( "native-method.jar", "Native.class" ) ) ) );
+        assertTrue( analyzer.hasNativeCode( createLargeJar( "large-native-code.jar",
+                                                            readEntry( "native-code.jar", "hello" ) ) ) );
+    }
+
+    /**
+     * Test if analysis result is remembered in installation manifest and reused for archive with the same contents in
+     * subsequent installations.
+     */
+    @Test
+    public void testRecordedResult()
+        throws Exception
+    {
+        Path manifestPath = workDir.resolve( "native-code-manifest" );
+        Files.deleteIfExists( manifestPath );
+        Path installRoot = workDir.resolve( "native-code-root" );
+
+        InstallationManifest manifest = InstallationManifest.read( manifestPath, installRoot );
+        assertTrue( analyzer.hasNativeCode( Paths.get( "src/test/resources/native-method.jar" ), manifest ) );
+        manifest.write();
+
+        // Rebuilt archive has the same contents, but different path and modification time
+        Path copy = workDir.resolve( "native-method-copy.jar" );
+        Files.copy( Paths.get( "src/test/resources/native-method.jar" ), copy, StandardCopyOption.REPLACE_EXISTING );
+
+        manifest = InstallationManifest.read( manifestPath, installRoot );
+        assertEquals( Boolean.TRUE, manifest.getNativeCode( manifest.getFingerprint( copy ) ) );
+        assertTrue( analyzer.hasNativeCode( copy, manifest ) );
+
+        // Archive with recorded result is not analyzed, so deliberately wrong result is returned
+        Path plain = Paths.get( "src/test/resources/example.jar" );
+        manifest.recordNativeCode( manifest.getFingerprint( plain ), true );
+        assertTrue( analyzer.hasNativeCode( plain, manifest ) );
+        assertFalse( analyzer.hasNativeCode( plain ) );
+    }
+}
@@ -16,15 +16,22 @@
 package org.fedoraproject.xmvn.tools.install.impl;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
 
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
 
 import org.junit.Test;
 
 import org.fedoraproject.xmvn.tools.install.Directory;
 import org.fedoraproject.xmvn.tools.install.File;
+import org.fedoraproject.xmvn.tools.install.InstallationManifest;
 import org.fedoraproject.xmvn.tools.install.Package;
 import org.fedoraproject.xmvn.tools.install.RegularFile;
 import org.fedoraproject.xmvn.tools.install.SymbolicLink;
@@ -71,6 +78,146 @@ public class PackageTest
                                 "%attr(0600,root,root) /usr/share/java/foobar.jar", "/usr/share/java/link.jar" );
     }
 
+    @Test
+    public void testManyFiles()
+        throws Exception
+    {
+        Package pkg = new Package( "my-id" );
+        for ( int i = 0; i < 20; i++ )
+        {
+            pkg.addFile( new Directory( Paths.get( "usr/share/java/dir" + i ) ) );
+            for ( int j = 0; j < 10; j++ )
+            {
+                Path path = Paths.get( "usr/share/java/dir" + i + "/sub" + j + "/file" + j + ".jar" );
+                pkg.addFile( new RegularFile( path, jar ) );
+                pkg.addFile( new SymbolicLink( path.resolveSibling( "link.jar" ), path.getFileName() ) );
+            }
+        }
+
+        pkg.install( installRoot );
+
+        for ( int i = 0; i < 20; i++ )
+        {
+            for ( int j = 0; j < 10; j++ )
+            {
+                Path path = installRoot.resolve( "usr/share/java/dir" + i + "/sub" + j + "/file" + j + ".jar" );
+                assertFilesEqual( jar, path );
+                assertTrue( Files.isSymbolicLink( path.resolveSibling( "link.jar" ) ) );
+                assertFilesEqual( jar, path.resolveSibling( "link.jar" ) );
+            }
+        }
+    }
+
+    private Object getFileKey( String path )
+        throws Exception
+    {
+        return Files.readAttributes( installRoot.resolve( path ), BasicFileAttributes.class,
+                                     LinkOption.NOFOLLOW_LINKS ).fileKey();
+    }
+
+    @Test
+    public void testIncrementalReinstall()
+        throws Exception
+    {
+        Path manifestPath = workdir.resolve( "manifest" );
+        Path jarCopy = Files.copy( jar, workdir.resolve( "foobar.jar" ) );
+        Path text = Files.write( workdir.resolve( "text" ), "old".getBytes() );
+        Package pkg = new Package( "my-id" );
+        pkg.addFile( new Directory( Paths.get( "usr/share/java" ) ) );
+        pkg.addFile( new RegularFile( Paths.get( "usr/share/java/foobar.jar" ), jarCopy ) );
+        pkg.addFile( new SymbolicLink( Paths.get( "usr/share/java/link.jar" ), Paths.get( "foobar.jar" ) ) );
+        pkg.addFile( new RegularFile( Paths.get( "usr/share/doc/text" ), text ) );
+        pkg.addFile( new RegularFile( Paths.get( "usr/share/doc/data" ), "data".getBytes() ) );
+
+        InstallationManifest manifest = InstallationManifest.read( manifestPath, installRoot );
+        pkg.install( installRoot, manifest );
+        manifest.write();
+        assertTrue( Files.isRegularFile( manifestPath ) );
+
+        Object jarKey = getFileKey( "usr/share/java/foobar.jar" );
+        Object dataKey = getFileKey( "usr/share/doc/data" );
+        Object textKey = getFileKey( "usr/share/doc/text" );
+
+        // Replace source file with a new one, as build tools usually do
+        Files.delete( text );
+        Files.write( text, "new".getBytes() );
+
+        manifest = InstallationManifest.read( manifestPath, installRoot );
+        pkg.install( installRoot, manifest );
+        manifest.write();
+
+        assertDirectoryStructure( "D /usr", "D /usr/share", "D /usr/share/java", "D /usr/share/doc",
+                                  "F /usr/share/java/foobar.jar", "L /usr/share/java/link.jar",
+                                  "F /usr/share/doc/text", "F /usr/share/doc/data" );
+        assertEquals( jarKey, getFileKey( "usr/share/java/foobar.jar" ) );
+        assertEquals( dataKey, getFileKey( "usr/share/doc/data" ) );
+        assertNotEquals( textKey, getFileKey( "usr/share/doc/text" ) );
+        assertEquals( "new", new String( Files.readAllBytes( installRoot.resolve( "usr/share/doc/text" ) ) ) );
+        assertEquals( "data", new String( Files.readAllBytes( installRoot.resolve( "usr/share/doc/data" ) ) ) );
+    }
+
+    @Test
+    public void testReinstallModifiedTarget()
+        throws Exception
+    {
+        Path manifestPath = workdir.resolve( "manifest" );
+        Package pkg = new Package( "my-id" );
+        pkg.addFile( new RegularFile( Paths.get( "usr/share/doc/data" ), "data".getBytes() ) );
+
+        InstallationManifest manifest = InstallationManifest.read( manifestPath, installRoot );
+        pkg.install( installRoot, manifest );
+        manifest.write();
+
+        Files.write( installRoot.resolve( "usr/share/doc/data" ), "modified".getBytes() );
+
+        manifest = InstallationManifest.read( manifestPath, installRoot );
+        pkg.install( installRoot, manifest );
+        manifest.write();
+
+        assertEquals( "data", new String( Files.readAllBytes( installRoot.resolve( "usr/share/doc/data" ) ) ) );
+    }
+
+    @Test
+    public void testManifestOfOtherRoot()
+        throws Exception
+    {
+        Path manifestPath = workdir.resolve( "manifest" );
+        Package pkg = new Package( "my-id" );
+        pkg.addFile( new RegularFile( Paths.get( "usr/share/doc/data" ), "data".getBytes() ) );
+
+        InstallationManifest manifest = InstallationManifest.read( manifestPath, installRoot );
+        pkg.install( installRoot, manifest );
+        manifest.write();
+
+        Path otherRoot = workdir.resolve( "other-root" );
+        Files.createDirectories( otherRoot.resolve( "usr/share/doc" ) );
+        Files.copy( installRoot.resolve( "usr/share/doc/data" ), otherRoot.resolve( "usr/share/doc/data" ) );
+        manifest = InstallationManifest.read( manifestPath, otherRoot );
+        assertFalse( manifest.isUpToDate( Paths.get( "usr/share/doc/data" ), "whatever",
+                                          otherRoot.resolve( "usr/share/doc/data" ) ) );
+    }
+
+    @Test
+    public void testDescriptorUpToDate()
+        throws Exception
+    {
+        Package pkg = new Package( "my-id" );
+        pkg.addFile( new RegularFile( Paths.get( "usr/share/doc/data" ), "data".getBytes() ) );
+        Path mfiles = workdir.resolve( ".mfiles" );
+        pkg.writeDescriptor( mfiles );
+        Object key = Files.readAttributes( mfiles, BasicFileAttributes.class ).fileKey();
+        FileTime mtime = Files.getLastModifiedTime( mfiles );
+        Files.setLastModifiedTime( mfiles, FileTime.fromMillis( mtime.toMillis() - 10000 ) );
+
+        pkg.writeDescriptor( mfiles );
+        assertEquals( key, Files.readAttributes( mfiles, BasicFileAttributes.class ).fileKey() );
+        assertEquals( mtime.toMillis() - 10000, Files.getLastModifiedTime( mfiles ).toMillis() );
+
+        pkg.addFile( new RegularFile( Paths.get( "usr/share/doc/other" ), "other".getBytes() ) );
+        pkg.writeDescriptor( mfiles );
+        assertEquals( 2, Files.readAllLines( mfiles ).size() );
+    }
+
     @Test
     public void testEmpty()
         throws Exception
@@ -15,6 +15,9 @@
  */
 package org.fedoraproject.xmvn.tools.install.impl;
 
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -73,6 +76,32 @@ public class RegularFileTest
         assertDescriptorEquals( "%attr(0644,root,root) /usr/share/java/foobar.jar" );
     }
 
+    @Test
+    public void testHardLink()
+        throws Exception
+    {
+        Path jar = workdir.resolve( "foobar.jar" );
+        Files.copy( getResource( "example.jar" ), jar );
+        add( new RegularFile( Paths.get( "usr/share/java/foobar.jar" ), jar ) );
+        Path root = performInstallation();
+        assertDirectoryStructure( "D /usr", "D /usr/share", "D /usr/share/java", "F /usr/share/java/foobar.jar" );
+        assertTrue( Files.isSameFile( jar, root.resolve( Paths.get( "usr/share/java/foobar.jar" ) ) ) );
+    }
+
+    @Test
+    public void testSymbolicLinkSource()
+        throws Exception
+    {
+        Path jar = workdir.resolve( "foobar.jar" );
+        Files.copy( getResource( "example.jar" ), jar );
+        Path link = Files.createSymbolicLink( workdir.resolve( "link.jar" ), jar.getFileName() );
+        add( new RegularFile( Paths.get( "usr/share/java/foobar.jar" ), link ) );
+        Path root = performInstallation();
+        assertDirectoryStructure( "D /usr", "D /usr/share", "D /usr/share/java", "F /usr/share/java/foobar.jar" );
+        assertFilesEqual( jar, root.resolve( Paths.get( "usr/share/java/foobar.jar" ) ) );
+        assertFalse( Files.isSymbolicLink( root.resolve( Paths.get( "usr/share/java/foobar.jar" ) ) ) );
+    }
+
     @Test( expected = IOException.class )
     public void testNonexistentFile()
         throws Exception
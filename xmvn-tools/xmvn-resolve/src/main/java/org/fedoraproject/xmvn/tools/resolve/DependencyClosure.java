@@ -0,0 +1,289 @@
+/*-
+ * Copyright (c) 2018 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fedoraproject.xmvn.tools.resolve;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.fedoraproject.xmvn.artifact.Artifact;
+import org.fedoraproject.xmvn.artifact.DefaultArtifact;
+import org.fedoraproject.xmvn.metadata.ArtifactMetadata;
+import org.fedoraproject.xmvn.metadata.Dependency;
+import org.fedoraproject.xmvn.metadata.DependencyExclusion;
+import org.fedoraproject.xmvn.metadata.MetadataResult;
+
+/**
+ * Transitive closure of dependencies of installed artifacts, computed from dependency lists of installed artifact
+ * metadata.
+ * <p>
+ * Dependency graph is walked breadth-first, so that each artifact is reached through the nearest path, like in Maven.
+ * Optional dependencies are not followed. Exclusions apply to the whole subtree of dependency which declares them.
+ * Dependencies are looked up with their resolved version first, falling back to the default version, the same way as
+ * the resolver does. All artifacts of a level of the graph are looked up in parallel.
+ * 
+ * @author Mikolaj Izdebski
+ */
+class DependencyClosure
+{
+    /**
+     * Maximal number of threads used for looking up artifacts.
+     */
+    private static final int RESOLVER_THREADS =
+        Integer.getInteger( "xmvn.resolver.threads", Runtime.getRuntime().availableProcessors() );
+
+    /**
+     * Installed artifact in dependency graph.
+     */
+    static class Node
+    {
+        private final Artifact artifact;
+
+        private final ArtifactMetadata metadata;
+
+        private final Path path;
+
+        private final List<Node> dependencies = new ArrayList<>();
+
+        public Node( Artifact artifact, ArtifactMetadata metadata, Path path )
+        {
+            this.artifact = artifact;
+            this.metadata = metadata;
+            this.path = path;
+        }
+
+        /**
+         * @return artifact coordinates, with version under which the artifact was found (compat version or the default
+         *         version)
+         */
+        public Artifact getArtifact()
+        {
+            return artifact;
+        }
+
+        public Path getPath()
+        {
+            return path;
+        }
+
+        public List<Node> getDependencies()
+        {
+            return Collections.unmodifiableList( dependencies );
+        }
+    }
+
+    /**
+     * Dependency waiting to be looked up, together with exclusions inherited from the path leading to it.
+     */
+    private static class Edge
+    {
+        private final Node parent;
+
+        private final Artifact artifact;
+
+        private final Set<String> exclusions;
+
+        public Edge( Node parent, Artifact artifact, Set<String> exclusions )
+        {
+            this.parent = parent;
+            this.artifact = artifact;
+            this.exclusions = exclusions;
+        }
+    }
+
+    private final MetadataResult metadataResult;
+
+    private final List<Node> nodes = new ArrayList<>();
+
+    private final Map<ArtifactMetadata, Node> nodesByMetadata = new IdentityHashMap<>();
+
+    private final List<String> errors = new ArrayList<>();
+
+    public DependencyClosure( MetadataResult metadataResult )
+    {
+        this.metadataResult = metadataResult;
+    }
+
+    /**
+     * @return all artifacts of the closure, in breadth-first order
+     */
+    public List<Node> getNodes()
+    {
+        return Collections.unmodifiableList( nodes );
+    }
+
+    /**
+     * @return descriptions of artifacts and dependencies which could not be found
+     */
+    public List<String> getErrors()
+    {
+        return Collections.unmodifiableList( errors );
+    }
+
+    private Node lookup( Artifact artifact )
+    {
+        Artifact foundArtifact = artifact;
+        ArtifactMetadata metadata = metadataResult.getMetadataFor( artifact );
+        if ( metadata == null )
+        {
+            foundArtifact = artifact.setVersion( Artifact.DEFAULT_VERSION );
+            metadata = metadataResult.getMetadataFor( foundArtifact );
+        }
+        if ( metadata == null )
+            return null;
+
+        Path path = metadata.getPath() != null ? Paths.get( metadata.getPath() ) : null;
+        try
+        {
+            if ( path != null )
+                path = path.toRealPath();
+        }
+        catch ( IOException e )
+        {
+            // Ignore
+        }
+
+        return new Node( foundArtifact, metadata, path );
+    }
+
+    private static boolean matches( String pattern, String value )
+    {
+        return "*".equals( pattern ) || pattern.equals( value );
+    }
+
+    private static boolean isExcluded( Set<String> exclusions, Dependency dependency )
+    {
+        for ( String exclusion : exclusions )
+        {
+            int index = exclusion.indexOf( ':' );
+            if ( matches( exclusion.substring( 0, index ), dependency.getGroupId() )
+                && matches( exclusion.substring( index + 1 ), dependency.getArtifactId() ) )
+                return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Compute transitive closure of dependencies of given artifacts.
+     * 
+     * @param roots artifacts whose dependencies are to be resolved
+     */
+    public void compute( List<Artifact> roots )
+    {
+        List<Edge> level = new ArrayList<>();
+        for ( Artifact root : roots )
+            level.add( new Edge( null, root, Collections.emptySet() ) );
+
+        ExecutorService executor = Executors.newFixedThreadPool( Math.max( RESOLVER_THREADS, 1 ) );
+        try
+        {
+            // Each distinct artifact is looked up only once, no matter how many artifacts depend on it
+            Map<Artifact, Future<Node>> lookups = new HashMap<>();
+
+            while ( !level.isEmpty() )
+            {
+                for ( Edge edge : level )
+                    lookups.computeIfAbsent( edge.artifact, a -> executor.submit( () -> lookup( a ) ) );
+
+                // Results are processed in order, so that the closure doesn't depend on timing
+                List<Edge> nextLevel = new ArrayList<>();
+                for ( Edge edge : level )
+                {
+                    Node found = lookups.get( edge.artifact ).get();
+                    if ( found == null )
+                    {
+                        if ( edge.parent == null )
+                            errors.add( "Unable to resolve artifact " + edge.artifact );
+                        else
+                            errors.add( "Unable to resolve dependency " + edge.artifact + " of "
+                                + edge.parent.artifact );
+                        continue;
+                    }
+
+                    Node node = nodesByMetadata.get( found.metadata );
+                    if ( edge.parent != null && node != null && edge.parent.dependencies.contains( node ) )
+                        continue;
+
+                    if ( node == null )
+                    {
+                        node = found;
+                        nodes.add( node );
+                        nodesByMetadata.put( node.metadata, node );
+                        expand( edge, node, nextLevel );
+                    }
+
+                    if ( edge.parent != null )
+                        edge.parent.dependencies.add( node );
+                }
+
+                level = nextLevel;
+            }
+        }
+        catch ( ExecutionException e )
+        {
+            Throwable cause = e.getCause();
+            if ( cause instanceof RuntimeException )
+                throw (RuntimeException) cause;
+            if ( cause instanceof Error )
+                throw (Error) cause;
+            throw new RuntimeException( cause );
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException( "Interrupted while resolving dependencies", e );
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    private void expand( Edge edge, Node node, List<Edge> nextLevel )
+    {
+        for ( Dependency dependency : node.metadata.getDependencies() )
+        {
+            if ( Boolean.TRUE.equals( dependency.isOptional() ) || isExcluded( edge.exclusions, dependency ) )
+                continue;
+
+            Set<String> exclusions = edge.exclusions;
+            if ( !dependency.getExclusions().isEmpty() )
+            {
+                exclusions = new HashSet<>( exclusions );
+                for ( DependencyExclusion exclusion : dependency.getExclusions() )
+                    exclusions.add( exclusion.getGroupId() + ":" + exclusion.getArtifactId() );
+            }
+
+            Artifact artifact =
+                new DefaultArtifact( dependency.getGroupId(), dependency.getArtifactId(), dependency.getExtension(),
+                                     dependency.getClassifier(), dependency.getResolvedVersion() );
+            nextLevel.add( new Edge( node, artifact, exclusions ) );
+        }
+    }
+}
@@ -15,9 +15,14 @@
  */
 package org.fedoraproject.xmvn.tools.resolve;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import javax.xml.bind.JAXBContext;
@@ -27,8 +32,14 @@ import javax.xml.bind.Unmarshaller;
 
 import org.fedoraproject.xmvn.artifact.Artifact;
 import org.fedoraproject.xmvn.artifact.DefaultArtifact;
+import org.fedoraproject.xmvn.config.Configurator;
+import org.fedoraproject.xmvn.config.ResolverSettings;
 import org.fedoraproject.xmvn.locator.ServiceLocator;
 import org.fedoraproject.xmvn.locator.ServiceLocatorFactory;
+import org.fedoraproject.xmvn.metadata.ArtifactMetadata;
+import org.fedoraproject.xmvn.metadata.MetadataRequest;
+import org.fedoraproject.xmvn.metadata.MetadataResolver;
+import org.fedoraproject.xmvn.metadata.MetadataResult;
 import org.fedoraproject.xmvn.resolver.ResolutionRequest;
 import org.fedoraproject.xmvn.resolver.ResolutionResult;
 import org.fedoraproject.xmvn.resolver.Resolver;
@@ -40,6 +51,18 @@ import org.fedoraproject.xmvn.tools.resolve.xml.CompoundResult;
  * <p>
  * Return 0 when all artifacts are successfully resolved, 1 on failure to resolve one or more artifacts and 2 when some
  * other error occurs. In the last case a stack trace is printed too.
+ * <p>
+ * In streaming mode requests are read from standard input, one artifact coordinate per line (empty lines are ignored).
+ * Result of each request is printed on standard output as soon as it is resolved, as a single line consisting of
+ * tab-separated artifact path, compat version and namespace (empty fields when not set). Empty line is printed for
+ * artifacts that could not be resolved. This allows a single resolver process to serve many requests.
+ * <p>
+ * In closure mode given artifacts are resolved together with transitive closure of their runtime dependencies, as
+ * recorded in installed artifact metadata. The result is printed either as a list of artifacts or as a dependency
+ * graph, in which each artifact is followed by its direct dependencies, indented.
+ * <p>
+ * In dependents mode installed artifacts which depend on given artifacts (directly, or also indirectly in closure
+ * mode) are printed, one per line, as artifact coordinates followed by tab and namespace.
  * 
  * @author Mikolaj Izdebski
  */
@@ -47,9 +70,20 @@ public class ResolverCli
 {
     private final Resolver resolver;
 
+    private final Configurator configurator;
+
+    private final MetadataResolver metadataResolver;
+
     public ResolverCli( Resolver resolver )
+    {
+        this( resolver, null, null );
+    }
+
+    public ResolverCli( Resolver resolver, Configurator configurator, MetadataResolver metadataResolver )
     {
         this.resolver = resolver;
+        this.configurator = configurator;
+        this.metadataResolver = metadataResolver;
     }
 
     private List<ResolutionRequest> parseRequests( ResolverCliRequest cli )
@@ -68,20 +102,86 @@ public class ResolverCli
 
         for ( String s : cli.getParameters() )
         {
-            if ( s.indexOf( ':' ) > 0 && s.indexOf( ':' ) == s.lastIndexOf( ':' ) )
-                s += ":";
-            if ( s.endsWith( ":" ) )
-                s += "SYSTEM";
-
-            Artifact artifact = new DefaultArtifact( s );
-            ResolutionRequest request = new ResolutionRequest( artifact );
-            request.setPersistentFileNeeded( true );
-            requests.add( request );
+            requests.add( parseRequest( s ) );
         }
 
         return requests;
     }
 
+    private static ResolutionRequest parseRequest( String s )
+    {
+        if ( s.indexOf( ':' ) > 0 && s.indexOf( ':' ) == s.lastIndexOf( ':' ) )
+            s += ":";
+        if ( s.endsWith( ":" ) )
+            s += "SYSTEM";
+
+        Artifact artifact = new DefaultArtifact( s );
+        ResolutionRequest request = new ResolutionRequest( artifact );
+        request.setPersistentFileNeeded( true );
+        return request;
+    }
+
+    private static String formatResult( ResolutionResult result )
+    {
+        StringBuilder sb = new StringBuilder();
+        sb.append( result.getArtifactPath() );
+        sb.append( '\t' );
+        if ( result.getCompatVersion() != null )
+            sb.append( result.getCompatVersion() );
+        sb.append( '\t' );
+        if ( result.getNamespace() != null )
+            sb.append( result.getNamespace() );
+        return sb.toString();
+    }
+
+    /**
+     * Resolve artifacts read from standard input, printing results as soon as they are available.
+     * 
+     * @return {@code true} iff all artifacts were resolved
+     * @throws IOException if standard input can't be read
+     */
+    private boolean runStream()
+        throws IOException
+    {
+        boolean success = true;
+        BufferedReader reader = new BufferedReader( new InputStreamReader( System.in ) );
+
+        for ( String line = reader.readLine(); line != null; line = reader.readLine() )
+        {
+            String coords = line.trim();
+            if ( coords.isEmpty() )
+                continue;
+
+            ResolutionResult result = null;
+            try
+            {
+                ResolutionRequest request = parseRequest( coords );
+                result = resolver.resolve( request );
+
+                if ( result.getArtifactPath() == null )
+                    System.err.printf( "ERROR: Unable to resolve artifact %s%n", request.getArtifact() );
+            }
+            catch ( IllegalArgumentException e )
+            {
+                System.err.println( e.getMessage() );
+            }
+
+            if ( result != null && result.getArtifactPath() != null )
+            {
+                System.out.println( formatResult( result ) );
+            }
+            else
+            {
+                success = false;
+                System.out.println();
+            }
+
+            System.out.flush();
+        }
+
+        return success;
+    }
+
     private void printResults( ResolverCliRequest cli, List<ResolutionResult> results )
         throws JAXBException
     {
@@ -102,9 +202,115 @@ public class ResolverCli
         }
     }
 
+    private void printClosure( ResolverCliRequest cli, DependencyClosure closure )
+    {
+        if ( cli.isGraph() )
+        {
+            for ( DependencyClosure.Node node : closure.getNodes() )
+            {
+                // Artifacts without file, like POM-only artifacts, are printed without path
+                if ( node.getPath() != null )
+                    System.out.println( node.getArtifact() + " " + node.getPath() );
+                else
+                    System.out.println( node.getArtifact() );
+                for ( DependencyClosure.Node dependency : node.getDependencies() )
+                    System.out.println( "  " + dependency.getArtifact() );
+            }
+
+            return;
+        }
+
+        // POM artifacts are walked through, but don't belong to classpath
+        List<String> paths = closure.getNodes().stream() //
+                                    .filter( n -> !"pom".equals( n.getArtifact().getExtension() ) ) //
+                                    .filter( n -> n.getPath() != null ) //
+                                    .map( n -> n.getPath().toString() ) //
+                                    .collect( Collectors.toList() );
+
+        if ( cli.isClasspath() )
+            System.out.println( String.join( ":", paths ) );
+        else
+            paths.forEach( System.out::println );
+    }
+
+    private MetadataResult resolveMetadata()
+    {
+        if ( configurator == null || metadataResolver == null )
+            throw new IllegalStateException( "Metadata resolver is required to query installed artifact metadata" );
+
+        ResolverSettings settings = configurator.getConfiguration().getResolverSettings();
+        MetadataRequest metadataRequest = new MetadataRequest( settings.getMetadataRepositories() );
+        metadataRequest.setIgnoreDuplicates( settings.isIgnoreDuplicateMetadata() );
+        return metadataResolver.resolveMetadata( metadataRequest );
+    }
+
+    private void runDependents( ResolverCliRequest cliRequest )
+    {
+        List<Artifact> artifacts = new ArrayList<>();
+        for ( String s : cliRequest.getParameters() )
+            artifacts.add( parseRequest( s ).getArtifact() );
+
+        MetadataResult metadataResult = resolveMetadata();
+
+        Set<ArtifactMetadata> printed = Collections.newSetFromMap( new IdentityHashMap<>() );
+        for ( Artifact artifact : artifacts )
+        {
+            for ( ArtifactMetadata dependent : metadataResult.getDependents( artifact.getGroupId(),
+                                                                             artifact.getArtifactId(),
+                                                                             cliRequest.isClosure() ) )
+            {
+                if ( printed.add( dependent ) )
+                    System.out.println( dependent.toArtifact() + "\t" + dependent.getNamespace() );
+            }
+        }
+    }
+
+    private void runClosure( ResolverCliRequest cliRequest )
+    {
+        List<Artifact> roots = new ArrayList<>();
+        for ( String s : cliRequest.getParameters() )
+            roots.add( parseRequest( s ).getArtifact() );
+
+        DependencyClosure closure = new DependencyClosure( resolveMetadata() );
+        closure.compute( roots );
+
+        if ( !closure.getErrors().isEmpty() )
+        {
+            for ( String error : closure.getErrors() )
+                System.err.printf( "ERROR: %s%n", error );
+            System.exit( 1 );
+        }
+
+        printClosure( cliRequest, closure );
+    }
+
     private void run( ResolverCliRequest cliRequest )
-        throws JAXBException
+        throws JAXBException, IOException
     {
+        if ( cliRequest.isStream() )
+        {
+            if ( !runStream() )
+                System.exit( 1 );
+            return;
+        }
+
+        if ( cliRequest.isDependents() || cliRequest.isClosure() )
+        {
+            try
+            {
+                if ( cliRequest.isDependents() )
+                    runDependents( cliRequest );
+                else
+                    runClosure( cliRequest );
+            }
+            catch ( IllegalArgumentException e )
+            {
+                System.err.println( e.getMessage() );
+                System.exit( 1 );
+            }
+            return;
+        }
+
         try
         {
             boolean error = false;
@@ -146,8 +352,10 @@ public class ResolverCli
 
             ServiceLocator locator = new ServiceLocatorFactory().createServiceLocator();
             Resolver resolver = locator.getService( Resolver.class );
+            Configurator configurator = locator.getService( Configurator.class );
+            MetadataResolver metadataResolver = locator.getService( MetadataResolver.class );
 
-            ResolverCli cli = new ResolverCli( resolver );
+            ResolverCli cli = new ResolverCli( resolver, configurator, metadataResolver );
 
             cli.run( cliRequest );
         }
@@ -47,6 +47,22 @@ class ResolverCliRequest
         "--raw-request" }, description = "Read a list of raw XMvn XML requests from standard input and print the results on standard output" )
     private boolean raw = false;
 
+    @Parameter( names = {
+        "--stream" }, description = "Keep reading artifact coordinates from standard input, one per line, and print each result as soon as it is resolved" )
+    private boolean stream = false;
+
+    @Parameter( names = {
+        "--closure" }, description = "Resolve given artifacts together with transitive closure of their dependencies" )
+    private boolean closure = false;
+
+    @Parameter( names = {
+        "--graph" }, description = "Print dependency graph of given artifacts instead of list of artifacts (implies --closure)" )
+    private boolean graph = false;
+
+    @Parameter( names = {
+        "--dependents" }, description = "Print installed artifacts depending on given artifacts (transitively with --closure)" )
+    private boolean dependents = false;
+
     @DynamicParameter( names = "-D", description = "Define system property" )
     private Map<String, String> defines = new TreeMap<>();
 
@@ -70,6 +86,27 @@ class ResolverCliRequest
                 throw new ParameterException( "--raw-request must be used alone" );
             }
 
+            if ( stream && ( raw || classpath || parameters.size() > 0 ) )
+            {
+                throw new ParameterException( "--stream must be used alone" );
+            }
+
+            if ( ( closure || graph ) && ( raw || stream ) )
+            {
+                throw new ParameterException( "--closure and --graph can't be used with --raw-request or --stream" );
+            }
+
+            if ( dependents && ( raw || stream || graph || classpath ) )
+            {
+                throw new ParameterException( "--dependents can't be used with --raw-request, --stream, --graph"
+                    + " or --classpath" );
+            }
+
+            if ( graph && classpath )
+            {
+                throw new ParameterException( "--graph and --classpath are mutually exclusive" );
+            }
+
             for ( String param : defines.keySet() )
                 System.setProperty( param, defines.get( param ) );
         }
@@ -120,6 +157,46 @@ class ResolverCliRequest
         this.raw = raw;
     }
 
+    public boolean isStream()
+    {
+        return stream;
+    }
+
+    public void setStream( boolean stream )
+    {
+        this.stream = stream;
+    }
+
+    public boolean isClosure()
+    {
+        return closure || graph;
+    }
+
+    public void setClosure( boolean closure )
+    {
+        this.closure = closure;
+    }
+
+    public boolean isGraph()
+    {
+        return graph;
+    }
+
+    public void setGraph( boolean graph )
+    {
+        this.graph = graph;
+    }
+
+    public boolean isDependents()
+    {
+        return dependents;
+    }
+
+    public void setDependents( boolean dependents )
+    {
+        this.dependents = dependents;
+    }
+
     public Map<String, String> getDefines()
     {
         return defines;
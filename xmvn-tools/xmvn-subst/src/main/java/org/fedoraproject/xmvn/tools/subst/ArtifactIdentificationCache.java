@@ -0,0 +1,168 @@
+/*-
+ * Copyright (c) 2018 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fedoraproject.xmvn.tools.subst;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.fedoraproject.xmvn.artifact.Artifact;
+import org.fedoraproject.xmvn.artifact.DefaultArtifact;
+
+/**
+ * Persistent cache of artifact identification results.
+ * <p>
+ * Results are remembered together with size and modification time of identified file, so that files which didn't
+ * change since the previous run don't need to be opened again. Files in which no artifact definition was found are
+ * remembered too. Entries of files which no longer exist are dropped when the cache is stored. The cache is only an
+ * optimization -- failures to read or write it are reported, but not fatal.
+ * 
+ * @author Mikolaj Izdebski
+ */
+class ArtifactIdentificationCache
+{
+    /**
+     * Determines artifact contained in a file.
+     */
+    interface Identifier
+    {
+        Artifact identify( Path path, String extension )
+            throws IOException;
+    }
+
+    private final Path cachePath;
+
+    /**
+     * Maps extension and absolute file path to file size, modification time and artifact coordinates (empty if file
+     * contains no artifact definition), separated by spaces.
+     */
+    private final Map<String, String> entries = new ConcurrentHashMap<>();
+
+    private volatile boolean modified;
+
+    public ArtifactIdentificationCache( Path cachePath )
+    {
+        this.cachePath = cachePath;
+    }
+
+    public void load()
+    {
+        Properties properties = new Properties();
+        try ( InputStream stream = Files.newInputStream( cachePath ) )
+        {
+            properties.load( stream );
+        }
+        catch ( NoSuchFileException e )
+        {
+            return;
+        }
+        catch ( IOException | IllegalArgumentException e )
+        {
+            System.err.printf( "WARNING: Failed to read artifact cache %s: %s%n", cachePath, e );
+            return;
+        }
+
+        for ( String key : properties.stringPropertyNames() )
+            entries.put( key, properties.getProperty( key ) );
+    }
+
+    public void store()
+    {
+        if ( !modified )
+            return;
+
+        entries.keySet().removeIf( key -> !Files.exists( Paths.get( key.substring( key.indexOf( ':' ) + 1 ) ) ) );
+
+        Properties properties = new Properties();
+        for ( Entry<String, String> entry : entries.entrySet() )
+            properties.setProperty( entry.getKey(), entry.getValue() );
+
+        try
+        {
+            Path directory = cachePath.toAbsolutePath().getParent();
+            Files.createDirectories( directory );
+            Path tempFile = Files.createTempFile( directory, cachePath.getFileName().toString(), ".tmp" );
+            try
+            {
+                try ( OutputStream stream = Files.newOutputStream( tempFile ) )
+                {
+                    properties.store( stream, "XMvn Subst artifact cache" );
+                }
+
+                Files.move( tempFile, cachePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+                modified = false;
+            }
+            finally
+            {
+                Files.deleteIfExists( tempFile );
+            }
+        }
+        catch ( IOException e )
+        {
+            System.err.printf( "WARNING: Failed to write artifact cache %s: %s%n", cachePath, e );
+        }
+    }
+
+    /**
+     * Get artifact contained in given file, either from cache or from given identifier.
+     * 
+     * @param path path to the file
+     * @param attrs current attributes of the file
+     * @param extension artifact extension
+     * @param identifier used to identify the artifact if it's not cached
+     * @return identified artifact, or {@code null} if file contains no artifact definition
+     * @throws IOException if thrown by identifier
+     */
+    public Artifact identify( Path path, BasicFileAttributes attrs, String extension, Identifier identifier )
+        throws IOException
+    {
+        String key = extension + ":" + path.toAbsolutePath().normalize();
+        String stamp = attrs.size() + " " + attrs.lastModifiedTime().toMillis() + " ";
+
+        String entry = entries.get( key );
+        if ( entry != null && entry.startsWith( stamp ) )
+        {
+            String coords = entry.substring( stamp.length() );
+            if ( coords.isEmpty() )
+                return null;
+
+            try
+            {
+                return new DefaultArtifact( coords );
+            }
+            catch ( IllegalArgumentException e )
+            {
+                // Corrupted entry, identify the file again
+            }
+        }
+
+        Artifact artifact = identifier.identify( path, extension );
+        entries.put( key, stamp + ( artifact != null ? artifact.toString() : "" ) );
+        modified = true;
+
+        return artifact;
+    }
+}
@@ -16,22 +16,32 @@
 package org.fedoraproject.xmvn.tools.subst;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
 import java.nio.file.FileVisitResult;
 import java.nio.file.FileVisitor;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Enumeration;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 import java.util.jar.Manifest;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
 
 import org.fedoraproject.xmvn.artifact.Artifact;
 import org.fedoraproject.xmvn.artifact.DefaultArtifact;
@@ -39,11 +49,23 @@ import org.fedoraproject.xmvn.metadata.ArtifactMetadata;
 import org.fedoraproject.xmvn.metadata.MetadataResult;
 
 /**
+ * Visitor which substitutes artifact files with symbolic links to artifacts found in system repositories.
+ * <p>
+ * Files are only collected while walking directory tree. Artifact identification and substitution are done in
+ * parallel and finish in {@link #awaitCompletion()}, which also prints messages in the order in which files were
+ * visited.
+ * 
  * @author Mikolaj Izdebski
  */
 public class ArtifactVisitor
     implements FileVisitor<Path>
 {
+    /**
+     * Maximal number of threads used for identifying and substituting artifacts.
+     */
+    private static final int SUBST_THREADS =
+        Integer.getInteger( "xmvn.subst.threads", Runtime.getRuntime().availableProcessors() );
+
     private boolean debug;
 
     private final Set<String> types = new LinkedHashSet<>();
@@ -54,7 +76,16 @@ public class ArtifactVisitor
 
     private boolean dryRun;
 
-    private int failureCount;
+    private ArtifactIdentificationCache cache;
+
+    private final AtomicInteger failureCount = new AtomicInteger();
+
+    private ExecutorService executor;
+
+    /**
+     * Pending substitutions, in the order in which files were visited. Each task returns messages to be printed.
+     */
+    private final List<Future<String>> pendingTasks = new ArrayList<>();
 
     public ArtifactVisitor( boolean debug, List<MetadataResult> metadata )
     {
@@ -77,9 +108,14 @@ public class ArtifactVisitor
         this.dryRun = dryRun;
     }
 
+    public void setCache( ArtifactIdentificationCache cache )
+    {
+        this.cache = cache;
+    }
+
     public int getFailureCount()
     {
-        return failureCount;
+        return failureCount.get();
     }
 
     @Override
@@ -116,14 +152,23 @@ public class ArtifactVisitor
 
         String fileName = path.getFileName().toString();
 
+        List<String> matchingTypes = new ArrayList<>();
         for ( String type : types )
         {
             if ( fileName.endsWith( "." + type ) )
             {
-                substituteArtifact( path, type );
+                matchingTypes.add( type );
             }
         }
 
+        if ( !matchingTypes.isEmpty() )
+        {
+            if ( executor == null )
+                executor = Executors.newFixedThreadPool( Math.max( SUBST_THREADS, 1 ) );
+
+            pendingTasks.add( executor.submit( () -> substituteArtifacts( path, matchingTypes ) ) );
+        }
+
         return FileVisitResult.CONTINUE;
     }
 
@@ -135,91 +180,151 @@ public class ArtifactVisitor
         return FileVisitResult.CONTINUE;
     }
 
-    private Artifact getArtifactFromManifest( Path path )
+    /**
+     * Wait until all visited files are substituted and print messages about them.
+     * 
+     * @throws IOException if any file could not be substituted
+     */
+    public void awaitCompletion()
         throws IOException
     {
-        try ( JarFile jarFile = new JarFile( path.toFile() ) )
+        try
+        {
+            for ( Future<String> task : pendingTasks )
+                System.err.print( task.get() );
+        }
+        catch ( ExecutionException e )
+        {
+            Throwable cause = e.getCause();
+            if ( cause instanceof IOException )
+                throw (IOException) cause;
+            if ( cause instanceof RuntimeException )
+                throw (RuntimeException) cause;
+            if ( cause instanceof Error )
+                throw (Error) cause;
+            throw new IOException( cause );
+        }
+        catch ( InterruptedException e )
         {
-            Manifest mf = jarFile.getManifest();
-            if ( mf == null )
-                return null;
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+        finally
+        {
+            pendingTasks.clear();
+            if ( executor != null )
+                executor.shutdownNow();
+            executor = null;
+        }
+    }
 
-            String groupId = mf.getMainAttributes().getValue( Artifact.MF_KEY_GROUPID );
-            String artifactId = mf.getMainAttributes().getValue( Artifact.MF_KEY_ARTIFACTID );
-            String extension = mf.getMainAttributes().getValue( Artifact.MF_KEY_EXTENSION );
-            String classifier = mf.getMainAttributes().getValue( Artifact.MF_KEY_CLASSIFIER );
-            String version = mf.getMainAttributes().getValue( Artifact.MF_KEY_VERSION );
+    private static Artifact getArtifactFromManifest( JarFile jarFile )
+        throws IOException
+    {
+        Manifest mf = jarFile.getManifest();
+        if ( mf == null )
+            return null;
 
-            if ( groupId == null || artifactId == null )
-                return null;
+        String groupId = mf.getMainAttributes().getValue( Artifact.MF_KEY_GROUPID );
+        String artifactId = mf.getMainAttributes().getValue( Artifact.MF_KEY_ARTIFACTID );
+        String extension = mf.getMainAttributes().getValue( Artifact.MF_KEY_EXTENSION );
+        String classifier = mf.getMainAttributes().getValue( Artifact.MF_KEY_CLASSIFIER );
+        String version = mf.getMainAttributes().getValue( Artifact.MF_KEY_VERSION );
 
-            return new DefaultArtifact( groupId, artifactId, extension, classifier, version );
-        }
+        if ( groupId == null || artifactId == null )
+            return null;
+
+        return new DefaultArtifact( groupId, artifactId, extension, classifier, version );
     }
 
-    private Artifact getArtifactFromPomProperties( Path path, String extension )
+    private static Artifact getArtifactFromPomProperties( JarFile jarFile, String extension )
         throws IOException
     {
-        try ( ZipInputStream zis = new ZipInputStream( Files.newInputStream( path ) ) )
+        // Entries are listed from central directory, only the matching one is decompressed
+        for ( Enumeration<JarEntry> entries = jarFile.entries(); entries.hasMoreElements(); )
         {
-            ZipEntry entry;
-            while ( ( entry = zis.getNextEntry() ) != null )
+            JarEntry entry = entries.nextElement();
+            String name = entry.getName();
+            if ( name.startsWith( "META-INF/maven/" ) && name.endsWith( "/pom.properties" ) )
             {
-                String name = entry.getName();
-                if ( name.startsWith( "META-INF/maven/" ) && name.endsWith( "/pom.properties" ) )
+                Properties properties = new Properties();
+                try ( InputStream stream = jarFile.getInputStream( entry ) )
                 {
-                    Properties properties = new Properties();
-                    properties.load( zis );
-
-                    String groupId = properties.getProperty( "groupId" );
-                    String artifactId = properties.getProperty( "artifactId" );
-                    String version = properties.getProperty( "version" );
-                    return new DefaultArtifact( groupId, artifactId, extension, version );
+                    properties.load( stream );
                 }
-            }
 
-            return null;
+                String groupId = properties.getProperty( "groupId" );
+                String artifactId = properties.getProperty( "artifactId" );
+                String version = properties.getProperty( "version" );
+                return new DefaultArtifact( groupId, artifactId, extension, version );
+            }
         }
+
+        return null;
     }
 
-    private Artifact readArtifactDefinition( Path path, String extension )
+    private static Artifact getArtifactDefinition( Path path, String extension )
+        throws IOException
     {
-        try
+        try ( JarFile jarFile = new JarFile( path.toFile(), false ) )
         {
-            Artifact artifact = getArtifactFromManifest( path );
+            Artifact artifact = getArtifactFromManifest( jarFile );
             if ( artifact != null )
                 return artifact;
 
-            artifact = getArtifactFromPomProperties( path, extension );
-            if ( artifact != null )
-                return artifact;
+            return getArtifactFromPomProperties( jarFile, extension );
+        }
+    }
 
-            return null;
+    private Artifact readArtifactDefinition( Path path, String extension, PrintWriter out )
+    {
+        try
+        {
+            if ( cache == null )
+                return getArtifactDefinition( path, extension );
+
+            BasicFileAttributes attrs = Files.readAttributes( path, BasicFileAttributes.class );
+            return cache.identify( path, attrs, extension, ArtifactVisitor::getArtifactDefinition );
         }
         catch ( IOException e )
         {
-            System.err.printf( "ERROR: Failed to get artifact definition from file %s%n", path );
-            e.printStackTrace();
+            out.printf( "ERROR: Failed to get artifact definition from file %s%n", path );
+            e.printStackTrace( out );
             return null;
         }
     }
 
-    private void substituteArtifact( Path path, String type )
+    private String substituteArtifacts( Path path, List<String> types )
+        throws IOException
+    {
+        StringWriter messages = new StringWriter();
+        try ( PrintWriter out = new PrintWriter( messages ) )
+        {
+            for ( String type : types )
+            {
+                substituteArtifact( path, type, out );
+            }
+        }
+
+        return messages.toString();
+    }
+
+    private void substituteArtifact( Path path, String type, PrintWriter out )
         throws IOException
     {
-        Artifact artifact = readArtifactDefinition( path, type );
+        Artifact artifact = readArtifactDefinition( path, type, out );
         if ( artifact == null )
         {
-            System.err.printf( "Skipping file %s: No artifact definition found%n", path );
-            failureCount++;
+            out.printf( "Skipping file %s: No artifact definition found%n", path );
+            failureCount.incrementAndGet();
             return;
         }
 
         ArtifactMetadata metadata = resolveMetadata( artifact );
         if ( metadata == null )
         {
-            System.err.printf( "WARNING: Skipping file %s: Artifact %s not found in repository%n", path, artifact );
-            failureCount++;
+            out.printf( "WARNING: Skipping file %s: Artifact %s not found in repository%n", path, artifact );
+            failureCount.incrementAndGet();
             return;
         }
 
@@ -231,7 +336,7 @@ public class ArtifactVisitor
             Files.createSymbolicLink( path, artifactPath );
         }
 
-        System.err.printf( "Linked %s to %s%n", path, artifactPath );
+        out.printf( "Linked %s to %s%n", path, artifactPath );
     }
 
     private ArtifactMetadata resolveMetadata( Artifact artifact )
@@ -73,11 +73,27 @@ public class SubstCli
         visitor.setFollowSymlinks( cliRequest.isFollowSymlinks() );
         visitor.setDryRun( cliRequest.isDryRun() );
 
+        Path cachePath = getCachePath();
+        ArtifactIdentificationCache cache = null;
+        if ( cachePath != null )
+        {
+            cache = new ArtifactIdentificationCache( cachePath );
+            cache.load();
+            visitor.setCache( cache );
+        }
+
         try
         {
-            for ( String path : cliRequest.getParameters() )
+            try
             {
-                Files.walkFileTree( Paths.get( path ), visitor );
+                for ( String path : cliRequest.getParameters() )
+                {
+                    Files.walkFileTree( Paths.get( path ), visitor );
+                }
+            }
+            finally
+            {
+                visitor.awaitCompletion();
             }
         }
         catch ( IOException e )
@@ -85,10 +101,23 @@ public class SubstCli
             e.printStackTrace();
         }
 
+        if ( cache != null )
+            cache.store();
+
         if ( cliRequest.isStrict() && visitor.getFailureCount() > 0 )
             System.exit( 1 );
     }
 
+    /**
+     * Get location of artifact identification cache, or {@code null} if caching is disabled. Caching is enabled only
+     * if cache location is specified with {@code xmvn.subst.cache} system property.
+     */
+    private static Path getCachePath()
+    {
+        String location = System.getProperty( "xmvn.subst.cache" );
+        return location != null && !location.isEmpty() ? Paths.get( location ) : null;
+    }
+
     public static void main( String[] args )
     {
         try
@@ -0,0 +1,209 @@
+/*-
+ * Copyright (c) 2018 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fedoraproject.xmvn.tools.subst;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.fedoraproject.xmvn.artifact.Artifact;
+import org.fedoraproject.xmvn.artifact.DefaultArtifact;
+
+/**
+ * @author Mikolaj Izdebski
+ */
+public class ArtifactIdentificationCacheTest
+{
+    private static final long ONE_MINUTE = 60 * 1000;
+
+    private Path workDir;
+
+    private Path cachePath;
+
+    private Path file;
+
+    /**
+     * Paths passed to identifier, that is files which were not found in cache.
+     */
+    private final List<Path> identified = new ArrayList<>();
+
+    private Artifact artifact;
+
+    @Before
+    public void setUp()
+        throws Exception
+    {
+        workDir = Paths.get( "target/test-work" ).toAbsolutePath();
+        Files.createDirectories( workDir );
+        cachePath = workDir.resolve( "subst-cache.properties" );
+        Files.deleteIfExists( cachePath );
+        file = workDir.resolve( "foo.jar" );
+        Files.write( file, new byte[] { 1, 2, 3 } );
+        artifact = new DefaultArtifact( "org.example:foo:jar:1.2" );
+    }
+
+    private Artifact identify( ArtifactIdentificationCache cache, String extension )
+        throws Exception
+    {
+        BasicFileAttributes attrs = Files.readAttributes( file, BasicFileAttributes.class );
+        return cache.identify( file, attrs, extension, ( path, ext ) -> {
+            identified.add( path );
+            return artifact;
+        } );
+    }
+
+    private ArtifactIdentificationCache reload( ArtifactIdentificationCache cache )
+    {
+        cache.store();
+        ArtifactIdentificationCache newCache = new ArtifactIdentificationCache( cachePath );
+        newCache.load();
+        return newCache;
+    }
+
+    @Test
+    public void testCacheHit()
+        throws Exception
+    {
+        ArtifactIdentificationCache cache = new ArtifactIdentificationCache( cachePath );
+        cache.load();
+        assertEquals( artifact, identify( cache, "jar" ) );
+        assertEquals( artifact, identify( cache, "jar" ) );
+        assertEquals( 1, identified.size() );
+
+        cache = reload( cache );
+        assertEquals( artifact, identify( cache, "jar" ) );
+        assertEquals( 1, identified.size() );
+
+        // Results are cached separately for each extension
+        identify( cache, "war" );
+        assertEquals( 2, identified.size() );
+    }
+
+    @Test
+    public void testMissAfterSizeChange()
+        throws Exception
+    {
+        ArtifactIdentificationCache cache = new ArtifactIdentificationCache( cachePath );
+        FileTime mtime = Files.getLastModifiedTime( file );
+        identify( cache, "jar" );
+
+        Files.write( file, new byte[] { 1, 2, 3, 4 } );
+        Files.setLastModifiedTime( file, mtime );
+        identify( cache, "jar" );
+        assertEquals( 2, identified.size() );
+    }
+
+    @Test
+    public void testMissAfterMtimeChange()
+        throws Exception
+    {
+        ArtifactIdentificationCache cache = new ArtifactIdentificationCache( cachePath );
+        identify( cache, "jar" );
+
+        FileTime mtime = Files.getLastModifiedTime( file );
+        Files.setLastModifiedTime( file, FileTime.fromMillis( mtime.toMillis() - ONE_MINUTE ) );
+        cache = reload( cache );
+        identify( cache, "jar" );
+        assertEquals( 2, identified.size() );
+    }
+
+    @Test
+    public void testNegativeEntry()
+        throws Exception
+    {
+        artifact = null;
+        ArtifactIdentificationCache cache = new ArtifactIdentificationCache( cachePath );
+        assertNull( identify( cache, "jar" ) );
+
+        cache = reload( cache );
+        artifact = new DefaultArtifact( "org.example:bar:jar:1.0" );
+        assertNull( identify( cache, "jar" ) );
+        assertEquals( 1, identified.size() );
+    }
+
+    @Test
+    public void testCorruptCacheFile()
+        throws Exception
+    {
+        // Malformed Unicode escape makes Properties.load() fail
+        Files.write( cachePath, Collections.singleton( "jar\\:" + file + "=\\u12" ) );
+
+        PrintStream origErr = System.err;
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        try ( PrintStream ps = new PrintStream( err ) )
+        {
+            System.setErr( ps );
+            ArtifactIdentificationCache cache = new ArtifactIdentificationCache( cachePath );
+            cache.load();
+            assertEquals( artifact, identify( cache, "jar" ) );
+        }
+        finally
+        {
+            System.setErr( origErr );
+        }
+
+        assertEquals( 1, identified.size() );
+        assertFalse( err.toString().isEmpty() );
+    }
+
+    @Test
+    public void testCorruptEntry()
+        throws Exception
+    {
+        BasicFileAttributes attrs = Files.readAttributes( file, BasicFileAttributes.class );
+        String stamp = attrs.size() + " " + attrs.lastModifiedTime().toMillis() + " ";
+        Files.write( cachePath, Collections.singleton( "jar\\:" + file + "=" + stamp + "not-coordinates" ) );
+
+        ArtifactIdentificationCache cache = new ArtifactIdentificationCache( cachePath );
+        cache.load();
+        assertEquals( artifact, identify( cache, "jar" ) );
+        assertEquals( 1, identified.size() );
+    }
+
+    @Test
+    public void testMissingFilesDropped()
+        throws Exception
+    {
+        ArtifactIdentificationCache cache = new ArtifactIdentificationCache( cachePath );
+        identify( cache, "jar" );
+        Files.delete( file );
+        cache.store();
+
+        Properties properties = new Properties();
+        try ( InputStream stream = Files.newInputStream( cachePath ) )
+        {
+            properties.load( stream );
+        }
+        assertTrue( properties.isEmpty() );
+    }
+}
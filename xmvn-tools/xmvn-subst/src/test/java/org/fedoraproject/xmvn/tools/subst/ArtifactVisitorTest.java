@@ -0,0 +1,141 @@
+/*-
+ * Copyright (c) 2018 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fedoraproject.xmvn.tools.subst;
+
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.getCurrentArguments;
+import static org.easymock.EasyMock.replay;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import org.fedoraproject.xmvn.artifact.Artifact;
+import org.fedoraproject.xmvn.metadata.MetadataResult;
+
+/**
+ * @author Mikolaj Izdebski
+ */
+public class ArtifactVisitorTest
+{
+    private static final int FILE_COUNT = 16;
+
+    private static final int DELAY = 10;
+
+    @BeforeClass
+    public static void setUpClass()
+    {
+        System.setProperty( "xmvn.subst.threads", "4" );
+    }
+
+    private static void writeJar( Path path, String artifactId )
+        throws IOException
+    {
+        Manifest mf = new Manifest();
+        mf.getMainAttributes().put( Attributes.Name.MANIFEST_VERSION, "1.0" );
+        mf.getMainAttributes().putValue( Artifact.MF_KEY_GROUPID, "org.example" );
+        mf.getMainAttributes().putValue( Artifact.MF_KEY_ARTIFACTID, artifactId );
+        mf.getMainAttributes().putValue( Artifact.MF_KEY_VERSION, "1.0" );
+
+        try ( OutputStream os = Files.newOutputStream( path ); JarOutputStream jos = new JarOutputStream( os, mf ) )
+        {
+            // Only manifest is needed
+        }
+    }
+
+    /**
+     * Test if messages are printed in the order in which files were visited, even if substitution of files visited
+     * first takes longest.
+     */
+    @Test
+    public void testMessageOrder()
+        throws Exception
+    {
+        Path workDir = Paths.get( "target/test-work/testMessageOrder" ).toAbsolutePath();
+        Files.createDirectories( workDir );
+        for ( int i = 0; i < FILE_COUNT; i++ )
+            writeJar( workDir.resolve( "artifact" + i + ".jar" ), "artifact" + i );
+
+        List<Path> visitOrder = new ArrayList<>();
+        Files.walkFileTree( workDir, new SimpleFileVisitor<Path>()
+        {
+            @Override
+            public FileVisitResult visitFile( Path file, BasicFileAttributes attrs )
+            {
+                visitOrder.add( file );
+                return FileVisitResult.CONTINUE;
+            }
+        } );
+
+        // Lookups of files visited earlier are slower, so that tasks finish in reverse order
+        MetadataResult metadataResult = createMock( MetadataResult.class );
+        expect( metadataResult.getMetadataFor( anyObject() ) ).andAnswer( () -> {
+            Artifact artifact = (Artifact) getCurrentArguments()[0];
+            Path path = workDir.resolve( artifact.getArtifactId() + ".jar" );
+            Thread.sleep( ( FILE_COUNT - visitOrder.indexOf( path ) ) * DELAY );
+            return null;
+        } ).anyTimes();
+        replay( metadataResult );
+
+        ArtifactVisitor visitor = new ArtifactVisitor( false, Collections.singletonList( metadataResult ) );
+        visitor.setTypes( Collections.singleton( "jar" ) );
+        visitor.setDryRun( true );
+
+        PrintStream origErr = System.err;
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        try ( PrintStream ps = new PrintStream( err ) )
+        {
+            System.setErr( ps );
+            Files.walkFileTree( workDir, visitor );
+            visitor.awaitCompletion();
+        }
+        finally
+        {
+            System.setErr( origErr );
+        }
+
+        List<String> expected = new ArrayList<>();
+        for ( Path path : visitOrder )
+        {
+            String artifactId = path.getFileName().toString().replace( ".jar", "" );
+            expected.add( "WARNING: Skipping file " + path + ": Artifact org.example:" + artifactId
+                + ":jar:1.0 not found in repository" );
+        }
+
+        assertEquals( expected, Arrays.asList( err.toString().split( "\\r?\\n" ) ) );
+        assertEquals( FILE_COUNT, visitor.getFailureCount() );
+    }
+}